@@ -1,17 +1,31 @@
 package br.com.resturante.reservas;
 
+import com.fasterxml.jackson.databind.Module;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.mongodb.core.geo.GeoJsonModule;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(exclude = {DataSourceAutoConfiguration.class })
 @ComponentScan(basePackages = "br.com.resturante.reservas")
 @Generated
+@EnableScheduling
 public class ReservasApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(ReservasApplication.class, args);
 	}
 
+	/**
+	 * Le e escreve as coordenadas do restaurante como GeoJSON ({"type": "Point",
+	 * "coordinates": [longitude, latitude]}) nas requisicoes e respostas.
+	 */
+	@Bean
+	public Module geoJsonModule() {
+		return GeoJsonModule.geoJsonModule();
+	}
+
 }
@@ -1,11 +1,15 @@
 package br.com.resturante.reservas.adapter.controller;
 
+import br.com.resturante.reservas.dto.Pagina;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
 import br.com.resturante.reservas.entities.Cliente;
 import br.com.resturante.reservas.usecases.service.ClienteService;
+import br.com.resturante.reservas.usecases.service.impl.ClienteServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -28,20 +32,49 @@ public class ClienteController {
         return new ResponseEntity<>(clienteCriado, HttpStatus.CREATED);
     }
 
+    @PostMapping("/lote")
+    public ResponseEntity<List<ResultadoImportacao>> importarClientes(@RequestBody List<Cliente> clientes) {
+        return new ResponseEntity<>(clienteService.importarClientes(clientes), HttpStatus.OK);
+    }
+
     @GetMapping
-    public ResponseEntity<List<Cliente>> listarClientes() {
-        return new ResponseEntity<>(clienteService.getAllClientes(), HttpStatus.OK);
+    public ResponseEntity<Pagina<Cliente>> listarClientes(@RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer tamanho) {
+        try {
+            return new ResponseEntity<>(clienteService.listarClientes(cursor, tamanho), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/existe")
+    public ResponseEntity<Boolean> existeCliente(@RequestParam(required = false) String telefone,
+                                                 @RequestParam(required = false) String email) {
+        try {
+            return new ResponseEntity<>(clienteService.existeCliente(telefone, email), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
+    /**
+     * O ETag e o hash do conteudo gravado com o cliente; com If-None-Match igual a ele
+     * responde 304 sem carregar o cliente.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Cliente> buscarClientePorId(@PathVariable("id") String id) {
+    public ResponseEntity<Cliente> buscarClientePorId(@PathVariable("id") String id, WebRequest request) {
+        Long hash = clienteService.buscarHashCliente(id);
+        if (hash != null && request.checkNotModified(Long.toHexString(hash))) {
+            return null;
+        }
          Cliente cliente = null;
         try {
             cliente = clienteService.listarClientePorId(id);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(cliente, HttpStatus.OK);
+        long hashAtual = cliente.getHash() != null ? cliente.getHash() : ClienteServiceImpl.hashConteudo(cliente);
+        return ResponseEntity.ok().eTag(Long.toHexString(hashAtual)).body(cliente);
     }
 
     @GetMapping("/nome/{nome}")
@@ -0,0 +1,36 @@
+package br.com.resturante.reservas.adapter.controller;
+
+import br.com.resturante.reservas.dto.LinhaRelatorioOcupacao;
+import br.com.resturante.reservas.usecases.service.RelatorioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/relatorio")
+public class RelatorioController {
+
+    @Autowired
+    private RelatorioService relatorioService;
+
+    public RelatorioController(RelatorioService relatorioService) {
+        this.relatorioService = relatorioService;
+    }
+
+    @GetMapping("/ocupacao")
+    public ResponseEntity<List<LinhaRelatorioOcupacao>> relatorioOcupacao(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                                                                          @RequestParam(required = false) String tipoCozinha) {
+        if (de != null && ate != null && de.isAfter(ate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(relatorioService.relatorioOcupacao(de, ate, tipoCozinha));
+    }
+}
@@ -1,25 +1,49 @@
 package br.com.resturante.reservas.adapter.controller;
 
+import br.com.resturante.reservas.dto.AtualizacaoReserva;
+import br.com.resturante.reservas.dto.AtualizacaoRestaurante;
+import br.com.resturante.reservas.dto.Pagina;
 import br.com.resturante.reservas.dto.ReservaDto;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
+import br.com.resturante.reservas.dto.ResultadoReserva;
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
 import br.com.resturante.reservas.entities.Reserva;
 import br.com.resturante.reservas.entities.Restaurante;
+import br.com.resturante.reservas.usecases.cache.CacheRespostasRestaurantes;
+import br.com.resturante.reservas.usecases.cache.CacheRespostasRestaurantes.RespostaSerializada;
 import br.com.resturante.reservas.usecases.service.RestauranteService;
+import br.com.resturante.reservas.usecases.service.impl.RestauranteServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/restaurante")
 public class RestauranteController {
 
+    private static final String GZIP = "gzip";
+
     @Autowired
     private RestauranteService restauranteService;
 
-    public RestauranteController(RestauranteService restauranteService) {
+    @Autowired
+    private CacheRespostasRestaurantes cacheRespostasRestaurantes;
+
+    public RestauranteController(RestauranteService restauranteService, CacheRespostasRestaurantes cacheRespostasRestaurantes) {
         this.restauranteService = restauranteService;
+        this.cacheRespostasRestaurantes = cacheRespostasRestaurantes;
     }
 
 
@@ -32,20 +56,66 @@ public class RestauranteController {
         return ResponseEntity.status(HttpStatus.CREATED).body(novoRestaurante);
     }
 
+    @PostMapping("/lote")
+    public ResponseEntity<List<ResultadoImportacao>> importarRestaurantes(@RequestBody List<Restaurante> restaurantes) {
+        return ResponseEntity.ok(restauranteService.importarRestaurantes(restaurantes));
+    }
+
     @GetMapping
-    public ResponseEntity<List<Restaurante>> listarRestaurantes() {
-        List<Restaurante> restaurantes = restauranteService.listarRestaurantes();
-        return ResponseEntity.ok(restaurantes);
+    public ResponseEntity<Pagina<RestauranteResumo>> listarRestaurantes(@RequestParam(required = false) String cursor,
+                                                                       @RequestParam(required = false) Integer tamanho) {
+        try {
+            return ResponseEntity.ok(restauranteService.listarRestaurantes(cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
+    /**
+     * Restaurante sem versao nao existe e responde 404. Com If-None-Match igual a versao
+     * atual responde 304 sem carregar o restaurante. Nos demais casos o corpo sao os bytes ja serializados da versao atual, gravados
+     * direto na resposta; comprimidos quando o cliente aceita gzip.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Restaurante> buscarRestaurantePorId(@PathVariable String id) {
-        Restaurante restaurante = restauranteService.buscarRestaurantePorId(id);
-        if (restaurante != null) {
-            return ResponseEntity.ok(restaurante);
-        } else {
+    public ResponseEntity<byte[]> buscarRestaurantePorId(@PathVariable String id, WebRequest request) {
+        Long versao = restauranteService.buscarVersaoRestaurante(id);
+        if (versao == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(String.valueOf(versao))) {
+            return null;
+        }
+        RespostaSerializada resposta;
+        try {
+            resposta = cacheRespostasRestaurantes.buscar(id, versao, () -> restauranteService.buscarRestaurantePorId(id));
+        } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (resposta.getVersao() != null) {
+            ok.eTag(String.valueOf(resposta.getVersao()));
+        }
+        if (resposta.getGzip() == null) {
+            return ok.body(resposta.getJson());
+        }
+        ok.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (aceitaGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(resposta.getGzip());
+        }
+        return ok.body(resposta.getJson());
+    }
+
+    private static boolean aceitaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String codificacao : acceptEncoding.split(",")) {
+            String[] partes = codificacao.trim().split(";");
+            if (partes[0].trim().equalsIgnoreCase(GZIP)) {
+                return partes.length == 1 || !partes[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
     @GetMapping("/nome/{nome}")
     public ResponseEntity<Restaurante> buscarRestaurantePorNome(@PathVariable String nome) throws Exception {
@@ -57,6 +127,16 @@ public class RestauranteController {
         }
     }
 
+    @GetMapping("/sugestoes")
+    public ResponseEntity<List<SugestaoRestaurante>> sugerirRestaurantes(@RequestParam String prefixo,
+                                                                         @RequestParam(required = false) Integer limite) {
+        try {
+            return ResponseEntity.ok(restauranteService.sugerirRestaurantes(prefixo, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/endereco/{endereco}")
     public ResponseEntity<Restaurante> buscarRestaurantePorEndereco(@PathVariable String endereco) throws Exception {
         Restaurante restaurante = restauranteService.buscarRestaurantePorEndereco(endereco);
@@ -67,6 +147,18 @@ public class RestauranteController {
         }
     }
 
+    @GetMapping("/proximos")
+    public ResponseEntity<List<RestauranteProximo>> buscarRestaurantesProximos(@RequestParam double lat, @RequestParam double lon,
+                                                                               @RequestParam(required = false) Double raio,
+                                                                               @RequestParam(required = false) Integer limite,
+                                                                               @RequestParam(required = false) String tipoCozinha) {
+        try {
+            return ResponseEntity.ok(restauranteService.buscarRestaurantesProximos(lat, lon, raio, limite, tipoCozinha));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/tipo/{tipo}")
     public ResponseEntity<Restaurante> buscarRestaurantePorTipoCozinha(@PathVariable String tipo) throws Exception {
         Restaurante restaurante = restauranteService.buscarRestaurantePorTipoCozinha(tipo);
@@ -79,7 +171,12 @@ public class RestauranteController {
 
     @PutMapping("/{id}")
     public ResponseEntity<Restaurante> atualizarRestaurante(@PathVariable String id, @RequestBody Restaurante restaurante) {
-        Restaurante restauranteAtualizado = restauranteService.atualizarRestaurante(id, restaurante);
+        Restaurante restauranteAtualizado;
+        try {
+            restauranteAtualizado = restauranteService.atualizarRestaurante(id, restaurante);
+        } catch (OptimisticLockingFailureException | IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         if (restauranteAtualizado != null) {
             return ResponseEntity.ok(restauranteAtualizado);
         } else {
@@ -87,6 +184,17 @@ public class RestauranteController {
         }
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<Restaurante> atualizarRestauranteParcial(@PathVariable String id, @RequestBody AtualizacaoRestaurante atualizacao) {
+        try {
+            return ResponseEntity.ok(restauranteService.atualizarRestauranteParcial(id, atualizacao));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletarRestaurante(@PathVariable String id) {
         restauranteService.deletarRestaurante(id);
@@ -95,18 +203,32 @@ public class RestauranteController {
 
     @PostMapping("/reservar")
     public ResponseEntity<Reserva> reservarRestaurante(@RequestBody ReservaDto reservaDto) {
-        Reserva novoRestaurante = restauranteService.reservarRestaurante(reservaDto);
+        Reserva novoRestaurante;
+        try {
+            novoRestaurante = restauranteService.reservarRestaurante(reservaDto);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(novoRestaurante);
     }
 
-    @PutMapping("/restaurante/{idRestaurante}/comentario/{textoComentario}/reserva/{idReserva}")
-    public ResponseEntity<Reserva> adicionarComentario(@PathVariable String idRestaurante, @PathVariable String idReserva, @PathVariable String textoComentario) {
-        Restaurante restaurante = restauranteService.buscarRestaurantePorId(idRestaurante);
+    @PostMapping("/reservar/lote")
+    public ResponseEntity<List<ResultadoReserva>> reservarEmLote(@RequestBody List<ReservaDto> reservasDto) {
+        try {
+            return ResponseEntity.ok(restauranteService.reservarEmLote(reservasDto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        Reserva reservaAtualizada = restauranteService.adicionarComentario(restaurante, idReserva, textoComentario);
-        if (reservaAtualizada != null) {
-            return ResponseEntity.ok(reservaAtualizada);
-        } else {
+    @PutMapping("/restaurante/{idRestaurante}/comentario/{textoComentario}/reserva/{idReserva}")
+    public ResponseEntity<Reserva> adicionarComentario(@PathVariable String idRestaurante, @PathVariable String idReserva, @PathVariable String textoComentario,
+                                                       @RequestParam(required = false) Integer nota) {
+        try {
+            return ResponseEntity.ok(restauranteService.adicionarComentario(idRestaurante, idReserva, textoComentario, nota));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
@@ -115,7 +237,12 @@ public class RestauranteController {
 
     @PutMapping("/restaurante/{idRestaurante}/reserva")
     public ResponseEntity<Reserva> atualizarReserva(@PathVariable String idRestaurante, @RequestBody Reserva reserva) {
-        Reserva reservaAtualizada = restauranteService.atualizarReserva(idRestaurante, reserva);
+        Reserva reservaAtualizada;
+        try {
+            reservaAtualizada = restauranteService.atualizarReserva(idRestaurante, reserva);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         if (reservaAtualizada != null) {
             return ResponseEntity.ok(reservaAtualizada);
         } else {
@@ -123,10 +250,69 @@ public class RestauranteController {
         }
     }
 
+    @PatchMapping("/restaurante/{idRestaurante}/reserva/{idReserva}")
+    public ResponseEntity<Reserva> atualizarReservaParcial(@PathVariable String idRestaurante, @PathVariable String idReserva,
+                                                           @RequestBody AtualizacaoReserva atualizacao) {
+        try {
+            return ResponseEntity.ok(restauranteService.atualizarReservaParcial(idRestaurante, idReserva, atualizacao));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            if (RestauranteServiceImpl.RESTAURANTE_SEM_MESAS.equals(e.getMessage())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+
+    @DeleteMapping("/restaurante/{idRestaurante}/reserva/{idReserva}")
+    public ResponseEntity<Void> deletarReserva(@PathVariable String idRestaurante, @PathVariable String idReserva) {
+        try {
+            restauranteService.deletarReserva(idRestaurante, idReserva);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 
+
+    /**
+     * O ETag e a versao das reservas do restaurante, lida antes da listagem; com
+     * If-None-Match igual a ela responde 304 sem consultar as reservas. Restaurante
+     * inexistente responde 404, mesmo com If-None-Match.
+     */
     @GetMapping("/reservas/{id}")
-    public ResponseEntity<List<Reserva>> listarReservasPorRestaurante(@PathVariable String id) {
-        List<Reserva> reservas = restauranteService.listarReservasPorRestaurante(id);
-        return ResponseEntity.ok(reservas);
+    public ResponseEntity<List<Reserva>> listarReservasPorRestaurante(@PathVariable String id,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                                                                      WebRequest request) {
+        String versao;
+        List<Reserva> reservas;
+        try {
+            versao = String.valueOf(restauranteService.buscarVersaoReservas(id));
+            if (request.checkNotModified(versao)) {
+                return null;
+            }
+            reservas = restauranteService.listarReservasPorRestaurante(id, de, ate);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().eTag(versao).body(reservas);
+    }
+
+    @GetMapping(value = "/reservas/exportacao", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarReservas(@RequestParam(required = false) String idRestaurante,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate) {
+        if (de != null && ate != null && de.isAfter(ate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody corpo = saida -> restauranteService.exportarReservas(idRestaurante, de, ate, saida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(corpo);
     }
 }
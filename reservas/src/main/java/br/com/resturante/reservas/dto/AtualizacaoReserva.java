@@ -0,0 +1,25 @@
+package br.com.resturante.reservas.dto;
+
+import br.com.resturante.reservas.entities.Cliente;
+import br.com.resturante.reservas.entities.Comentario;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Campos de uma atualizacao parcial de reserva. So os campos enviados (nao nulos)
+ * sao alterados; mudar data ou hora troca a reserva de horario e de mesa.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class AtualizacaoReserva {
+
+    private LocalDate data;
+    private LocalTime hora;
+    private Cliente cliente;
+    private Comentario comentario;
+}
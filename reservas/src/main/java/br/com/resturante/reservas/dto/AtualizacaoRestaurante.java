@@ -0,0 +1,27 @@
+package br.com.resturante.reservas.dto;
+
+import br.com.resturante.reservas.entities.Mesa;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+import java.util.List;
+
+/**
+ * Campos de uma atualizacao parcial de restaurante. So os campos enviados (nao nulos)
+ * sao alterados. qtdMesas nao e informado: vem do tamanho da lista de mesas.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class AtualizacaoRestaurante {
+
+    private String nome;
+    private String localizacao;
+    private GeoJsonPoint coordenadas;
+    private String tipoCozinha;
+    private String horarioFuncionamento;
+    private Integer capacidade;
+    private List<Mesa> mesas;
+}
@@ -0,0 +1,20 @@
+package br.com.resturante.reservas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Telefone e email de um cliente, lidos sem o restante do documento para montar o
+ * filtro de contatos.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContatoCliente {
+
+    private String telefone;
+    private String email;
+}
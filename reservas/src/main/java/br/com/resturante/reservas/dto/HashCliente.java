@@ -0,0 +1,20 @@
+package br.com.resturante.reservas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * So o hash do conteudo de um cliente, lido sem o corpo para responder GETs
+ * condicionais.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HashCliente {
+
+    private String id;
+    private Long hash;
+}
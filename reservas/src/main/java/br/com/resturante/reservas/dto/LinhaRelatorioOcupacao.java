@@ -0,0 +1,26 @@
+package br.com.resturante.reservas.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Reservas de um restaurante em um dia e horario. percentualOcupacao e reservas sobre
+ * qtdMesas, em porcentagem; vem nulo quando o restaurante nao informa mesas.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class LinhaRelatorioOcupacao {
+
+    private String restauranteId;
+    private String nomeRestaurante;
+    private LocalDate data;
+    private LocalTime hora;
+    private long reservas;
+    private Integer qtdMesas;
+    private Double percentualOcupacao;
+}
@@ -0,0 +1,20 @@
+package br.com.resturante.reservas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Uma pagina de listagem. proximaPagina e o cursor a enviar para buscar a pagina
+ * seguinte; vem nulo na ultima pagina.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Pagina<T> {
+
+    private List<T> itens;
+    private String proximaPagina;
+}
@@ -0,0 +1,27 @@
+package br.com.resturante.reservas.dto;
+
+import br.com.resturante.reservas.entities.Avaliacao;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+/**
+ * Restaurante encontrado na busca por proximidade, com a distancia em metros ate o
+ * ponto consultado.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestauranteProximo {
+
+    private String id;
+    private String nome;
+    private String localizacao;
+    private String tipoCozinha;
+    private GeoJsonPoint coordenadas;
+    private Avaliacao avaliacao;
+    private double distanciaMetros;
+}
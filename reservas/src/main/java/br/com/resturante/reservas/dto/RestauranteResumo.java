@@ -0,0 +1,26 @@
+package br.com.resturante.reservas.dto;
+
+import br.com.resturante.reservas.entities.Avaliacao;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Dados de listagem do restaurante. Carregado com projecao de campos, sem as mesas;
+ * o documento completo so vem em GET /restaurante/{id}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestauranteResumo {
+
+    private String id;
+    private String nome;
+    private String localizacao;
+    private String tipoCozinha;
+    private Integer capacidade;
+    private Integer qtdMesas;
+    private Avaliacao avaliacao;
+}
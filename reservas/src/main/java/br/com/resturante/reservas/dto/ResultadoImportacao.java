@@ -0,0 +1,20 @@
+package br.com.resturante.reservas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de um item de importacao em lote. posicao e o indice do item no corpo
+ * enviado; erro vem preenchido so quando o item nao foi gravado.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacao {
+
+    private int posicao;
+    private String id;
+    private boolean importado;
+    private String erro;
+}
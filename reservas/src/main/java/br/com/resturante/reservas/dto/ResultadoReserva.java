@@ -0,0 +1,21 @@
+package br.com.resturante.reservas.dto;
+
+import br.com.resturante.reservas.entities.Reserva;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de um item da reserva em lote. posicao e o indice do item no corpo
+ * enviado; vem com a reserva criada ou com o erro que impediu a reserva.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoReserva {
+
+    private int posicao;
+    private Reserva reserva;
+    private boolean reservado;
+    private String erro;
+}
@@ -0,0 +1,21 @@
+package br.com.resturante.reservas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Restaurante sugerido na busca por prefixo: so o necessario para exibir a sugestao;
+ * o documento completo vem em GET /restaurante/{id}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugestaoRestaurante {
+
+    private String id;
+    private String nome;
+    private String tipoCozinha;
+}
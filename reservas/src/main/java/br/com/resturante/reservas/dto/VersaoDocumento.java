@@ -0,0 +1,19 @@
+package br.com.resturante.reservas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * So a versao de um documento, lida sem o corpo para responder GETs condicionais.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersaoDocumento {
+
+    private String id;
+    private Long versao;
+}
@@ -0,0 +1,28 @@
+package br.com.resturante.reservas.entities;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resumo das notas dos comentarios do restaurante, mantido com $inc a cada comentario
+ * gravado: quantidade de notas, soma e quantas vezes cada nota (1 a 5) apareceu.
+ */
+@NoArgsConstructor
+@Getter
+@Setter
+public class Avaliacao {
+    public static final int NOTA_MINIMA = 1;
+    public static final int NOTA_MAXIMA = 5;
+
+    private long quantidade;
+    private long soma;
+    private Map<String, Long> notas = new HashMap<>();
+
+    public Double getMedia() {
+        return quantidade == 0 ? null : (double) soma / quantidade;
+    }
+}
@@ -1,18 +1,35 @@
 package br.com.resturante.reservas.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.springframework.data.annotation.Id;
-
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 @RequiredArgsConstructor
-@AllArgsConstructor
 @Getter
 @Setter
+@Document
+@CompoundIndex(name = "nome_telefone", def = "{'nome': 1, 'telefone': 1}")
 public class Cliente {
     @Id
     private String id;
     private String nome;
+    @Indexed
     private String email;
+    @Indexed
     private String telefone;
+    @Indexed
     private String endereco;
+    @JsonIgnore
+    private Long hash;
+
+    public Cliente(String id, String nome, String email, String telefone, String endereco) {
+        this.id = id;
+        this.nome = nome;
+        this.email = email;
+        this.telefone = telefone;
+        this.endereco = endereco;
+    }
 }
@@ -1,5 +1,7 @@
 package br.com.resturante.reservas.entities;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -8,6 +10,7 @@ import lombok.Setter;
 @Getter
 @Setter
 public class Comentario {
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     private String texto;
     private Integer nota;
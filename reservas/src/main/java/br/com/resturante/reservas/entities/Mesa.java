@@ -1,5 +1,7 @@
 package br.com.resturante.reservas.entities;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -8,12 +10,8 @@ import lombok.Setter;
 @Getter
 @Setter
 public class Mesa {
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     private Integer numero;
     private Integer capacidade;
-    private Boolean disponivel;
-
-    public boolean isDisponivel() {
-        return disponivel;
-    }
 }
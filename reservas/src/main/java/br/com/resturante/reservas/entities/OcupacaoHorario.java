@@ -0,0 +1,34 @@
+package br.com.resturante.reservas.entities;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@NoArgsConstructor
+@Getter
+@Setter
+@Document
+public class OcupacaoHorario {
+    @Id
+    private String id;
+    private String restauranteId;
+    private LocalDate data;
+    private LocalTime hora;
+    private Integer ocupadas;
+    /**
+     * Uma palavra de 64 bits por grupo de mesas: a mesa i ocupa o bit i % 64 da
+     * palavra "i / 64". Palavras ausentes equivalem a zero.
+     */
+    private Map<String, Long> mapa = new HashMap<>();
+
+    public static String chave(String restauranteId, LocalDate data, LocalTime hora) {
+        return restauranteId + "|" + data + "|" + hora;
+    }
+}
@@ -1,9 +1,15 @@
 package br.com.resturante.reservas.entities;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -12,14 +18,21 @@ import java.util.Objects;
 @NoArgsConstructor
 @Getter
 @Setter
+@Document
+@CompoundIndex(name = "restaurante_data_hora", def = "{'restauranteId': 1, 'data': 1, 'hora': 1}")
 public class Reserva {
+    @Id
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     private String restauranteId;
     private LocalDate data;
     private LocalTime hora;
     private Cliente cliente;
     private Mesa mesa;
+    private Integer indiceMesa;
     private Comentario comentario;
+    @Version
+    private Long versao;
 
     @Override
     public boolean equals(Object o) {
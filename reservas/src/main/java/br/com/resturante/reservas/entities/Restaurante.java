@@ -2,25 +2,50 @@ package br.com.resturante.reservas.entities;
 
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @NoArgsConstructor
-@AllArgsConstructor
 @Getter
 @Setter
 @Document
+@CompoundIndexes({
+        @CompoundIndex(name = "tipoCozinha_nome", def = "{'tipoCozinha': 1, 'nome': 1}"),
+        @CompoundIndex(name = "coordenadas_tipoCozinha", def = "{'coordenadas': '2dsphere', 'tipoCozinha': 1}")
+})
 public class Restaurante {
     @Id
     private String id;
+    @Indexed
     private String nome;
+    @Indexed
     private String localizacao;
+    private GeoJsonPoint coordenadas;
     private String tipoCozinha;
     private String horarioFuncionamento;
     private Integer capacidade;
     private Integer qtdMesas;
     private List<Mesa> mesas = new ArrayList<>();
-    private List<Reserva> reservas = new ArrayList<>();
+    private Avaliacao avaliacao = new Avaliacao();
+    @Version
+    private Long versao;
+
+    public Restaurante(String id, String nome, String localizacao, String tipoCozinha, String horarioFuncionamento,
+                       Integer capacidade, Integer qtdMesas, List<Mesa> mesas) {
+        this.id = id;
+        this.nome = nome;
+        this.localizacao = localizacao;
+        this.tipoCozinha = tipoCozinha;
+        this.horarioFuncionamento = horarioFuncionamento;
+        this.capacidade = capacidade;
+        this.qtdMesas = qtdMesas;
+        this.mesas = mesas;
+    }
 }
@@ -0,0 +1,108 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Reserva;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Move para a colecao de arquivo as reservas com data anterior ao horizonte, em lotes
+ * ordenados por _id. Cada lote e copiado para o arquivo (copias repetidas sao
+ * ignoradas) e so entao removido da colecao de reservas, e o ultimo _id tratado fica
+ * gravado: uma execucao interrompida no mesmo dia continua desse ponto, sem reler as
+ * reservas recentes que ficaram para tras. A remocao so casa com a versao copiada;
+ * uma reserva alterada no meio do caminho tem a copia refeita se continua antiga, ou
+ * descartada do arquivo se passou para depois do horizonte.
+ */
+@Component
+public class ArquivamentoReservas {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArquivamentoReservas.class);
+    private static final String COLECAO_CONTROLE = "arquivamento";
+    private static final String CONTROLE_RESERVAS = "reserva";
+
+    private final MongoTemplate mongoTemplate;
+    private final ReservaRepository reservaRepository;
+    private final boolean habilitado;
+    private final int horizonteDias;
+    private final int tamanhoLote;
+
+    public ArquivamentoReservas(MongoTemplate mongoTemplate, ReservaRepository reservaRepository,
+                                @Value("${reservas.arquivamento.habilitado:true}") boolean habilitado,
+                                @Value("${reservas.arquivamento.horizonte-dias:90}") int horizonteDias,
+                                @Value("${reservas.arquivamento.tamanho-lote:500}") int tamanhoLote) {
+        this.mongoTemplate = mongoTemplate;
+        this.reservaRepository = reservaRepository;
+        this.habilitado = habilitado;
+        this.horizonteDias = horizonteDias;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    /**
+     * Reservas com data anterior a este dia podem estar no arquivo.
+     */
+    public LocalDate limite() {
+        return LocalDate.now().minusDays(horizonteDias);
+    }
+
+    @Scheduled(cron = "${reservas.arquivamento.cron:0 0 3 * * *}")
+    public void executarAgendado() {
+        if (habilitado) {
+            arquivar(limite());
+        }
+    }
+
+    public long arquivar(LocalDate limite) {
+        long ultimoId = retomada(limite);
+        long arquivadas = 0;
+        List<Reserva> lote;
+        while (!(lote = reservaRepository.findByDataLessThanAndIdGreaterThanOrderByIdAsc(limite, ultimoId, Limit.of(tamanhoLote))).isEmpty()) {
+            reservaRepository.arquivar(lote);
+            List<Reserva> alteradas = reservaRepository.removerArquivadas(lote);
+            long mantidas = 0;
+            while (!alteradas.isEmpty()) {
+                List<Reserva> antigas = alteradas.stream().filter(reserva -> anterior(reserva, limite)).toList();
+                List<Long> recentes = alteradas.stream().filter(reserva -> !anterior(reserva, limite)).map(Reserva::getId).toList();
+                reservaRepository.removerDoArquivo(recentes);
+                mantidas += recentes.size();
+                reservaRepository.rearquivar(antigas);
+                alteradas = reservaRepository.removerArquivadas(antigas);
+            }
+            ultimoId = lote.get(lote.size() - 1).getId();
+            registrarPonto(limite, ultimoId);
+            arquivadas += lote.size() - mantidas;
+        }
+        if (arquivadas > 0) {
+            LOGGER.info("{} reservas anteriores a {} arquivadas", arquivadas, limite);
+        }
+        return arquivadas;
+    }
+
+    private static boolean anterior(Reserva reserva, LocalDate limite) {
+        return reserva.getData() != null && reserva.getData().isBefore(limite);
+    }
+
+    private long retomada(LocalDate limite) {
+        Document controle = mongoTemplate.findById(CONTROLE_RESERVAS, Document.class, COLECAO_CONTROLE);
+        if (controle == null || !limite.toString().equals(controle.getString("limite"))) {
+            return 0L;
+        }
+        return controle.get("ultimoId", Number.class).longValue();
+    }
+
+    private void registrarPonto(LocalDate limite, long ultimoId) {
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(CONTROLE_RESERVAS)),
+                new Update().set("limite", limite.toString()).set("ultimoId", ultimoId), COLECAO_CONTROLE);
+    }
+}
@@ -1,10 +1,15 @@
 package br.com.resturante.reservas.external;
 
+import br.com.resturante.reservas.dto.ContatoCliente;
+import br.com.resturante.reservas.dto.HashCliente;
 import br.com.resturante.reservas.entities.Cliente;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ClienteRepository extends MongoRepository<Cliente, String>{
@@ -13,4 +18,16 @@ public interface ClienteRepository extends MongoRepository<Cliente, String>{
     Optional<Cliente> findByEndereco(String endereco);
 
     Optional<Cliente> findByTelefone(String telefone);
+
+    boolean existsByTelefone(String telefone);
+
+    boolean existsByEmail(String email);
+
+    Stream<ContatoCliente> findContatoBy();
+
+    Optional<HashCliente> findHashById(String id);
+
+    List<Cliente> findAllByOrderByIdAsc(Limit limite);
+
+    List<Cliente> findByIdGreaterThanOrderByIdAsc(String id, Limit limite);
 }
@@ -0,0 +1,53 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Cliente;
+import br.com.resturante.reservas.entities.OcupacaoHorario;
+import br.com.resturante.reservas.entities.Reserva;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Cria, antes das migracoes e do trafego, os indices declarados nas entidades. As
+ * buscas por nome, localizacao, tipo de cozinha, endereco e telefone dependem deles
+ * para nao varrer a colecao inteira.
+ */
+@Component
+@Order(0)
+public class CriacaoIndices implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CriacaoIndices.class);
+    private static final List<Class<?>> ENTIDADES = List.of(Restaurante.class, Cliente.class, Reserva.class, OcupacaoHorario.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public CriacaoIndices(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        criarIndices();
+    }
+
+    public void criarIndices() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> entidade : ENTIDADES) {
+            IndexOperations indexOperations = mongoTemplate.indexOps(entidade);
+            resolver.resolveIndexFor(entidade).forEach(indexOperations::ensureIndex);
+            LOGGER.debug("Indices de {} verificados", entidade.getSimpleName());
+        }
+        IndexOperations arquivo = mongoTemplate.indexOps(ReservaRepositoryCustom.COLECAO_ARQUIVO);
+        resolver.resolveIndexFor(Reserva.class).forEach(arquivo::ensureIndex);
+    }
+}
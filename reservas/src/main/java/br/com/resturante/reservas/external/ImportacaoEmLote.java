@@ -0,0 +1,74 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.dto.ResultadoImportacao;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Insere documentos em lotes nao ordenados: cada lote vai ao Mongo em uma unica
+ * escrita e um item com erro (chave duplicada, por exemplo) nao impede os demais.
+ * Os documentos devem chegar com _id definido, porque a escrita em lote nao devolve
+ * os ids gerados.
+ */
+@Repository
+public class ImportacaoEmLote {
+
+    public static final String DOCUMENTO_VAZIO = "Documento vazio";
+    public static final String DOCUMENTO_DUPLICADO = "Documento já cadastrado";
+    private static final int CHAVE_DUPLICADA = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final int tamanhoLote;
+
+    public ImportacaoEmLote(MongoTemplate mongoTemplate,
+                            @Value("${reservas.importacao.tamanho-lote:1000}") int tamanhoLote) {
+        this.mongoTemplate = mongoTemplate;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public <T> List<ResultadoImportacao> inserir(List<T> documentos, Class<T> tipo, Function<T, String> id) {
+        List<ResultadoImportacao> resultados = new ArrayList<>(documentos.size());
+        for (int inicio = 0; inicio < documentos.size(); inicio += tamanhoLote) {
+            inserirLote(documentos, inicio, Math.min(inicio + tamanhoLote, documentos.size()), tipo, id, resultados);
+        }
+        return resultados;
+    }
+
+    private <T> void inserirLote(List<T> documentos, int inicio, int fim, Class<T> tipo, Function<T, String> id,
+                                 List<ResultadoImportacao> resultados) {
+        BulkOperations operacoes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, tipo);
+        List<Integer> posicoes = new ArrayList<>(fim - inicio);
+        String[] erros = new String[fim - inicio];
+        for (int posicao = inicio; posicao < fim; posicao++) {
+            T documento = documentos.get(posicao);
+            if (documento == null) {
+                erros[posicao - inicio] = DOCUMENTO_VAZIO;
+            } else {
+                operacoes.insert(documento);
+                posicoes.add(posicao);
+            }
+        }
+        if (!posicoes.isEmpty()) {
+            try {
+                operacoes.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError erro : e.getErrors()) {
+                    erros[posicoes.get(erro.getIndex()) - inicio] = erro.getCode() == CHAVE_DUPLICADA ? DOCUMENTO_DUPLICADO : erro.getMessage();
+                }
+            }
+        }
+        for (int posicao = inicio; posicao < fim; posicao++) {
+            T documento = documentos.get(posicao);
+            String erro = erros[posicao - inicio];
+            resultados.add(new ResultadoImportacao(posicao, documento == null ? null : id.apply(documento), erro == null, erro));
+        }
+    }
+}
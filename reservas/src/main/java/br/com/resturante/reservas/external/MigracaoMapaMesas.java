@@ -0,0 +1,96 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Mesa;
+import br.com.resturante.reservas.entities.OcupacaoHorario;
+import br.com.resturante.reservas.entities.Reserva;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Horarios gravados antes do mapa de mesas so tem a contagem de ocupadas. Recalcula
+ * o mapa a partir das reservas do horario: cada reserva fica com a mesa que ja tinha
+ * (pelo numero) ou, se ela nao existir mais, com a primeira mesa livre.
+ * Roda depois da migracao das reservas embutidas, que marca os horarios importados.
+ */
+@Component
+@Order(2)
+public class MigracaoMapaMesas implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigracaoMapaMesas.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ReservaRepository reservaRepository;
+    private final OcupacaoHorarioRepository ocupacaoHorarioRepository;
+
+    public MigracaoMapaMesas(MongoTemplate mongoTemplate, ReservaRepository reservaRepository,
+                             OcupacaoHorarioRepository ocupacaoHorarioRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.reservaRepository = reservaRepository;
+        this.ocupacaoHorarioRepository = ocupacaoHorarioRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long reservas;
+        try (Stream<OcupacaoHorario> ocupacoes = ocupacaoHorarioRepository.buscarSemMapa()) {
+            reservas = ocupacoes.mapToInt(this::recalcular).sum();
+        }
+        if (reservas > 0) {
+            LOGGER.info("Mapa de mesas recalculado para {} reservas", reservas);
+        }
+    }
+
+    private int recalcular(OcupacaoHorario ocupacao) {
+        Restaurante restaurante = mongoTemplate.findById(ocupacao.getRestauranteId(), Restaurante.class);
+        List<Mesa> mesas = restaurante == null ? List.of() : restaurante.getMesas();
+        List<Reserva> reservas = reservaRepository.findByRestauranteIdAndDataAndHora(ocupacao.getRestauranteId(), ocupacao.getData(), ocupacao.getHora());
+
+        BitSet ocupadas = new BitSet();
+        for (Reserva reserva : reservas) {
+            if (reserva.getIndiceMesa() != null && !ocupadas.get(reserva.getIndiceMesa())) {
+                ocupadas.set(reserva.getIndiceMesa());
+            } else {
+                int indiceMesa = indiceDaMesa(reserva.getMesa(), mesas, ocupadas);
+                ocupadas.set(indiceMesa);
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(reserva.getId())),
+                        new Update().set("indiceMesa", indiceMesa).inc("versao", 1), Reserva.class);
+            }
+        }
+
+        Map<String, Long> mapa = new HashMap<>();
+        long[] palavras = ocupadas.toLongArray();
+        for (int i = 0; i < palavras.length; i++) {
+            mapa.put(String.valueOf(i), palavras[i]);
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(ocupacao.getId())),
+                new Update().set("mapa", mapa).set("ocupadas", ocupadas.cardinality()), OcupacaoHorario.class);
+        return reservas.size();
+    }
+
+    private static int indiceDaMesa(Mesa mesa, List<Mesa> mesas, BitSet ocupadas) {
+        if (mesa != null && mesa.getNumero() != null) {
+            for (int i = 0; i < mesas.size(); i++) {
+                if (!ocupadas.get(i) && Objects.equals(mesas.get(i).getNumero(), mesa.getNumero())) {
+                    return i;
+                }
+            }
+        }
+        return ocupadas.nextClearBit(0);
+    }
+}
@@ -0,0 +1,103 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Reserva;
+import br.com.resturante.reservas.entities.Restaurante;
+import br.com.resturante.reservas.usecases.identificador.GeradorIdentificador;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Move as reservas que ainda estao embutidas em documentos antigos de Restaurante
+ * para a colecao propria de Reserva. Cada restaurante e migrado e limpo
+ * isoladamente, entao uma execucao interrompida continua de onde parou.
+ */
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "reservas.migracao.reservas-embutidas", havingValue = "true", matchIfMissing = true)
+public class MigracaoReservasEmbutidas implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MigracaoReservasEmbutidas.class);
+    private static final String CAMPO_RESERVAS = "reservas";
+
+    private final MongoTemplate mongoTemplate;
+    private final GeradorIdentificador geradorIdentificador;
+    private final OcupacaoHorarioRepository ocupacaoHorarioRepository;
+
+    public MigracaoReservasEmbutidas(MongoTemplate mongoTemplate, GeradorIdentificador geradorIdentificador,
+                                     OcupacaoHorarioRepository ocupacaoHorarioRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.geradorIdentificador = geradorIdentificador;
+        this.ocupacaoHorarioRepository = ocupacaoHorarioRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String colecaoRestaurante = mongoTemplate.getCollectionName(Restaurante.class);
+        Query query = new Query(Criteria.where(CAMPO_RESERVAS).exists(true));
+        query.fields().include(CAMPO_RESERVAS);
+
+        long migradas;
+        try (Stream<Document> restaurantes = mongoTemplate.stream(query, Document.class, colecaoRestaurante)) {
+            migradas = restaurantes.mapToInt(restaurante -> migrar(restaurante, colecaoRestaurante)).sum();
+        }
+        if (migradas > 0) {
+            LOGGER.info("{} reservas embutidas migradas para a colecao de reservas", migradas);
+        }
+    }
+
+    /**
+     * Reservas embutidas sem id recebem um id novo, e os ids sao gravados de volta no
+     * array embutido antes de qualquer insercao. Assim, se a migracao parar entre as
+     * insercoes e a limpeza, a proxima execucao le os mesmos ids e as reservas ja
+     * inseridas caem na chave duplicada em vez de serem inseridas de novo.
+     */
+    private int migrar(Document restaurante, String colecaoRestaurante) {
+        Object idRestaurante = restaurante.get("_id");
+        Query porId = new Query(Criteria.where("_id").is(idRestaurante));
+        List<Document> embutidas = restaurante.getList(CAMPO_RESERVAS, Document.class, List.of());
+        List<Reserva> reservas = new ArrayList<>();
+        boolean idsGerados = false;
+        for (Document embutida : embutidas) {
+            Reserva reserva = mongoTemplate.getConverter().read(Reserva.class, embutida);
+            if (reserva.getId() == null) {
+                reserva.setId(geradorIdentificador.proximo());
+                embutida.put("_id", reserva.getId());
+                idsGerados = true;
+            }
+            reserva.setRestauranteId(idRestaurante.toString());
+            reservas.add(reserva);
+        }
+        if (idsGerados) {
+            mongoTemplate.updateFirst(porId, new Update().set(CAMPO_RESERVAS, embutidas), colecaoRestaurante);
+        }
+        reservas.forEach(this::inserir);
+        mongoTemplate.updateFirst(porId, new Update().unset(CAMPO_RESERVAS), colecaoRestaurante);
+        return reservas.size();
+    }
+
+    private void inserir(Reserva reserva) {
+        try {
+            mongoTemplate.insert(reserva);
+            if (reserva.getData() != null && reserva.getHora() != null) {
+                ocupacaoHorarioRepository.marcarParaRecalculo(reserva.getRestauranteId(), reserva.getData(), reserva.getHora());
+            }
+        } catch (DuplicateKeyException e) {
+            LOGGER.debug("Reserva {} ja migrada", reserva.getId());
+        }
+    }
+}
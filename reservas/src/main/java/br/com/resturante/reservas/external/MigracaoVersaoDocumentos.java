@@ -0,0 +1,36 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Reserva;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Documentos gravados antes do controle de versao nao tem o campo versao e seriam
+ * tratados como novos no save; inicializa o campo para que passem a ser atualizados.
+ */
+@Component
+public class MigracaoVersaoDocumentos implements ApplicationRunner {
+
+    private static final String VERSAO = "versao";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MigracaoVersaoDocumentos(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (Class<?> entidade : List.of(Restaurante.class, Reserva.class)) {
+            mongoTemplate.updateMulti(new Query(Criteria.where(VERSAO).exists(false)), new Update().set(VERSAO, 0L), entidade);
+        }
+    }
+}
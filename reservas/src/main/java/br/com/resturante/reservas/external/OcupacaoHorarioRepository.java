@@ -0,0 +1,157 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.OcupacaoHorario;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static br.com.resturante.reservas.entities.OcupacaoHorario.chave;
+
+@Repository
+public class OcupacaoHorarioRepository {
+
+    private static final String OCUPADAS = "ocupadas";
+    private static final String MAPA = "mapa";
+
+    private final MongoTemplate mongoTemplate;
+
+    public OcupacaoHorarioRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Ocupa a mesa indiceMesa do horario em uma unica operacao atomica: a atualizacao
+     * so casa enquanto ocupadas < capacidade e o bit da mesa esta livre, e entao liga o
+     * bit e incrementa ocupadas. Quando o horario ainda nao existe o upsert cria o
+     * documento ja com a mesa ocupada. Chave duplicada significa que o documento existe
+     * e nao casou (lotado ou mesa ocupada) ou que outra reserva acabou de cria-lo; nesse
+     * caso repete a atualizacao condicional, agora sem upsert.
+     */
+    public boolean ocuparMesa(String restauranteId, LocalDate data, LocalTime hora, int capacidade, int indiceMesa) {
+        if (capacidade <= 0) {
+            return false;
+        }
+        String palavra = palavra(indiceMesa);
+        Query query = new Query(Criteria.where("_id").is(chave(restauranteId, data, hora))
+                .and(OCUPADAS).lt(capacidade)
+                .and(palavra).not().bits().anySet(List.of(indiceMesa % Long.SIZE)));
+        Update update = new Update().inc(OCUPADAS, 1)
+                .setOnInsert("restauranteId", restauranteId)
+                .setOnInsert("data", data)
+                .setOnInsert("hora", hora);
+        update.bitwise(palavra).or(mascara(indiceMesa));
+        try {
+            mongoTemplate.upsert(query, update, OcupacaoHorario.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            Update incremento = new Update().inc(OCUPADAS, 1);
+            incremento.bitwise(palavra).or(mascara(indiceMesa));
+            return mongoTemplate.updateFirst(query, incremento, OcupacaoHorario.class).getModifiedCount() == 1;
+        }
+    }
+
+    /**
+     * Ocupa de uma vez as mesas indicesMesa do horario, com a mesma atualizacao
+     * condicional de ocuparMesa: so casa se cabem todas (ocupadas + quantidade <=
+     * capacidade) e nenhum dos bits esta ligado, e entao liga todos os bits de cada
+     * palavra com uma mascara combinada. Ou todas as mesas sao ocupadas ou nenhuma.
+     */
+    public boolean ocuparMesas(String restauranteId, LocalDate data, LocalTime hora, int capacidade, int[] indicesMesa) {
+        if (indicesMesa.length == 0 || indicesMesa.length > capacidade) {
+            return false;
+        }
+        Map<String, Long> mascaras = new TreeMap<>();
+        for (int indiceMesa : indicesMesa) {
+            mascaras.merge(palavra(indiceMesa), mascara(indiceMesa), (atual, bit) -> atual | bit);
+        }
+        Criteria criteria = Criteria.where("_id").is(chave(restauranteId, data, hora))
+                .and(OCUPADAS).lte(capacidade - indicesMesa.length);
+        mascaras.forEach((palavra, mascara) -> criteria.and(palavra).not().bits().anySet(posicoes(mascara)));
+        Query query = new Query(criteria);
+        Update update = new Update().inc(OCUPADAS, indicesMesa.length)
+                .setOnInsert("restauranteId", restauranteId)
+                .setOnInsert("data", data)
+                .setOnInsert("hora", hora);
+        mascaras.forEach((palavra, mascara) -> update.bitwise(palavra).or(mascara));
+        try {
+            mongoTemplate.upsert(query, update, OcupacaoHorario.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            Update incremento = new Update().inc(OCUPADAS, indicesMesa.length);
+            mascaras.forEach((palavra, mascara) -> incremento.bitwise(palavra).or(mascara));
+            return mongoTemplate.updateFirst(query, incremento, OcupacaoHorario.class).getModifiedCount() == 1;
+        }
+    }
+
+    /**
+     * Libera a mesa indiceMesa do horario. Reservas sem mesa registrada so devolvem a
+     * contagem.
+     */
+    public void liberarMesa(String restauranteId, LocalDate data, LocalTime hora, Integer indiceMesa) {
+        Criteria criteria = Criteria.where("_id").is(chave(restauranteId, data, hora)).and(OCUPADAS).gt(0);
+        Update update = new Update().inc(OCUPADAS, -1);
+        if (indiceMesa != null) {
+            criteria.and(palavra(indiceMesa)).bits().allSet(List.of(indiceMesa % Long.SIZE));
+            update.bitwise(palavra(indiceMesa)).and(~mascara(indiceMesa));
+        }
+        mongoTemplate.updateFirst(new Query(criteria), update, OcupacaoHorario.class);
+    }
+
+    /**
+     * Garante que o horario existe e descarta o mapa de mesas, para que ele seja
+     * recalculado a partir das reservas. Usado ao importar reservas que nao passaram
+     * pelo fluxo de reserva.
+     */
+    public void marcarParaRecalculo(String restauranteId, LocalDate data, LocalTime hora) {
+        Query query = new Query(Criteria.where("_id").is(chave(restauranteId, data, hora)));
+        Update update = new Update().unset(MAPA)
+                .setOnInsert("restauranteId", restauranteId)
+                .setOnInsert("data", data)
+                .setOnInsert("hora", hora)
+                .setOnInsert(OCUPADAS, 0);
+        mongoTemplate.upsert(query, update, OcupacaoHorario.class);
+    }
+
+    public void removerPorRestaurante(String restauranteId) {
+        mongoTemplate.remove(new Query(Criteria.where("restauranteId").is(restauranteId)), OcupacaoHorario.class);
+    }
+
+    public OcupacaoHorario buscar(String restauranteId, LocalDate data, LocalTime hora) {
+        return mongoTemplate.findById(chave(restauranteId, data, hora), OcupacaoHorario.class);
+    }
+
+    public Stream<OcupacaoHorario> buscarAPartirDe(LocalDate data) {
+        return mongoTemplate.stream(new Query(Criteria.where("data").gte(data).and(OCUPADAS).gt(0)), OcupacaoHorario.class);
+    }
+
+    public Stream<OcupacaoHorario> buscarSemMapa() {
+        return mongoTemplate.stream(new Query(Criteria.where(MAPA).exists(false)), OcupacaoHorario.class);
+    }
+
+    private static String palavra(int indiceMesa) {
+        return MAPA + "." + indiceMesa / Long.SIZE;
+    }
+
+    private static long mascara(int indiceMesa) {
+        return 1L << (indiceMesa % Long.SIZE);
+    }
+
+    private static List<Integer> posicoes(long mascara) {
+        List<Integer> posicoes = new ArrayList<>(Long.bitCount(mascara));
+        for (long bits = mascara; bits != 0; bits &= bits - 1) {
+            posicoes.add(Long.numberOfTrailingZeros(bits));
+        }
+        return posicoes;
+    }
+}
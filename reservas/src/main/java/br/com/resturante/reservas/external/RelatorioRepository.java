@@ -0,0 +1,90 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.dto.LinhaRelatorioOcupacao;
+import br.com.resturante.reservas.entities.Reserva;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+@Repository
+public class RelatorioRepository {
+
+    private static final Comparator<LinhaRelatorioOcupacao> ORDEM = Comparator
+            .comparing(LinhaRelatorioOcupacao::getRestauranteId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(LinhaRelatorioOcupacao::getData, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(LinhaRelatorioOcupacao::getHora, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final MongoTemplate mongoTemplate;
+
+    public RelatorioRepository(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Conta as reservas por restaurante, dia e horario dentro do Mongo ($match + $group
+     * sobre a colecao de reservas, que tem indice em restauranteId, data e hora) e traz
+     * so as linhas agregadas. restauranteIds nulo considera todos os restaurantes. Com
+     * incluirArquivadas a mesma agregacao roda sobre o arquivo e as duas listas, ja
+     * ordenadas, sao intercaladas somando as linhas do mesmo horario ($unionWith faria
+     * isso no servidor, mas exige MongoDB 4.4).
+     */
+    public List<LinhaRelatorioOcupacao> contarReservasPorHorario(Collection<String> restauranteIds, LocalDate de, LocalDate ate,
+                                                                 boolean incluirArquivadas) {
+        Criteria criteria = new Criteria();
+        if (restauranteIds != null) {
+            criteria.and("restauranteId").in(restauranteIds);
+        }
+        if (de != null || ate != null) {
+            Criteria data = criteria.and("data");
+            if (de != null) {
+                data.gte(de);
+            }
+            if (ate != null) {
+                data.lte(ate);
+            }
+        }
+        TypedAggregation<Reserva> aggregation = Aggregation.newAggregation(Reserva.class,
+                        Aggregation.match(criteria),
+                        Aggregation.group("restauranteId", "data", "hora").count().as("reservas"),
+                        Aggregation.project("restauranteId", "data", "hora", "reservas").andExclude("_id"),
+                        Aggregation.sort(Sort.by("restauranteId", "data", "hora")))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        List<LinhaRelatorioOcupacao> linhas = mongoTemplate.aggregate(aggregation, LinhaRelatorioOcupacao.class).getMappedResults();
+        if (!incluirArquivadas) {
+            return linhas;
+        }
+        return somar(linhas, mongoTemplate.aggregate(aggregation, ReservaRepositoryCustom.COLECAO_ARQUIVO,
+                LinhaRelatorioOcupacao.class).getMappedResults());
+    }
+
+    private static List<LinhaRelatorioOcupacao> somar(List<LinhaRelatorioOcupacao> linhas, List<LinhaRelatorioOcupacao> arquivadas) {
+        List<LinhaRelatorioOcupacao> soma = new ArrayList<>(linhas.size() + arquivadas.size());
+        int i = 0;
+        int j = 0;
+        while (i < linhas.size() || j < arquivadas.size()) {
+            int comparacao = i == linhas.size() ? 1
+                    : j == arquivadas.size() ? -1
+                    : ORDEM.compare(linhas.get(i), arquivadas.get(j));
+            if (comparacao < 0) {
+                soma.add(linhas.get(i++));
+            } else if (comparacao > 0) {
+                soma.add(arquivadas.get(j++));
+            } else {
+                LinhaRelatorioOcupacao linha = linhas.get(i++);
+                linha.setReservas(linha.getReservas() + arquivadas.get(j++).getReservas());
+                soma.add(linha);
+            }
+        }
+        return soma;
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Reserva;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReservaRepository extends MongoRepository<Reserva, Long>, ReservaRepositoryCustom {
+    List<Reserva> findByRestauranteId(String restauranteId);
+
+    List<Reserva> findByRestauranteIdAndDataAndHora(String restauranteId, LocalDate data, LocalTime hora);
+
+    Optional<Reserva> findByIdAndRestauranteId(Long id, String restauranteId);
+
+    Optional<Reserva> deleteByIdAndRestauranteId(Long id, String restauranteId);
+
+    long deleteByRestauranteId(String restauranteId);
+
+    List<Reserva> findByDataLessThanAndIdGreaterThanOrderByIdAsc(LocalDate data, Long id, Limit limite);
+}
@@ -0,0 +1,40 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Comentario;
+import br.com.resturante.reservas.entities.Reserva;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface ReservaRepositoryCustom {
+    String COLECAO_ARQUIVO = "reserva_arquivo";
+    String COLECAO_VERSOES = "reserva_versao";
+
+    Stream<Reserva> buscarParaExportacao(String restauranteId, LocalDate de, LocalDate ate, boolean incluirArquivadas);
+
+    List<Reserva> buscarPorPeriodo(String restauranteId, LocalDate de, LocalDate ate);
+
+    List<Reserva> buscarArquivadas(String restauranteId, LocalDate de, LocalDate ate);
+
+    void arquivar(List<Reserva> reservas);
+
+    void rearquivar(List<Reserva> reservas);
+
+    List<Reserva> removerArquivadas(List<Reserva> reservas);
+
+    void removerDoArquivo(List<Long> ids);
+
+    void removerDoArquivoPorRestaurante(String restauranteId);
+
+    Reserva definirComentario(Long id, String restauranteId, Comentario comentario);
+
+    Reserva definirCampos(Long id, String restauranteId, Long versao, Map<String, Object> campos);
+
+    long avancarVersao(String restauranteId);
+
+    long buscarVersao(String restauranteId);
+
+    List<Integer> buscarMesasReservadas(String restauranteId, LocalDate aPartirDe);
+}
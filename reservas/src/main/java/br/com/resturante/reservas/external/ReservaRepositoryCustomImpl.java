@@ -0,0 +1,254 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.entities.Comentario;
+import br.com.resturante.reservas.entities.Reserva;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class ReservaRepositoryCustomImpl implements ReservaRepositoryCustom {
+
+    private static final int LOTE_CURSOR = 1000;
+    private static final int CHAVE_DUPLICADA = 11000;
+    private static final String VERSAO = "versao";
+    private static final Comparator<Reserva> ORDEM_DATA_HORA = Comparator
+            .comparing(Reserva::getData, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Reserva::getHora, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final MongoTemplate mongoTemplate;
+
+    public ReservaRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Cursor sobre as reservas filtradas, lido em lotes do servidor conforme o stream e
+     * consumido. Com restaurante informado a busca usa o indice restaurante_data_hora.
+     * Com incluirArquivadas o arquivo e lido por um segundo cursor com o mesmo filtro e
+     * os dois sao intercalados por data e hora (ou so concatenados, sem restaurante), sem
+     * depender do $unionWith do MongoDB 4.4. O stream precisa ser fechado para liberar
+     * os cursores.
+     */
+    @Override
+    public Stream<Reserva> buscarParaExportacao(String restauranteId, LocalDate de, LocalDate ate, boolean incluirArquivadas) {
+        Query query = new Query(periodo(restauranteId, de, ate)).cursorBatchSize(LOTE_CURSOR);
+        if (restauranteId != null) {
+            query.with(Sort.by("data", "hora"));
+        }
+        Stream<Reserva> reservas = mongoTemplate.stream(query, Reserva.class);
+        if (!incluirArquivadas) {
+            return reservas;
+        }
+        Stream<Reserva> arquivadas = mongoTemplate.stream(query, Reserva.class, COLECAO_ARQUIVO);
+        return restauranteId == null ? Stream.concat(arquivadas, reservas) : intercalar(arquivadas, reservas);
+    }
+
+    private static Stream<Reserva> intercalar(Stream<Reserva> primeiras, Stream<Reserva> segundas) {
+        Iterator<Reserva> a = primeiras.iterator();
+        Iterator<Reserva> b = segundas.iterator();
+        Iterator<Reserva> intercaladas = new Iterator<>() {
+            private Reserva proximaA;
+            private Reserva proximaB;
+
+            @Override
+            public boolean hasNext() {
+                return proximaA != null || proximaB != null || a.hasNext() || b.hasNext();
+            }
+
+            @Override
+            public Reserva next() {
+                if (proximaA == null && a.hasNext()) {
+                    proximaA = a.next();
+                }
+                if (proximaB == null && b.hasNext()) {
+                    proximaB = b.next();
+                }
+                if (proximaA == null && proximaB == null) {
+                    throw new NoSuchElementException();
+                }
+                Reserva proxima;
+                if (proximaB == null || proximaA != null && ORDEM_DATA_HORA.compare(proximaA, proximaB) <= 0) {
+                    proxima = proximaA;
+                    proximaA = null;
+                } else {
+                    proxima = proximaB;
+                    proximaB = null;
+                }
+                return proxima;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(intercaladas, Spliterator.ORDERED), false)
+                .onClose(primeiras::close)
+                .onClose(segundas::close);
+    }
+
+    @Override
+    public List<Reserva> buscarPorPeriodo(String restauranteId, LocalDate de, LocalDate ate) {
+        return mongoTemplate.find(new Query(periodo(restauranteId, de, ate)).with(Sort.by("data", "hora")), Reserva.class);
+    }
+
+    @Override
+    public List<Reserva> buscarArquivadas(String restauranteId, LocalDate de, LocalDate ate) {
+        return mongoTemplate.find(new Query(periodo(restauranteId, de, ate)).with(Sort.by("data", "hora")), Reserva.class, COLECAO_ARQUIVO);
+    }
+
+    /**
+     * Copia as reservas para o arquivo em uma escrita em lote. Reservas que ja estao no
+     * arquivo (lote repetido apos uma interrupcao) sao ignoradas.
+     */
+    @Override
+    public void arquivar(List<Reserva> reservas) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reserva.class, COLECAO_ARQUIVO).insert(reservas).execute();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().anyMatch(erro -> erro.getCode() != CHAVE_DUPLICADA)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Substitui as copias arquivadas pela versao atual das reservas, em uma escrita em
+     * lote.
+     */
+    @Override
+    public void rearquivar(List<Reserva> reservas) {
+        if (reservas.isEmpty()) {
+            return;
+        }
+        BulkOperations copias = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reserva.class, COLECAO_ARQUIVO);
+        reservas.forEach(reserva -> copias.replaceOne(new Query(Criteria.where("_id").is(reserva.getId())), reserva,
+                FindAndReplaceOptions.options().upsert()));
+        copias.execute();
+    }
+
+    /**
+     * Remove da colecao de reservas as reservas ja copiadas para o arquivo, cada uma so
+     * se ainda esta na versao copiada. Uma reserva alterada depois da copia continua na
+     * colecao; essas sao relidas e devolvidas para que a copia seja refeita.
+     */
+    @Override
+    public List<Reserva> removerArquivadas(List<Reserva> reservas) {
+        if (reservas.isEmpty()) {
+            return List.of();
+        }
+        BulkOperations remocoes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reserva.class);
+        reservas.forEach(reserva -> remocoes.remove(new Query(Criteria.where("_id").is(reserva.getId()).and(VERSAO).is(reserva.getVersao()))));
+        if (remocoes.execute().getDeletedCount() == reservas.size()) {
+            return List.of();
+        }
+        List<Long> ids = reservas.stream().map(Reserva::getId).toList();
+        return mongoTemplate.find(new Query(Criteria.where("_id").in(ids)), Reserva.class);
+    }
+
+    @Override
+    public void removerDoArquivo(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), COLECAO_ARQUIVO);
+        }
+    }
+
+    @Override
+    public void removerDoArquivoPorRestaurante(String restauranteId) {
+        mongoTemplate.remove(new Query(Criteria.where("restauranteId").is(restauranteId)), COLECAO_ARQUIVO);
+    }
+
+    private static Criteria periodo(String restauranteId, LocalDate de, LocalDate ate) {
+        Criteria criteria = new Criteria();
+        if (restauranteId != null) {
+            criteria.and("restauranteId").is(restauranteId);
+        }
+        if (de != null || ate != null) {
+            Criteria data = criteria.and("data");
+            if (de != null) {
+                data.gte(de);
+            }
+            if (ate != null) {
+                data.lte(ate);
+            }
+        }
+        return criteria;
+    }
+
+    /**
+     * Grava o comentario direto no documento da reserva, sem le-la antes, e avanca a
+     * versao para que quem tem uma copia antiga perceba a mudanca. Retorna a reserva
+     * como estava antes da escrita (para saber a nota substituida) ou nulo se ela nao
+     * existe no restaurante.
+     */
+    @Override
+    public Reserva definirComentario(Long id, String restauranteId, Comentario comentario) {
+        Query query = new Query(Criteria.where("_id").is(id).and("restauranteId").is(restauranteId));
+        Update update = new Update().set("comentario", comentario).inc("versao", 1);
+        return mongoTemplate.findAndModify(query, update, Reserva.class);
+    }
+
+    /**
+     * Aplica um $set so com os campos informados e avanca a versao. Com versao
+     * informada a escrita so casa se a reserva ainda esta nela; nulo significa reserva
+     * inexistente ou alterada por outra escrita.
+     */
+    @Override
+    public Reserva definirCampos(Long id, String restauranteId, Long versao, Map<String, Object> campos) {
+        Criteria criteria = Criteria.where("_id").is(id).and("restauranteId").is(restauranteId);
+        if (versao != null) {
+            criteria.and("versao").is(versao);
+        }
+        Update update = new Update().inc("versao", 1);
+        campos.forEach(update::set);
+        return mongoTemplate.findAndModify(new Query(criteria), update, FindAndModifyOptions.options().returnNew(true), Reserva.class);
+    }
+
+    /**
+     * Avanca o contador de alteracoes das reservas do restaurante, criado na primeira
+     * escrita. Chamado depois de cada escrita nas reservas, para que a versao lida antes
+     * de uma listagem nunca seja mais nova que o conteudo listado.
+     */
+    @Override
+    public long avancarVersao(String restauranteId) {
+        Query query = new Query(Criteria.where("_id").is(restauranteId));
+        Document versao = mongoTemplate.findAndModify(query, new Update().inc(VERSAO, 1L),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, COLECAO_VERSOES);
+        return versao == null ? 0 : versao.get(VERSAO, Number.class).longValue();
+    }
+
+    /**
+     * Versao atual das reservas do restaurante; zero se nenhuma escrita foi registrada.
+     */
+    @Override
+    public long buscarVersao(String restauranteId) {
+        Query query = new Query(Criteria.where("_id").is(restauranteId));
+        query.fields().include(VERSAO);
+        Document versao = mongoTemplate.findOne(query, Document.class, COLECAO_VERSOES);
+        return versao == null ? 0 : versao.get(VERSAO, Number.class).longValue();
+    }
+
+    /**
+     * Indices de mesa com reserva do restaurante a partir da data, pelo indice
+     * restaurante_data_hora.
+     */
+    @Override
+    public List<Integer> buscarMesasReservadas(String restauranteId, LocalDate aPartirDe) {
+        Query query = new Query(Criteria.where("restauranteId").is(restauranteId).and("data").gte(aPartirDe));
+        return mongoTemplate.findDistinct(query, "indiceMesa", Reserva.class, Integer.class);
+    }
+}
@@ -1,9 +1,29 @@
 package br.com.resturante.reservas.external;
 
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
+import br.com.resturante.reservas.dto.VersaoDocumento;
 import br.com.resturante.reservas.entities.Restaurante;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface RestauranteRepository extends MongoRepository<Restaurante, String>{
+public interface RestauranteRepository extends MongoRepository<Restaurante, String>, RestauranteRepositoryCustom {
+    List<RestauranteResumo> findResumoByOrderByIdAsc(Limit limite);
+
+    List<RestauranteResumo> findResumoByIdGreaterThanOrderByIdAsc(String id, Limit limite);
+
+    List<RestauranteResumo> findResumoByTipoCozinha(String tipoCozinha);
+
+    List<RestauranteResumo> findResumoByIdIn(Collection<String> ids);
+
+    Stream<SugestaoRestaurante> findSugestaoBy();
+
+    Optional<VersaoDocumento> findVersaoById(String id);
 }
@@ -0,0 +1,15 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.entities.Restaurante;
+
+import java.util.List;
+import java.util.Map;
+
+public interface RestauranteRepositoryCustom {
+    Restaurante definirCampos(String id, Map<String, Object> campos);
+
+    void registrarNota(String id, Integer notaAnterior, Integer notaNova);
+
+    List<RestauranteProximo> buscarProximos(double latitude, double longitude, double raioMetros, int limite, String tipoCozinha);
+}
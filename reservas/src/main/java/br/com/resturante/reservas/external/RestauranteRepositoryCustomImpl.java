@@ -0,0 +1,100 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class RestauranteRepositoryCustomImpl implements RestauranteRepositoryCustom {
+
+    /**
+     * Campo em que o $geoNear grava a distancia, em quilometros pela metrica do raio.
+     */
+    private static final String DISTANCIA = "distancia";
+
+    private final MongoTemplate mongoTemplate;
+
+    public RestauranteRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Aplica um $set so com os campos informados e avanca a versao, em uma unica
+     * escrita; os demais campos do documento nao sao tocados. Retorna o restaurante ja
+     * atualizado ou nulo se ele nao existe.
+     */
+    @Override
+    public Restaurante definirCampos(String id, Map<String, Object> campos) {
+        Update update = new Update().inc("versao", 1);
+        campos.forEach(update::set);
+        return mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(true), Restaurante.class);
+    }
+
+    /**
+     * Troca, na avaliacao do restaurante, a nota anterior de um comentario pela nova com
+     * um unico $inc na quantidade, na soma e no histograma. Nota nula significa comentario
+     * sem nota. Tambem avanca a versao, para que um save com copia antiga do restaurante
+     * nao sobrescreva o resumo.
+     */
+    @Override
+    public void registrarNota(String id, Integer notaAnterior, Integer notaNova) {
+        if (Objects.equals(notaAnterior, notaNova)) {
+            return;
+        }
+        Update update = new Update().inc("versao", 1);
+        long quantidade = 0;
+        long soma = 0;
+        if (notaAnterior != null) {
+            quantidade--;
+            soma -= notaAnterior;
+            update.inc("avaliacao.notas." + notaAnterior, -1L);
+        }
+        if (notaNova != null) {
+            quantidade++;
+            soma += notaNova;
+            update.inc("avaliacao.notas." + notaNova, 1L);
+        }
+        update.inc("avaliacao.quantidade", quantidade).inc("avaliacao.soma", soma);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id)), update, Restaurante.class);
+    }
+
+    /**
+     * Restaurantes com coordenadas a ate raioMetros do ponto, do mais proximo ao mais
+     * distante, com um $geoNear sobre o indice 2dsphere de coordenadas. O filtro por tipo
+     * de cozinha vai no proprio $geoNear e usa a segunda chave do mesmo indice, entao so
+     * os limite primeiros documentos dentro do raio sao lidos. O $project seguinte deixa
+     * so os campos de RestauranteProximo, para que mesas e os demais campos do
+     * restaurante nao sejam enviados nem decodificados.
+     */
+    @Override
+    public List<RestauranteProximo> buscarProximos(double latitude, double longitude, double raioMetros, int limite, String tipoCozinha) {
+        Query filtro = new Query();
+        if (tipoCozinha != null) {
+            filtro.addCriteria(Criteria.where("tipoCozinha").is(tipoCozinha));
+        }
+        NearQuery nearQuery = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                .spherical(true)
+                .maxDistance(new Distance(raioMetros / 1000, Metrics.KILOMETERS))
+                .query(filtro)
+                .limit(limite);
+        TypedAggregation<Restaurante> agregacao = Aggregation.newAggregation(Restaurante.class,
+                Aggregation.geoNear(nearQuery, DISTANCIA),
+                Aggregation.project("nome", "localizacao", "tipoCozinha", "coordenadas", "avaliacao")
+                        .and(DISTANCIA).multiply(1000).as("distanciaMetros"));
+        return mongoTemplate.aggregate(agregacao, RestauranteProximo.class).getMappedResults();
+    }
+}
@@ -0,0 +1,83 @@
+package br.com.resturante.reservas.usecases.cache;
+
+import br.com.resturante.reservas.entities.Cliente;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Buscas de cliente que nao encontraram nada, por campo e valor, lembradas por poucos
+ * segundos para que ids inexistentes repetidos nao custem uma ida ao Mongo cada.
+ * Cadastro, atualizacao e importacao removem as ausencias que o cliente gravado
+ * deixaria de satisfazer; a expiracao curta cobre as escritas de outras instancias.
+ * Metricas com a tag cache=clientes-ausentes.
+ */
+@Component
+public class CacheClientesAusentes {
+
+    public static final String ID = "id";
+    public static final String NOME = "nome";
+    public static final String ENDERECO = "endereco";
+    public static final String TELEFONE = "telefone";
+
+    private final Cache<String, Boolean> cache;
+
+    @Autowired
+    public CacheClientesAusentes(ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${reservas.cache.clientes-ausentes.habilitado:true}") boolean habilitado,
+                                 @Value("${reservas.cache.clientes-ausentes.max-entradas:100000}") long maxEntradas,
+                                 @Value("${reservas.cache.clientes-ausentes.expiracao-segundos:10}") long expiracaoSegundos) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new), habilitado, maxEntradas, expiracaoSegundos);
+    }
+
+    public CacheClientesAusentes(MeterRegistry meterRegistry, boolean habilitado, long maxEntradas, long expiracaoSegundos) {
+        if (!habilitado) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(expiracaoSegundos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "clientes-ausentes");
+    }
+
+    public boolean ausente(String campo, String valor) {
+        return cache != null && valor != null && cache.getIfPresent(chave(campo, valor)) != null;
+    }
+
+    public void registrar(String campo, String valor) {
+        if (cache != null && valor != null) {
+            cache.put(chave(campo, valor), Boolean.TRUE);
+        }
+    }
+
+    public void invalidar(Cliente cliente) {
+        if (cache == null || cliente == null) {
+            return;
+        }
+        invalidar(ID, cliente.getId());
+        invalidar(NOME, cliente.getNome());
+        invalidar(ENDERECO, cliente.getEndereco());
+        invalidar(TELEFONE, cliente.getTelefone());
+    }
+
+    private void invalidar(String campo, String valor) {
+        if (valor != null) {
+            cache.invalidate(chave(campo, valor));
+        }
+    }
+
+    private static String chave(String campo, String valor) {
+        return campo + ':' + valor;
+    }
+}
@@ -0,0 +1,132 @@
+package br.com.resturante.reservas.usecases.cache;
+
+import br.com.resturante.reservas.entities.Restaurante;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Corpo de GET /restaurante/{id} ja serializado em JSON (e, com gzip habilitado, ja
+ * comprimido), guardado por id junto com a versao do restaurante que o gerou. Uma
+ * leitura so reaproveita os bytes se a versao pedida e a mesma, entao o restaurante
+ * nao e decodificado do Mongo nem serializado de novo enquanto nao muda. As escritas
+ * do servico invalidam a entrada; a versao cobre as escritas de outras instancias.
+ * O limite e em bytes guardados. Metricas com a tag cache=respostas-restaurantes.
+ */
+@Component
+public class CacheRespostasRestaurantes {
+
+    static final String NOME = "respostas-restaurantes";
+
+    private final ObjectMapper objectMapper;
+    private final boolean gzip;
+    private final Cache<String, RespostaSerializada> cache;
+
+    @Autowired
+    public CacheRespostasRestaurantes(ObjectMapper objectMapper,
+                                      ObjectProvider<MeterRegistry> meterRegistry,
+                                      @Value("${reservas.cache.respostas-restaurantes.habilitado:true}") boolean habilitado,
+                                      @Value("${reservas.cache.respostas-restaurantes.max-bytes:33554432}") long maxBytes,
+                                      @Value("${reservas.cache.respostas-restaurantes.expiracao-segundos:300}") long expiracaoSegundos,
+                                      @Value("${reservas.cache.respostas-restaurantes.gzip:true}") boolean gzip) {
+        this(objectMapper, meterRegistry.getIfAvailable(SimpleMeterRegistry::new), habilitado, maxBytes, expiracaoSegundos, gzip);
+    }
+
+    public CacheRespostasRestaurantes(ObjectMapper objectMapper, MeterRegistry meterRegistry, boolean habilitado,
+                                      long maxBytes, long expiracaoSegundos, boolean gzip) {
+        this.objectMapper = objectMapper;
+        this.gzip = gzip;
+        if (!habilitado) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String id, RespostaSerializada resposta) -> resposta.peso())
+                .expireAfterWrite(Duration.ofSeconds(expiracaoSegundos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME);
+    }
+
+    /**
+     * Bytes do restaurante na versao informada. Sem entrada nessa versao o restaurante e
+     * carregado e serializado, e o resultado e guardado na versao do que foi carregado.
+     * Nulo se o restaurante nao existe.
+     */
+    public RespostaSerializada buscar(String id, Long versao, Supplier<Restaurante> carregar) {
+        RespostaSerializada resposta = cache == null || id == null || versao == null ? null : cache.getIfPresent(id);
+        if (resposta != null && Objects.equals(resposta.getVersao(), versao)) {
+            return resposta;
+        }
+        Restaurante restaurante = carregar.get();
+        if (restaurante == null) {
+            return null;
+        }
+        resposta = serializar(restaurante);
+        if (cache != null && restaurante.getId() != null && restaurante.getVersao() != null) {
+            cache.put(restaurante.getId(), resposta);
+        }
+        return resposta;
+    }
+
+    public void invalidar(String id) {
+        if (cache != null && id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    private RespostaSerializada serializar(Restaurante restaurante) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(restaurante);
+            return new RespostaSerializada(restaurante.getVersao(), json, gzip ? comprimir(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] comprimir(byte[] json) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toByteArray();
+    }
+
+    @Getter
+    public static final class RespostaSerializada {
+
+        private final Long versao;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        RespostaSerializada(Long versao, byte[] json, byte[] gzip) {
+            this.versao = versao;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        int peso() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
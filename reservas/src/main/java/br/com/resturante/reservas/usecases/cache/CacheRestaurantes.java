@@ -0,0 +1,110 @@
+package br.com.resturante.reservas.usecases.cache;
+
+import br.com.resturante.reservas.entities.Avaliacao;
+import br.com.resturante.reservas.entities.Restaurante;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Restaurantes lidos por id, guardados em memoria na frente do findById. O limite e em
+ * bytes estimados de cada documento (mesas e textos incluidos), nao em quantidade, e a
+ * remocao segue a politica W-TinyLFU do Caffeine. As escritas do servico atualizam ou
+ * invalidam a entrada; a expiracao cobre as escritas feitas por outras instancias.
+ * As instancias guardadas sao compartilhadas e nao devem ser alteradas por quem as le.
+ * Metricas em cache.gets (hit/miss), cache.evictions e cache.size com a tag
+ * cache=restaurantes.
+ */
+@Component
+public class CacheRestaurantes {
+
+    static final String NOME = "restaurantes";
+
+    private static final int PESO_BASE = 256;
+    private static final int PESO_MESA = 64;
+    private static final int PESO_NOTA = 64;
+    private static final int PESO_TEXTO = 40;
+
+    private final Cache<String, Restaurante> cache;
+
+    @Autowired
+    public CacheRestaurantes(ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${reservas.cache.restaurantes.habilitado:true}") boolean habilitado,
+                             @Value("${reservas.cache.restaurantes.max-bytes:67108864}") long maxBytes,
+                             @Value("${reservas.cache.restaurantes.expiracao-segundos:60}") long expiracaoSegundos) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new), habilitado, maxBytes, expiracaoSegundos);
+    }
+
+    public CacheRestaurantes(MeterRegistry meterRegistry, boolean habilitado, long maxBytes, long expiracaoSegundos) {
+        if (!habilitado) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String id, Restaurante restaurante) -> peso(restaurante))
+                .expireAfterWrite(Duration.ofSeconds(expiracaoSegundos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME);
+    }
+
+    public Optional<Restaurante> buscar(String id, Function<String, Optional<Restaurante>> carregar) {
+        if (cache == null || id == null) {
+            return carregar.apply(id);
+        }
+        return Optional.ofNullable(cache.get(id, chave -> carregar.apply(chave).orElse(null)));
+    }
+
+    /**
+     * Versao do restaurante em cache ou, fora dele, a lida pela consulta, sem carregar o
+     * documento nem coloca-lo no cache.
+     */
+    public Long versao(String id, Function<String, Optional<Long>> consultar) {
+        Restaurante restaurante = cache == null || id == null ? null : cache.getIfPresent(id);
+        if (restaurante != null) {
+            return restaurante.getVersao();
+        }
+        return consultar.apply(id).orElse(null);
+    }
+
+    public void atualizar(Restaurante restaurante) {
+        if (cache != null && restaurante != null && restaurante.getId() != null) {
+            cache.put(restaurante.getId(), restaurante);
+        }
+    }
+
+    public void invalidar(String id) {
+        if (cache != null && id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    static int peso(Restaurante restaurante) {
+        long peso = PESO_BASE
+                + texto(restaurante.getId()) + texto(restaurante.getNome()) + texto(restaurante.getLocalizacao())
+                + texto(restaurante.getTipoCozinha()) + texto(restaurante.getHorarioFuncionamento());
+        if (restaurante.getMesas() != null) {
+            peso += (long) restaurante.getMesas().size() * PESO_MESA;
+        }
+        Avaliacao avaliacao = restaurante.getAvaliacao();
+        if (avaliacao != null && avaliacao.getNotas() != null) {
+            peso += (long) avaliacao.getNotas().size() * PESO_NOTA;
+        }
+        return (int) Math.min(peso, Integer.MAX_VALUE);
+    }
+
+    private static int texto(String texto) {
+        return texto == null ? 0 : PESO_TEXTO + texto.length() * 2;
+    }
+}
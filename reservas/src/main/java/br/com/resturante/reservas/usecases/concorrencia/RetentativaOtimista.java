@@ -0,0 +1,92 @@
+package br.com.resturante.reservas.usecases.concorrencia;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Reexecuta uma mutacao (leitura + alteracao + save) quando o save falha por conflito
+ * de versao, com espera exponencial e jitter total entre as tentativas. O contador de
+ * conflitos e so por operacao; o restaurante que esgotou as tentativas vai no log.
+ */
+@Component
+public class RetentativaOtimista {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetentativaOtimista.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int maxTentativas;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+
+    @Autowired
+    public RetentativaOtimista(ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${reservas.concorrencia.max-tentativas:5}") int maxTentativas,
+                               @Value("${reservas.concorrencia.espera-base-ms:10}") long esperaBaseMs,
+                               @Value("${reservas.concorrencia.espera-maxima-ms:200}") long esperaMaximaMs) {
+        this(meterRegistry.getIfAvailable(SimpleMeterRegistry::new), maxTentativas, esperaBaseMs, esperaMaximaMs);
+    }
+
+    public RetentativaOtimista(MeterRegistry meterRegistry, int maxTentativas, long esperaBaseMs, long esperaMaximaMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxTentativas = maxTentativas;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    public <T> T executar(String operacao, String restauranteId, Supplier<T> mutacao) {
+        int retentativas = 0;
+        try {
+            while (true) {
+                try {
+                    return mutacao.get();
+                } catch (OptimisticLockingFailureException e) {
+                    conflitos(operacao).increment();
+                    if (retentativas + 1 >= maxTentativas) {
+                        LOGGER.warn("Conflitos de versao esgotaram {} tentativas de {} no restaurante {}",
+                                maxTentativas, operacao, restauranteId);
+                        throw e;
+                    }
+                    aguardar(retentativas++);
+                }
+            }
+        } finally {
+            retentativasPorChamada(operacao).record(retentativas);
+        }
+    }
+
+    private void aguardar(int tentativa) {
+        long teto = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(tentativa, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(teto + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Retentativa interrompida", e);
+        }
+    }
+
+    private Counter conflitos(String operacao) {
+        return Counter.builder("reservas.concorrencia.conflitos")
+                .description("Conflitos de versao por operacao")
+                .tag("operacao", operacao)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary retentativasPorChamada(String operacao) {
+        return DistributionSummary.builder("reservas.concorrencia.retentativas")
+                .description("Retentativas por chamada")
+                .tag("operacao", operacao)
+                .register(meterRegistry);
+    }
+}
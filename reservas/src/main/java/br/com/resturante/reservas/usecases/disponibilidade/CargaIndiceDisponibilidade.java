@@ -0,0 +1,43 @@
+package br.com.resturante.reservas.usecases.disponibilidade;
+
+import br.com.resturante.reservas.entities.OcupacaoHorario;
+import br.com.resturante.reservas.external.OcupacaoHorarioRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * Recarrega o indice de disponibilidade a partir dos horarios de hoje em diante,
+ * depois que as migracoes de inicializacao ja rodaram e depois periodicamente, para
+ * incluir as reservas feitas em outras instancias e corrigir mesas que ficaram
+ * marcadas quando a liberacao falhou. Os dias que ja passaram sao descartados uma
+ * vez por dia.
+ */
+@Component
+public class CargaIndiceDisponibilidade {
+
+    private final OcupacaoHorarioRepository ocupacaoHorarioRepository;
+    private final IndiceDisponibilidade indiceDisponibilidade;
+
+    public CargaIndiceDisponibilidade(OcupacaoHorarioRepository ocupacaoHorarioRepository, IndiceDisponibilidade indiceDisponibilidade) {
+        this.ocupacaoHorarioRepository = ocupacaoHorarioRepository;
+        this.indiceDisponibilidade = indiceDisponibilidade;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${reservas.disponibilidade.recarga-ms:300000}", fixedDelayString = "${reservas.disponibilidade.recarga-ms:300000}")
+    public void carregar() {
+        try (Stream<OcupacaoHorario> ocupacoes = ocupacaoHorarioRepository.buscarAPartirDe(LocalDate.now())) {
+            indiceDisponibilidade.reconstruir(ocupacoes);
+        }
+    }
+
+    @Scheduled(cron = "${reservas.disponibilidade.limpeza-cron:0 5 0 * * *}")
+    public void descartarDiasPassados() {
+        indiceDisponibilidade.descartarAntesDe(LocalDate.now());
+    }
+}
@@ -0,0 +1,303 @@
+package br.com.resturante.reservas.usecases.disponibilidade;
+
+import br.com.resturante.reservas.entities.OcupacaoHorario;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Mesas ocupadas por restaurante, dia e horario, mantidas em memoria.
+ * Cada restaurante guarda os dias em um long[] ordenado e cada dia guarda os horarios
+ * (segundo do dia) em um int[] ordenado e, em um unico long[], o mapa de bits das
+ * mesas de cada horario (bit i = mesa i ocupada), sem objetos por reserva. O custo
+ * da consulta depende so de quantos dias/horarios distintos estao na agenda, nunca do
+ * historico de reservas. O indice e so uma estimativa local: reservas feitas em outras
+ * instancias nao aparecem ate o horario ser relido ou o indice recarregado, e quem
+ * decide e sempre o documento do horario no Mongo.
+ */
+@Component
+public class IndiceDisponibilidade {
+
+    private volatile Map<String, AgendaRestaurante> agendas = new ConcurrentHashMap<>();
+
+    public int mesasOcupadas(String restauranteId, LocalDate data, LocalTime hora) {
+        AgendaRestaurante agenda = agendas.get(restauranteId);
+        if (agenda == null || data == null || hora == null) {
+            return 0;
+        }
+        return agenda.ocupadas(data.toEpochDay(), hora.toSecondOfDay());
+    }
+
+    /**
+     * Menor indice de mesa livre no horario, ou -1 se as totalMesas primeiras mesas
+     * estao ocupadas.
+     */
+    public int primeiraMesaLivre(String restauranteId, LocalDate data, LocalTime hora, int totalMesas) {
+        AgendaRestaurante agenda = agendas.get(restauranteId);
+        int indice = agenda == null || data == null || hora == null ? 0 : agenda.primeiraLivre(data.toEpochDay(), hora.toSecondOfDay());
+        return indice < totalMesas ? indice : -1;
+    }
+
+    /**
+     * Os menores indices de mesa livres no horario, ate quantidade e abaixo de
+     * totalMesas. Volta com menos elementos se nao ha mesas livres suficientes.
+     */
+    public int[] mesasLivres(String restauranteId, LocalDate data, LocalTime hora, int quantidade, int totalMesas) {
+        AgendaRestaurante agenda = agendas.get(restauranteId);
+        if (agenda == null || data == null || hora == null) {
+            return primeirasMesas(quantidade, totalMesas);
+        }
+        return agenda.livres(data.toEpochDay(), hora.toSecondOfDay(), quantidade, totalMesas);
+    }
+
+    public void ocupar(String restauranteId, LocalDate data, LocalTime hora, int indiceMesa) {
+        if (restauranteId == null || data == null || hora == null) {
+            return;
+        }
+        agendas.computeIfAbsent(restauranteId, id -> new AgendaRestaurante())
+                .alterar(data.toEpochDay(), hora.toSecondOfDay(), indiceMesa, true);
+    }
+
+    public void liberar(String restauranteId, LocalDate data, LocalTime hora, Integer indiceMesa) {
+        AgendaRestaurante agenda = agendas.get(restauranteId);
+        if (agenda == null || data == null || hora == null || indiceMesa == null) {
+            return;
+        }
+        agenda.alterar(data.toEpochDay(), hora.toSecondOfDay(), indiceMesa, false);
+    }
+
+    /**
+     * Substitui o mapa do horario pelo que esta gravado no documento.
+     */
+    public void definir(OcupacaoHorario ocupacao) {
+        definir(agendas, ocupacao);
+    }
+
+    /**
+     * Esquece as mesas do horario, para quando o documento nao existe no Mongo.
+     */
+    public void limpar(String restauranteId, LocalDate data, LocalTime hora) {
+        AgendaRestaurante agenda = agendas.get(restauranteId);
+        if (agenda == null || data == null || hora == null) {
+            return;
+        }
+        agenda.definir(data.toEpochDay(), hora.toSecondOfDay(), new long[0]);
+    }
+
+    public void removerRestaurante(String restauranteId) {
+        agendas.remove(restauranteId);
+    }
+
+    /**
+     * Descarta os dias anteriores a data, que nao recebem mais reservas.
+     */
+    public void descartarAntesDe(LocalDate data) {
+        long dia = data.toEpochDay();
+        agendas.values().forEach(agenda -> agenda.descartarAntesDe(dia));
+    }
+
+    /**
+     * Monta um indice novo com as ocupacoes e so entao o publica, para que as consultas
+     * durante a recarga continuem vendo o indice anterior em vez de um indice vazio.
+     */
+    public void reconstruir(Stream<OcupacaoHorario> ocupacoes) {
+        Map<String, AgendaRestaurante> novas = new ConcurrentHashMap<>();
+        ocupacoes.forEach(ocupacao -> definir(novas, ocupacao));
+        agendas = novas;
+    }
+
+    private static int[] primeirasMesas(int quantidade, int totalMesas) {
+        int[] mesas = new int[Math.max(0, Math.min(quantidade, totalMesas))];
+        Arrays.setAll(mesas, i -> i);
+        return mesas;
+    }
+
+    private static void definir(Map<String, AgendaRestaurante> agendas, OcupacaoHorario ocupacao) {
+        if (ocupacao.getRestauranteId() == null || ocupacao.getData() == null || ocupacao.getHora() == null) {
+            return;
+        }
+        long[] mapa = new long[0];
+        for (Map.Entry<String, Long> palavra : ocupacao.getMapa().entrySet()) {
+            int indice = Integer.parseInt(palavra.getKey());
+            if (indice >= mapa.length) {
+                mapa = Arrays.copyOf(mapa, indice + 1);
+            }
+            mapa[indice] = palavra.getValue();
+        }
+        agendas.computeIfAbsent(ocupacao.getRestauranteId(), id -> new AgendaRestaurante())
+                .definir(ocupacao.getData().toEpochDay(), ocupacao.getHora().toSecondOfDay(), mapa);
+    }
+
+    private static final class AgendaRestaurante {
+        private long[] dias = new long[4];
+        private AgendaDia[] agendasDia = new AgendaDia[4];
+        private int tamanho;
+        private int palavras = 1;
+
+        synchronized int ocupadas(long dia, int segundo) {
+            int i = Arrays.binarySearch(dias, 0, tamanho, dia);
+            return i < 0 ? 0 : agendasDia[i].ocupadas(segundo);
+        }
+
+        synchronized int primeiraLivre(long dia, int segundo) {
+            int i = Arrays.binarySearch(dias, 0, tamanho, dia);
+            return i < 0 ? 0 : agendasDia[i].primeiraLivre(segundo);
+        }
+
+        synchronized int[] livres(long dia, int segundo, int quantidade, int totalMesas) {
+            int i = Arrays.binarySearch(dias, 0, tamanho, dia);
+            return i < 0 ? primeirasMesas(quantidade, totalMesas) : agendasDia[i].livres(segundo, quantidade, totalMesas);
+        }
+
+        synchronized void alterar(long dia, int segundo, int indiceMesa, boolean ocupada) {
+            ajustarPalavras(indiceMesa / Long.SIZE + 1);
+            agendaDia(dia).alterar(segundo, indiceMesa, ocupada);
+        }
+
+        synchronized void definir(long dia, int segundo, long[] mapa) {
+            ajustarPalavras(mapa.length);
+            agendaDia(dia).definir(segundo, mapa);
+        }
+
+        synchronized void descartarAntesDe(long dia) {
+            int i = Arrays.binarySearch(dias, 0, tamanho, dia);
+            int descartados = i < 0 ? -i - 1 : i;
+            if (descartados == 0) {
+                return;
+            }
+            System.arraycopy(dias, descartados, dias, 0, tamanho - descartados);
+            System.arraycopy(agendasDia, descartados, agendasDia, 0, tamanho - descartados);
+            Arrays.fill(agendasDia, tamanho - descartados, tamanho, null);
+            tamanho -= descartados;
+        }
+
+        private void ajustarPalavras(int necessarias) {
+            if (necessarias <= palavras) {
+                return;
+            }
+            for (int i = 0; i < tamanho; i++) {
+                agendasDia[i].redimensionar(palavras, necessarias);
+            }
+            palavras = necessarias;
+        }
+
+        private AgendaDia agendaDia(long dia) {
+            int i = Arrays.binarySearch(dias, 0, tamanho, dia);
+            if (i >= 0) {
+                return agendasDia[i];
+            }
+            i = -i - 1;
+            if (tamanho == dias.length) {
+                dias = Arrays.copyOf(dias, tamanho * 2);
+                agendasDia = Arrays.copyOf(agendasDia, tamanho * 2);
+            }
+            System.arraycopy(dias, i, dias, i + 1, tamanho - i);
+            System.arraycopy(agendasDia, i, agendasDia, i + 1, tamanho - i);
+            dias[i] = dia;
+            agendasDia[i] = new AgendaDia(palavras);
+            tamanho++;
+            return agendasDia[i];
+        }
+    }
+
+    /**
+     * Horarios de um dia. O mapa do horario na posicao i ocupa mapas[i * palavras]
+     * ate mapas[(i + 1) * palavras - 1].
+     */
+    private static final class AgendaDia {
+        private int[] segundos = new int[4];
+        private long[] mapas;
+        private int palavras;
+        private int tamanho;
+
+        AgendaDia(int palavras) {
+            this.palavras = palavras;
+            this.mapas = new long[segundos.length * palavras];
+        }
+
+        int ocupadas(int segundo) {
+            int i = Arrays.binarySearch(segundos, 0, tamanho, segundo);
+            if (i < 0) {
+                return 0;
+            }
+            int ocupadas = 0;
+            for (int p = i * palavras; p < (i + 1) * palavras; p++) {
+                ocupadas += Long.bitCount(mapas[p]);
+            }
+            return ocupadas;
+        }
+
+        int primeiraLivre(int segundo) {
+            int i = Arrays.binarySearch(segundos, 0, tamanho, segundo);
+            if (i < 0) {
+                return 0;
+            }
+            for (int p = 0; p < palavras; p++) {
+                long livres = ~mapas[i * palavras + p];
+                if (livres != 0) {
+                    return p * Long.SIZE + Long.numberOfTrailingZeros(livres);
+                }
+            }
+            return palavras * Long.SIZE;
+        }
+
+        int[] livres(int segundo, int quantidade, int totalMesas) {
+            int i = Arrays.binarySearch(segundos, 0, tamanho, segundo);
+            if (i < 0) {
+                return primeirasMesas(quantidade, totalMesas);
+            }
+            int[] livres = new int[Math.max(0, Math.min(quantidade, totalMesas))];
+            int encontradas = 0;
+            for (int mesa = 0; mesa < totalMesas && encontradas < livres.length; mesa++) {
+                if (mesa / Long.SIZE >= palavras || (mapas[i * palavras + mesa / Long.SIZE] & 1L << mesa) == 0) {
+                    livres[encontradas++] = mesa;
+                }
+            }
+            return encontradas == livres.length ? livres : Arrays.copyOf(livres, encontradas);
+        }
+
+        void alterar(int segundo, int indiceMesa, boolean ocupada) {
+            int p = posicao(segundo) * palavras + indiceMesa / Long.SIZE;
+            long mascara = 1L << (indiceMesa % Long.SIZE);
+            mapas[p] = ocupada ? mapas[p] | mascara : mapas[p] & ~mascara;
+        }
+
+        void definir(int segundo, long[] mapa) {
+            int i = posicao(segundo);
+            Arrays.fill(mapas, i * palavras, (i + 1) * palavras, 0L);
+            System.arraycopy(mapa, 0, mapas, i * palavras, mapa.length);
+        }
+
+        void redimensionar(int palavrasAtuais, int novasPalavras) {
+            long[] novos = new long[segundos.length * novasPalavras];
+            for (int i = 0; i < tamanho; i++) {
+                System.arraycopy(mapas, i * palavrasAtuais, novos, i * novasPalavras, palavrasAtuais);
+            }
+            mapas = novos;
+            palavras = novasPalavras;
+        }
+
+        private int posicao(int segundo) {
+            int i = Arrays.binarySearch(segundos, 0, tamanho, segundo);
+            if (i >= 0) {
+                return i;
+            }
+            i = -i - 1;
+            if (tamanho == segundos.length) {
+                segundos = Arrays.copyOf(segundos, tamanho * 2);
+                mapas = Arrays.copyOf(mapas, segundos.length * palavras);
+            }
+            System.arraycopy(segundos, i, segundos, i + 1, tamanho - i);
+            System.arraycopy(mapas, i * palavras, mapas, (i + 1) * palavras, (tamanho - i) * palavras);
+            segundos[i] = segundo;
+            Arrays.fill(mapas, i * palavras, (i + 1) * palavras, 0L);
+            tamanho++;
+            return i;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package br.com.resturante.reservas.usecases.filtro;
+
+import br.com.resturante.reservas.external.ClienteRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carrega o filtro de contatos com telefone e email de todos os clientes quando a
+ * aplicacao sobe e o recarrega periodicamente, para incluir os cadastros de outras
+ * instancias e descartar os contatos removidos.
+ */
+@Component
+public class CargaFiltroContatosClientes {
+
+    private final ClienteRepository clienteRepository;
+    private final FiltroContatosClientes filtroContatosClientes;
+
+    public CargaFiltroContatosClientes(ClienteRepository clienteRepository, FiltroContatosClientes filtroContatosClientes) {
+        this.clienteRepository = clienteRepository;
+        this.filtroContatosClientes = filtroContatosClientes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${reservas.filtro-contatos.recarga-ms:600000}", fixedDelayString = "${reservas.filtro-contatos.recarga-ms:600000}")
+    public void carregar() {
+        filtroContatosClientes.reconstruir(clienteRepository.count(), clienteRepository::findContatoBy);
+    }
+}
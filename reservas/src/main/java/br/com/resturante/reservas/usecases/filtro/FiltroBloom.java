@@ -0,0 +1,144 @@
+package br.com.resturante.reservas.usecases.filtro;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom escalavel sobre strings: nunca responde "ausente" para um valor
+ * adicionado e erra "talvez presente" com probabilidade limitada a taxaFalsosPositivos.
+ * Quando a camada atual atinge a capacidade, uma nova camada com o dobro da capacidade
+ * e metade da taxa e acrescentada, de modo que o filtro cresce sem reler os valores ja
+ * inseridos e a taxa total continua abaixo da configurada. Os bits ficam em
+ * AtomicLongArray, entao leituras e insercoes concorrentes nao precisam de bloqueio;
+ * so o acrescimo de camada e sincronizado.
+ */
+public class FiltroBloom {
+
+    private static final double RAZAO_TAXA = 0.5;
+    private static final int FATOR_CRESCIMENTO = 2;
+    private static final long SEMENTE_1 = 0x9E3779B97F4A7C15L;
+    private static final long SEMENTE_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private volatile Camada[] camadas;
+
+    public FiltroBloom(long capacidadeInicial, double taxaFalsosPositivos) {
+        validar(capacidadeInicial, taxaFalsosPositivos);
+        this.camadas = new Camada[]{new Camada(capacidadeInicial, taxaFalsosPositivos * (1 - RAZAO_TAXA))};
+    }
+
+    static void validar(long capacidadeInicial, double taxaFalsosPositivos) {
+        if (capacidadeInicial < 1) {
+            throw new IllegalArgumentException("Capacidade do filtro deve ser maior que zero");
+        }
+        if (taxaFalsosPositivos <= 0 || taxaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("Taxa de falsos positivos deve estar entre 0 e 1");
+        }
+    }
+
+    public void adicionar(String valor) {
+        long h1 = hash(valor, SEMENTE_1);
+        long h2 = hash(valor, SEMENTE_2) | 1;
+        if (contem(h1, h2)) {
+            return;
+        }
+        camadaAtual().adicionar(h1, h2);
+    }
+
+    public boolean talvezContem(String valor) {
+        return contem(hash(valor, SEMENTE_1), hash(valor, SEMENTE_2) | 1);
+    }
+
+    public int quantidadeCamadas() {
+        return camadas.length;
+    }
+
+    private boolean contem(long h1, long h2) {
+        for (Camada camada : camadas) {
+            if (camada.contem(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Camada camadaAtual() {
+        Camada[] atuais = camadas;
+        Camada ultima = atuais[atuais.length - 1];
+        if (!ultima.cheia()) {
+            return ultima;
+        }
+        synchronized (this) {
+            atuais = camadas;
+            ultima = atuais[atuais.length - 1];
+            if (!ultima.cheia()) {
+                return ultima;
+            }
+            Camada nova = new Camada(ultima.capacidade * FATOR_CRESCIMENTO, ultima.taxa * RAZAO_TAXA);
+            Camada[] novas = Arrays.copyOf(atuais, atuais.length + 1);
+            novas[atuais.length] = nova;
+            camadas = novas;
+            return nova;
+        }
+    }
+
+    /**
+     * Hash de 64 bits dos caracteres com o finalizador do MurmurHash3; duas sementes
+     * geram os dois hashes combinados (h1 + i * h2) em cada posicao da camada.
+     */
+    private static long hash(String valor, long semente) {
+        long h = semente ^ valor.length();
+        for (int i = 0; i < valor.length(); i++) {
+            h = (h ^ valor.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Camada {
+
+        private final long capacidade;
+        private final double taxa;
+        private final long quantidadeBits;
+        private final int quantidadeHashes;
+        private final AtomicLongArray bits;
+        private final AtomicLong inseridos = new AtomicLong();
+
+        Camada(long capacidade, double taxa) {
+            double ln2 = Math.log(2);
+            long bitsNecessarios = (long) Math.ceil(-capacidade * Math.log(taxa) / (ln2 * ln2));
+            long palavras = Math.min((bitsNecessarios + Long.SIZE - 1) / Long.SIZE, Integer.MAX_VALUE - 8);
+            this.capacidade = capacidade;
+            this.taxa = taxa;
+            this.quantidadeBits = palavras * Long.SIZE;
+            this.quantidadeHashes = Math.max(1, (int) Math.round((double) quantidadeBits / capacidade * ln2));
+            this.bits = new AtomicLongArray((int) palavras);
+        }
+
+        boolean cheia() {
+            return inseridos.get() >= capacidade;
+        }
+
+        boolean contem(long h1, long h2) {
+            for (int i = 0; i < quantidadeHashes; i++) {
+                long posicao = Math.floorMod(h1 + i * h2, quantidadeBits);
+                if ((bits.get((int) (posicao >>> 6)) & 1L << posicao) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void adicionar(long h1, long h2) {
+            for (int i = 0; i < quantidadeHashes; i++) {
+                long posicao = Math.floorMod(h1 + i * h2, quantidadeBits);
+                bits.getAndAccumulate((int) (posicao >>> 6), 1L << posicao, (atual, bit) -> atual | bit);
+            }
+            inseridos.incrementAndGet();
+        }
+    }
+}
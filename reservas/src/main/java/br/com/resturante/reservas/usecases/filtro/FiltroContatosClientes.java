@@ -0,0 +1,118 @@
+package br.com.resturante.reservas.usecases.filtro;
+
+import br.com.resturante.reservas.dto.ContatoCliente;
+import br.com.resturante.reservas.entities.Cliente;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Filtro de Bloom com os telefones e emails cadastrados. Telefone e comparado so pelos
+ * digitos e email sem espacos e em minusculas, o que so torna o filtro mais largo que a
+ * consulta exata. Uma resposta negativa garante que nenhum cliente tem o contato e
+ * dispensa a consulta ao Mongo; positivos seguem para a consulta indexada.
+ * Ate a primeira carga, ou desabilitado, o filtro responde "talvez" para tudo.
+ * Remocoes nao saem do filtro e so custam uma consulta ate a proxima recarga.
+ */
+@Component
+public class FiltroContatosClientes {
+
+    private static final int CHAVES_POR_CLIENTE = 2;
+
+    private final boolean habilitado;
+    private final long capacidadeInicial;
+    private final double taxaFalsosPositivos;
+
+    private volatile FiltroBloom filtro;
+    private volatile FiltroBloom emConstrucao;
+
+    public FiltroContatosClientes(@Value("${reservas.filtro-contatos.habilitado:true}") boolean habilitado,
+                                  @Value("${reservas.filtro-contatos.capacidade-inicial:100000}") long capacidadeInicial,
+                                  @Value("${reservas.filtro-contatos.taxa-falsos-positivos:0.01}") double taxaFalsosPositivos) {
+        FiltroBloom.validar(capacidadeInicial, taxaFalsosPositivos);
+        this.habilitado = habilitado;
+        this.capacidadeInicial = capacidadeInicial;
+        this.taxaFalsosPositivos = taxaFalsosPositivos;
+    }
+
+    public boolean talvezTelefone(String telefone) {
+        return telefone == null || talvez(chaveTelefone(telefone));
+    }
+
+    public boolean talvezEmail(String email) {
+        return email == null || talvez(chaveEmail(email));
+    }
+
+    /**
+     * emConstrucao e lido antes de filtro: a reconstrucao publica o filtro novo antes de
+     * limpar emConstrucao, entao quem encontra emConstrucao vazio ja ve o filtro novo em
+     * filtro, e quem o encontra preenchido grava nele.
+     */
+    public void adicionar(Cliente cliente) {
+        if (!habilitado || cliente == null) {
+            return;
+        }
+        FiltroBloom construindo = emConstrucao;
+        FiltroBloom atual = filtro;
+        adicionar(atual, cliente.getTelefone(), cliente.getEmail());
+        if (construindo != atual) {
+            adicionar(construindo, cliente.getTelefone(), cliente.getEmail());
+        }
+    }
+
+    /**
+     * Monta um filtro novo com os contatos lidos e o troca pelo atual. Os clientes
+     * gravados enquanto a leitura acontece entram nos dois filtros, para nao se perderem
+     * caso o cursor ja tenha passado por eles. Cada cliente ocupa ate duas chaves
+     * (telefone e email), e o filtro e dimensionado para isso.
+     */
+    public synchronized void reconstruir(long quantidadeClientes, Supplier<Stream<ContatoCliente>> contatos) {
+        if (!habilitado) {
+            return;
+        }
+        long capacidade = Math.max(capacidadeInicial, quantidadeClientes * CHAVES_POR_CLIENTE);
+        FiltroBloom novo = new FiltroBloom(capacidade, taxaFalsosPositivos);
+        emConstrucao = novo;
+        try (Stream<ContatoCliente> leitura = contatos.get()) {
+            leitura.forEach(contato -> adicionar(novo, contato.getTelefone(), contato.getEmail()));
+            filtro = novo;
+        } finally {
+            emConstrucao = null;
+        }
+    }
+
+    private boolean talvez(String chave) {
+        FiltroBloom atual = filtro;
+        return atual == null || atual.talvezContem(chave);
+    }
+
+    private static void adicionar(FiltroBloom destino, String telefone, String email) {
+        if (destino == null) {
+            return;
+        }
+        if (telefone != null) {
+            destino.adicionar(chaveTelefone(telefone));
+        }
+        if (email != null) {
+            destino.adicionar(chaveEmail(email));
+        }
+    }
+
+    private static String chaveTelefone(String telefone) {
+        StringBuilder chave = new StringBuilder(telefone.length() + 2).append("t:");
+        for (int i = 0; i < telefone.length(); i++) {
+            char c = telefone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                chave.append(c);
+            }
+        }
+        return chave.toString();
+    }
+
+    private static String chaveEmail(String email) {
+        return "e:" + email.strip().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,47 @@
+package br.com.resturante.reservas.usecases.identificador;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ids de 64 bits no formato do Snowflake: 41 bits de milissegundos desde EPOCA, 10 bits
+ * do no (reservas.identificador.no; o valor de application.properties serve para uma
+ * instancia so, e cada instancia a mais precisa sobrescreve-lo com um no distinto) e
+ * 12 bits de sequencia dentro do milissegundo. Os ids passam de 2^53 e vao no JSON
+ * como texto. Os ids sao crescentes por instancia e gerados sem ida ao banco nem
+ * bloqueio: o ultimo instante e sequencia ficam em um unico AtomicLong avancado por
+ * compareAndSet. Se a sequencia do milissegundo se esgota, ou o relogio volta, o id
+ * segue no instante seguinte ao ultimo usado em vez de esperar o relogio.
+ */
+@Component
+public class GeradorIdentificador {
+
+    static final long EPOCA = 1704067200000L; // 2024-01-01T00:00:00Z
+    static final int BITS_NO = 10;
+    static final int BITS_SEQUENCIA = 12;
+    static final long MAXIMO_NO = (1L << BITS_NO) - 1;
+    static final long MASCARA_SEQUENCIA = (1L << BITS_SEQUENCIA) - 1;
+
+    private final long no;
+    private final AtomicLong ultimo = new AtomicLong();
+
+    public GeradorIdentificador(@Value("${reservas.identificador.no}") long no) {
+        if (no < 0 || no > MAXIMO_NO) {
+            throw new IllegalArgumentException("No do identificador deve estar entre 0 e " + MAXIMO_NO);
+        }
+        this.no = no;
+    }
+
+    public long proximo() {
+        long anterior;
+        long atual;
+        do {
+            anterior = ultimo.get();
+            atual = Math.max((System.currentTimeMillis() - EPOCA) << BITS_SEQUENCIA, anterior + 1);
+        } while (!ultimo.compareAndSet(anterior, atual));
+        long instante = atual >>> BITS_SEQUENCIA;
+        return instante << (BITS_NO + BITS_SEQUENCIA) | no << BITS_SEQUENCIA | atual & MASCARA_SEQUENCIA;
+    }
+}
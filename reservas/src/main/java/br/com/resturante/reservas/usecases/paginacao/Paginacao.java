@@ -0,0 +1,72 @@
+package br.com.resturante.reservas.usecases.paginacao;
+
+import br.com.resturante.reservas.dto.Pagina;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Paginacao por cursor sobre o _id: cada pagina busca os documentos com _id maior que
+ * o ultimo da pagina anterior, uma faixa do indice de _id com custo igual em qualquer
+ * profundidade. O cursor e o ultimo _id em base64 url, opaco para o cliente.
+ */
+@Component
+public class Paginacao {
+
+    public static final String CURSOR_INVALIDO = "Cursor de paginação inválido";
+    public static final String TAMANHO_INVALIDO = "Tamanho de página inválido";
+
+    private final int tamanhoPadrao;
+    private final int tamanhoMaximo;
+
+    public Paginacao(@Value("${reservas.paginacao.tamanho-padrao:20}") int tamanhoPadrao,
+                     @Value("${reservas.paginacao.tamanho-maximo:100}") int tamanhoMaximo) {
+        this.tamanhoPadrao = tamanhoPadrao;
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    public int tamanho(Integer solicitado) {
+        if (solicitado == null) {
+            return tamanhoPadrao;
+        }
+        if (solicitado < 1) {
+            throw new IllegalArgumentException(TAMANHO_INVALIDO);
+        }
+        return Math.min(solicitado, tamanhoMaximo);
+    }
+
+    /**
+     * Busca um item a mais que o tamanho da pagina so para saber se ha proxima pagina.
+     */
+    public Limit limite(int tamanho) {
+        return Limit.of(tamanho + 1);
+    }
+
+    /**
+     * _id a partir do qual a pagina comeca, ou nulo para a primeira pagina.
+     */
+    public String depoisDe(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(CURSOR_INVALIDO, e);
+        }
+    }
+
+    public <T> Pagina<T> pagina(List<T> encontrados, int tamanho, Function<T, String> id) {
+        if (encontrados.size() <= tamanho) {
+            return new Pagina<>(encontrados, null);
+        }
+        List<T> itens = encontrados.subList(0, tamanho);
+        String ultimoId = id.apply(itens.get(tamanho - 1));
+        return new Pagina<>(itens, Base64.getUrlEncoder().withoutPadding().encodeToString(ultimoId.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.resturante.reservas.usecases.service;
+
+/**
+ * Cliente inexistente. Sem stack trace: e um resultado esperado da busca, respondido
+ * com 404, e montar a pilha custava mais que a propria consulta.
+ */
+public class ClienteNaoEncontradoException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public ClienteNaoEncontradoException(String mensagem) {
+        super(mensagem, null, false, false);
+    }
+}
@@ -1,13 +1,18 @@
 package br.com.resturante.reservas.usecases.service;
 
+import br.com.resturante.reservas.dto.Pagina;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
 import br.com.resturante.reservas.entities.Cliente;
 
 import java.util.List;
 
 public interface ClienteService {
     Cliente cadastrarCliente(Cliente cliente);
+    List<ResultadoImportacao> importarClientes(List<Cliente> clientes);
     Cliente atualizarCliente(String id, Cliente cliente);
     Cliente listarClientePorId(String id) throws Exception;
+
+    Long buscarHashCliente(String id);
     void deletarCliente(String id);
 
     Cliente buscarClientePorNome(String nome) throws Exception;
@@ -16,5 +21,7 @@ public interface ClienteService {
 
     Cliente buscarClientePorTelefone(String telefone) throws Exception;
 
-    List<Cliente> getAllClientes();
+    boolean existeCliente(String telefone, String email);
+
+    Pagina<Cliente> listarClientes(String cursor, Integer tamanho);
 }
@@ -0,0 +1,10 @@
+package br.com.resturante.reservas.usecases.service;
+
+import br.com.resturante.reservas.dto.LinhaRelatorioOcupacao;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RelatorioService {
+    List<LinhaRelatorioOcupacao> relatorioOcupacao(LocalDate de, LocalDate ate, String tipoCozinha);
+}
@@ -1,32 +1,61 @@
 package br.com.resturante.reservas.usecases.service;
 
+import br.com.resturante.reservas.dto.AtualizacaoReserva;
+import br.com.resturante.reservas.dto.AtualizacaoRestaurante;
+import br.com.resturante.reservas.dto.Pagina;
 import br.com.resturante.reservas.dto.ReservaDto;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
+import br.com.resturante.reservas.dto.ResultadoReserva;
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
 import br.com.resturante.reservas.entities.Reserva;
 import br.com.resturante.reservas.entities.Restaurante;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface RestauranteService {
     Restaurante cadastrarRestaurante(Restaurante restaurante);
+
+    List<ResultadoImportacao> importarRestaurantes(List<Restaurante> restaurantes);
     Restaurante buscarRestaurantePorId(String id);
+
+    Long buscarVersaoRestaurante(String id);
     Restaurante atualizarRestaurante(String id, Restaurante restaurante);
-    List<Restaurante> listarRestaurantes();
+
+    Restaurante atualizarRestauranteParcial(String id, AtualizacaoRestaurante atualizacao);
+    Pagina<RestauranteResumo> listarRestaurantes(String cursor, Integer tamanho);
     void deletarRestaurante(String id);
 
     Restaurante buscarRestaurantePorNome(String nome) throws Exception;
 
+    List<SugestaoRestaurante> sugerirRestaurantes(String prefixo, Integer limite);
+
     Restaurante buscarRestaurantePorEndereco(String endereco) throws Exception;
 
+    List<RestauranteProximo> buscarRestaurantesProximos(double latitude, double longitude, Double raioMetros, Integer limite, String tipoCozinha);
+
     Restaurante buscarRestaurantePorTipoCozinha(String tipo) throws Exception;
 
     Reserva reservarRestaurante(ReservaDto reservaDto);
 
+    List<ResultadoReserva> reservarEmLote(List<ReservaDto> reservasDto);
 
-    Reserva adicionarComentario(Restaurante restaurante, String idReserva, String textoComentario);
 
-    List<Reserva> listarReservasPorRestaurante(String id);
+    Reserva adicionarComentario(String idRestaurante, String idReserva, String textoComentario, Integer nota);
+
+    List<Reserva> listarReservasPorRestaurante(String id, LocalDate de, LocalDate ate);
+
+    long buscarVersaoReservas(String idRestaurante);
 
     Reserva atualizarReserva(String idRestaurante, Reserva reserva);
 
+    Reserva atualizarReservaParcial(String idRestaurante, String idReserva, AtualizacaoReserva atualizacao);
+
     void deletarReserva(String idRestaurante, String idReserva);
+
+    void exportarReservas(String idRestaurante, LocalDate de, LocalDate ate, OutputStream saida) throws IOException;
 }
@@ -1,33 +1,113 @@
 package br.com.resturante.reservas.usecases.service.impl;
 
+import br.com.resturante.reservas.dto.HashCliente;
+import br.com.resturante.reservas.dto.Pagina;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
 import br.com.resturante.reservas.entities.Cliente;
 import br.com.resturante.reservas.external.ClienteRepository;
+import br.com.resturante.reservas.external.ImportacaoEmLote;
+import br.com.resturante.reservas.usecases.cache.CacheClientesAusentes;
+import br.com.resturante.reservas.usecases.filtro.FiltroContatosClientes;
+import br.com.resturante.reservas.usecases.paginacao.Paginacao;
+import br.com.resturante.reservas.usecases.service.ClienteNaoEncontradoException;
 import br.com.resturante.reservas.usecases.service.ClienteService;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class ClienteServiceImpl implements ClienteService {
     public static final String CLIENTE_NAO_ENCONTRADO = "Cliente não encontrado";
+    public static final String CONTATO_NAO_INFORMADO = "Informe telefone ou email";
     @Autowired
     ClienteRepository clienteRepository;
 
+    @Autowired
+    Paginacao paginacao;
+
+    @Autowired
+    ImportacaoEmLote importacaoEmLote;
+
+    @Autowired
+    CacheClientesAusentes cacheClientesAusentes;
+
+    @Autowired
+    FiltroContatosClientes filtroContatosClientes;
+
     @Override
     public Cliente cadastrarCliente(Cliente cliente) {
-        return clienteRepository.save(cliente);
+        cliente.setHash(hashConteudo(cliente));
+        Cliente clienteSalvo = clienteRepository.save(cliente);
+        cacheClientesAusentes.invalidar(clienteSalvo);
+        filtroContatosClientes.adicionar(clienteSalvo);
+        return clienteSalvo;
 
     }
 
+    @Override
+    public List<ResultadoImportacao> importarClientes(List<Cliente> clientes) {
+        for (Cliente cliente : clientes) {
+            if (cliente != null) {
+                if (cliente.getId() == null) {
+                    cliente.setId(new ObjectId().toHexString());
+                }
+                cliente.setHash(hashConteudo(cliente));
+            }
+        }
+        List<ResultadoImportacao> resultados = importacaoEmLote.inserir(clientes, Cliente.class, Cliente::getId);
+        for (ResultadoImportacao resultado : resultados) {
+            if (resultado.isImportado()) {
+                cacheClientesAusentes.invalidar(clientes.get(resultado.getPosicao()));
+                filtroContatosClientes.adicionar(clientes.get(resultado.getPosicao()));
+            }
+        }
+        return resultados;
+    }
+
     @Override
     public Cliente atualizarCliente(String id, Cliente cliente) {
-        return clienteRepository.save(cliente);
+        cliente.setHash(hashConteudo(cliente));
+        Cliente clienteSalvo = clienteRepository.save(cliente);
+        cacheClientesAusentes.invalidar(clienteSalvo);
+        filtroContatosClientes.adicionar(clienteSalvo);
+        return clienteSalvo;
     }
 
     @Override
     public Cliente listarClientePorId(String id) throws Exception {
-        return clienteRepository.findById(id).orElseThrow(() -> new Exception(CLIENTE_NAO_ENCONTRADO));
+        return buscar(CacheClientesAusentes.ID, id, clienteRepository::findById);
+    }
+
+    /**
+     * Hash para o ETag de GET /cliente/{id}, lido sem o restante do documento. Nulo para
+     * clientes inexistentes ou gravados antes do hash existir.
+     */
+    @Override
+    public Long buscarHashCliente(String id) {
+        return clienteRepository.findHashById(id).map(HashCliente::getHash).orElse(null);
+    }
+
+    /**
+     * Hash de 64 bits (FNV-1a) dos campos do cliente, gravado junto com ele a cada
+     * escrita. Conteudo igual gera o mesmo hash, entao serve de ETag forte.
+     */
+    public static long hashConteudo(Cliente cliente) {
+        long hash = 0xCBF29CE484222325L;
+        for (String campo : new String[]{cliente.getId(), cliente.getNome(), cliente.getEmail(), cliente.getTelefone(), cliente.getEndereco()}) {
+            if (campo == null) {
+                hash = (hash ^ 0xFFFF) * 0x100000001B3L;
+                continue;
+            }
+            for (int i = 0; i < campo.length(); i++) {
+                hash = (hash ^ campo.charAt(i)) * 0x100000001B3L;
+            }
+            hash = (hash ^ 0xFFFE) * 0x100000001B3L;
+        }
+        return hash;
     }
 
     @Override
@@ -38,21 +118,62 @@ public class ClienteServiceImpl implements ClienteService {
 
     @Override
     public Cliente buscarClientePorNome(String nome) throws Exception {
-        return clienteRepository.findByNome(nome).orElseThrow(() -> new Exception(CLIENTE_NAO_ENCONTRADO));
+        return buscar(CacheClientesAusentes.NOME, nome, clienteRepository::findByNome);
     }
 
     @Override
     public Cliente buscarClientePorEndereco(String endereco) throws Exception {
-        return clienteRepository.findByEndereco(endereco).orElseThrow(() -> new Exception(CLIENTE_NAO_ENCONTRADO));
+        return buscar(CacheClientesAusentes.ENDERECO, endereco, clienteRepository::findByEndereco);
     }
 
     @Override
     public Cliente buscarClientePorTelefone(String telefone) throws Exception {
-        return clienteRepository.findByTelefone(telefone).orElseThrow(() -> new Exception(CLIENTE_NAO_ENCONTRADO));
+        if (!filtroContatosClientes.talvezTelefone(telefone)) {
+            throw new ClienteNaoEncontradoException(CLIENTE_NAO_ENCONTRADO);
+        }
+        return buscar(CacheClientesAusentes.TELEFONE, telefone, clienteRepository::findByTelefone);
+    }
+
+    /**
+     * O filtro de contatos responde os telefones e emails que certamente nao existem; so
+     * os que talvez existam chegam as consultas indexadas.
+     */
+    @Override
+    public boolean existeCliente(String telefone, String email) {
+        boolean semTelefone = telefone == null || telefone.isBlank();
+        boolean semEmail = email == null || email.isBlank();
+        if (semTelefone && semEmail) {
+            throw new IllegalArgumentException(CONTATO_NAO_INFORMADO);
+        }
+        if (!semTelefone && filtroContatosClientes.talvezTelefone(telefone) && clienteRepository.existsByTelefone(telefone)) {
+            return true;
+        }
+        return !semEmail && filtroContatosClientes.talvezEmail(email) && clienteRepository.existsByEmail(email);
+    }
+
+    /**
+     * Uma ausencia recente do mesmo valor responde sem consultar o Mongo; uma consulta
+     * sem resultado fica registrada por alguns segundos.
+     */
+    private Cliente buscar(String campo, String valor, Function<String, Optional<Cliente>> consulta) throws ClienteNaoEncontradoException {
+        if (cacheClientesAusentes.ausente(campo, valor)) {
+            throw new ClienteNaoEncontradoException(CLIENTE_NAO_ENCONTRADO);
+        }
+        Optional<Cliente> cliente = consulta.apply(valor);
+        if (cliente.isEmpty()) {
+            cacheClientesAusentes.registrar(campo, valor);
+            throw new ClienteNaoEncontradoException(CLIENTE_NAO_ENCONTRADO);
+        }
+        return cliente.get();
     }
 
     @Override
-    public List<Cliente> getAllClientes() {
-        return clienteRepository.findAll();
+    public Pagina<Cliente> listarClientes(String cursor, Integer tamanho) {
+        int tamanhoPagina = paginacao.tamanho(tamanho);
+        String depoisDe = paginacao.depoisDe(cursor);
+        List<Cliente> encontrados = depoisDe == null
+                ? clienteRepository.findAllByOrderByIdAsc(paginacao.limite(tamanhoPagina))
+                : clienteRepository.findByIdGreaterThanOrderByIdAsc(depoisDe, paginacao.limite(tamanhoPagina));
+        return paginacao.pagina(encontrados, tamanhoPagina, Cliente::getId);
     }
 }
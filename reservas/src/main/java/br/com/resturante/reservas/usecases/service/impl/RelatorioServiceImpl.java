@@ -0,0 +1,69 @@
+package br.com.resturante.reservas.usecases.service.impl;
+
+import br.com.resturante.reservas.dto.LinhaRelatorioOcupacao;
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.external.ArquivamentoReservas;
+import br.com.resturante.reservas.external.RelatorioRepository;
+import br.com.resturante.reservas.external.RestauranteRepository;
+import br.com.resturante.reservas.usecases.service.RelatorioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class RelatorioServiceImpl implements RelatorioService {
+
+    @Autowired
+    private RelatorioRepository relatorioRepository;
+
+    @Autowired
+    private RestauranteRepository restauranteRepository;
+
+    @Autowired
+    private ArquivamentoReservas arquivamentoReservas;
+
+    /**
+     * A contagem vem agregada do Mongo; aqui so entram nome e quantidade de mesas dos
+     * restaurantes que aparecem no relatorio, lidos por projecao, para calcular a ocupacao.
+     * Com tipoCozinha os restaurantes do tipo sao buscados antes e restringem a agregacao.
+     * O arquivo so entra na agregacao quando o periodo comeca antes do horizonte.
+     */
+    @Override
+    public List<LinhaRelatorioOcupacao> relatorioOcupacao(LocalDate de, LocalDate ate, String tipoCozinha) {
+        Map<String, RestauranteResumo> restaurantes = new HashMap<>();
+        List<LinhaRelatorioOcupacao> linhas;
+        LocalDate limite = arquivamentoReservas.limite();
+        boolean incluirArquivadas = de == null || limite == null || de.isBefore(limite);
+        if (tipoCozinha != null) {
+            restauranteRepository.findResumoByTipoCozinha(tipoCozinha).forEach(resumo -> restaurantes.put(resumo.getId(), resumo));
+            if (restaurantes.isEmpty()) {
+                return List.of();
+            }
+            linhas = relatorioRepository.contarReservasPorHorario(restaurantes.keySet(), de, ate, incluirArquivadas);
+        } else {
+            linhas = relatorioRepository.contarReservasPorHorario(null, de, ate, incluirArquivadas);
+            Set<String> ids = new LinkedHashSet<>();
+            linhas.forEach(linha -> ids.add(linha.getRestauranteId()));
+            restauranteRepository.findResumoByIdIn(ids).forEach(resumo -> restaurantes.put(resumo.getId(), resumo));
+        }
+
+        for (LinhaRelatorioOcupacao linha : linhas) {
+            RestauranteResumo restaurante = restaurantes.get(linha.getRestauranteId());
+            if (restaurante == null) {
+                continue;
+            }
+            linha.setNomeRestaurante(restaurante.getNome());
+            linha.setQtdMesas(restaurante.getQtdMesas());
+            if (restaurante.getQtdMesas() != null && restaurante.getQtdMesas() > 0) {
+                linha.setPercentualOcupacao(linha.getReservas() * 100.0 / restaurante.getQtdMesas());
+            }
+        }
+        return linhas;
+    }
+}
@@ -1,31 +1,112 @@
 package br.com.resturante.reservas.usecases.service.impl;
 
+import br.com.resturante.reservas.dto.AtualizacaoReserva;
+import br.com.resturante.reservas.dto.AtualizacaoRestaurante;
+import br.com.resturante.reservas.dto.Pagina;
 import br.com.resturante.reservas.dto.ReservaDto;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
+import br.com.resturante.reservas.dto.ResultadoReserva;
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
+import br.com.resturante.reservas.dto.VersaoDocumento;
 import br.com.resturante.reservas.entities.*;
+import br.com.resturante.reservas.external.ArquivamentoReservas;
 import br.com.resturante.reservas.external.ClienteRepository;
+import br.com.resturante.reservas.external.ImportacaoEmLote;
+import br.com.resturante.reservas.external.OcupacaoHorarioRepository;
+import br.com.resturante.reservas.external.ReservaRepository;
 import br.com.resturante.reservas.external.RestauranteRepository;
+import br.com.resturante.reservas.usecases.cache.CacheRespostasRestaurantes;
+import br.com.resturante.reservas.usecases.cache.CacheRestaurantes;
+import br.com.resturante.reservas.usecases.concorrencia.RetentativaOtimista;
+import br.com.resturante.reservas.usecases.disponibilidade.IndiceDisponibilidade;
+import br.com.resturante.reservas.usecases.identificador.GeradorIdentificador;
+import br.com.resturante.reservas.usecases.paginacao.Paginacao;
 import br.com.resturante.reservas.usecases.service.RestauranteService;
+import br.com.resturante.reservas.usecases.sugestao.IndiceSugestoes;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @Service
 public class RestauranteServiceImpl implements RestauranteService{
 
     public static final String RESTAURANTE_NAO_ENCONTRADO = "Restaurante não encontrado";
+    public static final String RESERVA_NAO_ENCONTRADA = "Reserva não encontrada";
+    public static final String RESTAURANTE_SEM_MESAS = "Restaurante sem mesas disponíveis";
+    public static final String MESA_NAO_ENCONTRADA = "Mesa não encontrada";
+    public static final String RESERVA_ALTERADA = "Reserva alterada por outra operação";
+    public static final String RESTAURANTE_ALTERADO = "Restaurante alterado por outra operação";
+    public static final String MESAS_RESERVADAS = "Mesas com reservas futuras não podem ser removidas ou trocadas de posição";
+    public static final String NOTA_INVALIDA = "Nota deve estar entre 1 e 5";
+    public static final String COORDENADAS_INVALIDAS = "Coordenadas inválidas";
+    public static final String RAIO_INVALIDO = "Raio de busca inválido";
+    public static final String DATA_HORA_OBRIGATORIAS = "Data e hora da reserva são obrigatórias";
+    private static final double RAIO_PADRAO_METROS = 5_000;
+    private static final double RAIO_MAXIMO_METROS = 50_000;
+    private static final int LINHAS_POR_ENVIO = 500;
     @Autowired
     private RestauranteRepository restauranteRepository;
 
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private GeradorIdentificador geradorIdentificador;
+
+    @Autowired
+    private OcupacaoHorarioRepository ocupacaoHorarioRepository;
+
+    @Autowired
+    private IndiceDisponibilidade indiceDisponibilidade;
+
+    @Autowired
+    private RetentativaOtimista retentativaOtimista;
+
+    @Autowired
+    private Paginacao paginacao;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private ClienteRepository clienteRepository;
 
+    @Autowired
+    private ImportacaoEmLote importacaoEmLote;
+
+    @Autowired
+    private ArquivamentoReservas arquivamentoReservas;
+
+    @Autowired
+    private IndiceSugestoes indiceSugestoes;
+
+    @Autowired
+    private CacheRestaurantes cacheRestaurantes;
+
+    @Autowired
+    private CacheRespostasRestaurantes cacheRespostasRestaurantes;
+
     private final MongoTemplate mongoTemplate;
 
     public RestauranteServiceImpl( MongoTemplate mongoTemplate) {
@@ -34,32 +115,213 @@ public class RestauranteServiceImpl implements RestauranteService{
 
     @Override
     public Restaurante cadastrarRestaurante(Restaurante restaurante) {
-        return restauranteRepository.save(restaurante);
+        restaurante.setAvaliacao(new Avaliacao());
+        contarMesas(restaurante);
+        identificarMesas(restaurante.getMesas());
+        Restaurante restauranteSalvo = restauranteRepository.save(restaurante);
+        atualizarCaches(restauranteSalvo);
+        indiceSugestoes.atualizar(restauranteSalvo);
+        return restauranteSalvo;
+    }
+
+    @Override
+    public List<ResultadoImportacao> importarRestaurantes(List<Restaurante> restaurantes) {
+        for (Restaurante restaurante : restaurantes) {
+            if (restaurante != null) {
+                if (restaurante.getId() == null) {
+                    restaurante.setId(new ObjectId().toHexString());
+                }
+                restaurante.setVersao(0L);
+                restaurante.setAvaliacao(new Avaliacao());
+                contarMesas(restaurante);
+                identificarMesas(restaurante.getMesas());
+            }
+        }
+        List<ResultadoImportacao> resultados = importacaoEmLote.inserir(restaurantes, Restaurante.class, Restaurante::getId);
+        List<Restaurante> importados = new ArrayList<>();
+        for (ResultadoImportacao resultado : resultados) {
+            if (resultado.isImportado()) {
+                importados.add(restaurantes.get(resultado.getPosicao()));
+                invalidarCaches(resultado.getId());
+            }
+        }
+        indiceSugestoes.atualizar(importados);
+        return resultados;
     }
 
     @Override
     public Restaurante buscarRestaurantePorId(String id) {
-        return restauranteRepository.findById(id).orElseThrow(() -> new RuntimeException(RESTAURANTE_NAO_ENCONTRADO));
+        return cacheRestaurantes.buscar(id, restauranteRepository::findById).orElseThrow(() -> new RuntimeException(RESTAURANTE_NAO_ENCONTRADO));
+    }
+
+    /**
+     * Versao para o ETag de GET /restaurante/{id}: a do restaurante em cache ou so o
+     * campo versao lido do Mongo, sem trazer o documento.
+     */
+    @Override
+    public Long buscarVersaoRestaurante(String id) {
+        return cacheRestaurantes.versao(id, chave -> restauranteRepository.findVersaoById(chave).map(VersaoDocumento::getVersao));
     }
 
+    /**
+     * Substitui o restaurante. Com versao informada a escrita so vale sobre essa versao e
+     * um conflito sobe para quem chamou, sem reaplicar o corpo por cima do que outra
+     * escrita gravou; sem versao o corpo e regravado sobre a versao mais recente.
+     */
     @Override
     public Restaurante atualizarRestaurante(String id, Restaurante restaurante) {
+        Long versaoInformada = restaurante.getVersao();
+        if (versaoInformada == null) {
+            return retentativaOtimista.executar("atualizarRestaurante", id,
+                    () -> substituirRestaurante(id, restaurante, buscarRestaurantePorId(id)));
+        }
         Restaurante restauranteSalvo = buscarRestaurantePorId(id);
+        if (!versaoInformada.equals(restauranteSalvo.getVersao())) {
+            invalidarCaches(id);
+            restauranteSalvo = buscarRestaurantePorId(id);
+        }
+        if (!versaoInformada.equals(restauranteSalvo.getVersao())) {
+            throw new OptimisticLockingFailureException(RESTAURANTE_ALTERADO);
+        }
+        return substituirRestaurante(id, restaurante, restauranteSalvo);
+    }
+
+    private Restaurante substituirRestaurante(String id, Restaurante restaurante, Restaurante restauranteSalvo) {
         restaurante.setId(restauranteSalvo.getId());
-        return restauranteRepository.save(restaurante);
+        restaurante.setVersao(restauranteSalvo.getVersao());
+        restaurante.setAvaliacao(restauranteSalvo.getAvaliacao());
+        contarMesas(restaurante);
+        validarMesasReservadas(id, restauranteSalvo.getMesas(), restaurante.getMesas());
+        identificarMesas(restaurante.getMesas());
+        Restaurante restauranteAtualizado;
+        try {
+            restauranteAtualizado = restauranteRepository.save(restaurante);
+        } catch (OptimisticLockingFailureException e) {
+            invalidarCaches(id);
+            throw e;
+        }
+        atualizarCaches(restauranteAtualizado);
+        indiceSugestoes.atualizar(restauranteAtualizado);
+        return restauranteAtualizado;
+    }
+
+    @Override
+    public Restaurante atualizarRestauranteParcial(String id, AtualizacaoRestaurante atualizacao) {
+        Map<String, Object> campos = new LinkedHashMap<>();
+        adicionarSeInformado(campos, "nome", atualizacao.getNome());
+        adicionarSeInformado(campos, "localizacao", atualizacao.getLocalizacao());
+        adicionarSeInformado(campos, "coordenadas", atualizacao.getCoordenadas());
+        adicionarSeInformado(campos, "tipoCozinha", atualizacao.getTipoCozinha());
+        adicionarSeInformado(campos, "horarioFuncionamento", atualizacao.getHorarioFuncionamento());
+        adicionarSeInformado(campos, "capacidade", atualizacao.getCapacidade());
+        if (atualizacao.getMesas() != null) {
+            Restaurante restauranteSalvo = buscarRestaurantePorId(id);
+            validarMesasReservadas(id, restauranteSalvo.getMesas(), atualizacao.getMesas());
+            identificarMesas(atualizacao.getMesas());
+            campos.put("mesas", atualizacao.getMesas());
+            campos.put("qtdMesas", atualizacao.getMesas().size());
+        }
+        if (campos.isEmpty()) {
+            return buscarRestaurantePorId(id);
+        }
+        Restaurante restaurante = restauranteRepository.definirCampos(id, campos);
+        if (restaurante == null) {
+            throw new RuntimeException(RESTAURANTE_NAO_ENCONTRADO);
+        }
+        atualizarCaches(restaurante);
+        indiceSugestoes.atualizar(restaurante);
+        return restaurante;
+    }
+
+    /**
+     * Guarda o restaurante gravado e descarta o JSON serializado da versao anterior.
+     */
+    private void atualizarCaches(Restaurante restaurante) {
+        cacheRestaurantes.atualizar(restaurante);
+        if (restaurante != null) {
+            cacheRespostasRestaurantes.invalidar(restaurante.getId());
+        }
+    }
+
+    private void invalidarCaches(String id) {
+        cacheRestaurantes.invalidar(id);
+        cacheRespostasRestaurantes.invalidar(id);
+    }
+
+    /**
+     * qtdMesas acompanha a lista de mesas, que e quem define as mesas reservaveis.
+     */
+    private static void contarMesas(Restaurante restaurante) {
+        if (restaurante.getMesas() == null) {
+            restaurante.setMesas(new ArrayList<>());
+        }
+        restaurante.setQtdMesas(restaurante.getMesas().size());
+    }
+
+    /**
+     * Reservas e mapas de ocupacao guardam a mesa pelo indice na lista, entao uma nova
+     * lista so e aceita se cada indice com reserva a partir de hoje continua existindo
+     * e com a mesma mesa (mesmo id).
+     */
+    private void validarMesasReservadas(String id, List<Mesa> mesasAtuais, List<Mesa> novasMesas) {
+        for (Integer indiceMesa : reservaRepository.buscarMesasReservadas(id, LocalDate.now())) {
+            if (indiceMesa == null) {
+                continue;
+            }
+            Mesa atual = mesasAtuais != null && indiceMesa < mesasAtuais.size() ? mesasAtuais.get(indiceMesa) : null;
+            Mesa nova = indiceMesa < novasMesas.size() ? novasMesas.get(indiceMesa) : null;
+            if (nova == null || atual != null && !Objects.equals(atual.getId(), nova.getId())) {
+                throw new IllegalStateException(MESAS_RESERVADAS);
+            }
+        }
+    }
+
+    private void identificarMesas(List<Mesa> mesas) {
+        if (mesas == null) {
+            return;
+        }
+        for (Mesa mesa : mesas) {
+            if (mesa != null && mesa.getId() == null) {
+                mesa.setId(geradorIdentificador.proximo());
+            }
+        }
+    }
+
+    private void identificarComentario(Comentario comentario) {
+        if (comentario != null && comentario.getId() == null) {
+            comentario.setId(geradorIdentificador.proximo());
+        }
+    }
+
+    private static void adicionarSeInformado(Map<String, Object> campos, String campo, Object valor) {
+        if (valor != null) {
+            campos.put(campo, valor);
+        }
     }
 
 
 
     @Override
-    public List<Restaurante> listarRestaurantes() {
-        return restauranteRepository.findAll();
+    public Pagina<RestauranteResumo> listarRestaurantes(String cursor, Integer tamanho) {
+        int tamanhoPagina = paginacao.tamanho(tamanho);
+        String depoisDe = paginacao.depoisDe(cursor);
+        List<RestauranteResumo> encontrados = depoisDe == null
+                ? restauranteRepository.findResumoByOrderByIdAsc(paginacao.limite(tamanhoPagina))
+                : restauranteRepository.findResumoByIdGreaterThanOrderByIdAsc(depoisDe, paginacao.limite(tamanhoPagina));
+        return paginacao.pagina(encontrados, tamanhoPagina, RestauranteResumo::getId);
     }
 
     @Override
     public void deletarRestaurante(String id) {
         Restaurante restaurante = buscarRestaurantePorId(id);
         restauranteRepository.delete(restaurante);
+        invalidarCaches(id);
+        reservaRepository.deleteByRestauranteId(id);
+        reservaRepository.removerDoArquivoPorRestaurante(id);
+        reservaRepository.avancarVersao(id);
+        ocupacaoHorarioRepository.removerPorRestaurante(id);
+        indiceDisponibilidade.removerRestaurante(id);
+        indiceSugestoes.remover(id);
     }
 
     @Override
@@ -73,6 +335,14 @@ public class RestauranteServiceImpl implements RestauranteService{
         return restaurante;
     }
 
+    /**
+     * Servido pelo indice em memoria; nenhuma consulta ao Mongo por tecla digitada.
+     */
+    @Override
+    public List<SugestaoRestaurante> sugerirRestaurantes(String prefixo, Integer limite) {
+        return indiceSugestoes.sugerir(prefixo, limite);
+    }
+
     @Override
     public Restaurante buscarRestaurantePorEndereco(String endereco) throws Exception {
         Query query = new Query();
@@ -84,6 +354,23 @@ public class RestauranteServiceImpl implements RestauranteService{
         return restaurante;
     }
 
+    /**
+     * Busca pelas coordenadas do restaurante, nao pelo texto de localizacao. O raio e
+     * limitado a RAIO_MAXIMO_METROS e a quantidade segue os limites da paginacao.
+     */
+    @Override
+    public List<RestauranteProximo> buscarRestaurantesProximos(double latitude, double longitude, Double raioMetros, Integer limite, String tipoCozinha) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException(COORDENADAS_INVALIDAS);
+        }
+        double raio = raioMetros == null ? RAIO_PADRAO_METROS : raioMetros;
+        if (!(raio > 0)) {
+            throw new IllegalArgumentException(RAIO_INVALIDO);
+        }
+        return restauranteRepository.buscarProximos(latitude, longitude, Math.min(raio, RAIO_MAXIMO_METROS),
+                paginacao.tamanho(limite), tipoCozinha);
+    }
+
     @Override
     public Restaurante buscarRestaurantePorTipoCozinha(String tipo) throws Exception {
         Query query = new Query();
@@ -97,65 +384,440 @@ public class RestauranteServiceImpl implements RestauranteService{
 
     @Override
     public Reserva reservarRestaurante(ReservaDto reservaDto) {
-        Restaurante restaurante = restauranteRepository.findById(reservaDto.getIdRestaurante()).orElseThrow(() -> new RuntimeException(RESTAURANTE_NAO_ENCONTRADO));
-        if(isIndisponivel(restaurante, reservaDto.getData(), reservaDto.getHora())){
-            throw new RuntimeException("Restaurante sem mesas disponíveis");
+        if (reservaDto.getData() == null || reservaDto.getHora() == null) {
+            throw new IllegalArgumentException(DATA_HORA_OBRIGATORIAS);
+        }
+        Restaurante restaurante = buscarRestaurantePorId(reservaDto.getIdRestaurante());
+        if (restaurante.getMesas().isEmpty()) {
+            throw new RuntimeException(MESA_NAO_ENCONTRADA);
+        }
+        int indiceMesa = ocuparMesaLivre(restaurante, reservaDto.getData(), reservaDto.getHora());
+        if (indiceMesa < 0) {
+            throw new RuntimeException(RESTAURANTE_SEM_MESAS);
+        }
+
+        Reserva reserva = novaReserva(restaurante, reservaDto, indiceMesa);
+        reserva.setId(geradorIdentificador.proximo());
+        Reserva reservaSalva;
+        try {
+            reservaSalva = reservaRepository.insert(reserva);
+        } catch (RuntimeException e) {
+            liberarHorario(restaurante.getId(), reserva.getData(), reserva.getHora(), indiceMesa);
+            throw e;
+        }
+        reservaRepository.avancarVersao(restaurante.getId());
+        return reservaSalva;
+    }
+
+    /**
+     * Reserva varios horarios de uma vez. Os pedidos sao agrupados por restaurante: os
+     * restaurantes sao lidos em uma unica consulta e, para cada um, as mesas de cada
+     * horario sao ocupadas em uma unica atualizacao e as reservas sao gravadas em uma
+     * escrita em lote. Um pedido que falha nao impede os demais; o resultado segue a
+     * ordem dos pedidos. Um pedido sem data ou hora rejeita o lote inteiro antes de
+     * qualquer horario ser ocupado.
+     */
+    @Override
+    public List<ResultadoReserva> reservarEmLote(List<ReservaDto> reservasDto) {
+        for (ReservaDto reservaDto : reservasDto) {
+            if (reservaDto != null && (reservaDto.getData() == null || reservaDto.getHora() == null)) {
+                throw new IllegalArgumentException(DATA_HORA_OBRIGATORIAS);
+            }
+        }
+        ResultadoReserva[] resultados = new ResultadoReserva[reservasDto.size()];
+        Map<String, List<Integer>> posicoesPorRestaurante = new LinkedHashMap<>();
+        for (int posicao = 0; posicao < reservasDto.size(); posicao++) {
+            ReservaDto reservaDto = reservasDto.get(posicao);
+            if (reservaDto == null || reservaDto.getIdRestaurante() == null) {
+                resultados[posicao] = new ResultadoReserva(posicao, null, false, RESTAURANTE_NAO_ENCONTRADO);
+            } else {
+                posicoesPorRestaurante.computeIfAbsent(reservaDto.getIdRestaurante(), id -> new ArrayList<>()).add(posicao);
+            }
+        }
+        Map<String, Restaurante> restaurantes = new HashMap<>();
+        restauranteRepository.findAllById(posicoesPorRestaurante.keySet()).forEach(restaurante -> restaurantes.put(restaurante.getId(), restaurante));
+        posicoesPorRestaurante.forEach((idRestaurante, posicoes) ->
+                reservarGrupo(restaurantes.get(idRestaurante), posicoes, reservasDto, resultados));
+        return Arrays.asList(resultados);
+    }
+
+    private void reservarGrupo(Restaurante restaurante, List<Integer> posicoes, List<ReservaDto> reservasDto,
+                               ResultadoReserva[] resultados) {
+        if (restaurante == null || restaurante.getMesas().isEmpty()) {
+            String erro = restaurante == null ? RESTAURANTE_NAO_ENCONTRADO : MESA_NAO_ENCONTRADA;
+            for (int posicao : posicoes) {
+                resultados[posicao] = new ResultadoReserva(posicao, null, false, erro);
+            }
+            return;
+        }
+        Map<String, List<Integer>> posicoesPorHorario = new LinkedHashMap<>();
+        for (int posicao : posicoes) {
+            ReservaDto reservaDto = reservasDto.get(posicao);
+            posicoesPorHorario.computeIfAbsent(OcupacaoHorario.chave(restaurante.getId(), reservaDto.getData(), reservaDto.getHora()),
+                    chave -> new ArrayList<>()).add(posicao);
+        }
+        Map<Integer, Integer> mesaPorPosicao = new HashMap<>();
+        for (List<Integer> posicoesHorario : posicoesPorHorario.values()) {
+            ReservaDto reservaDto = reservasDto.get(posicoesHorario.get(0));
+            int[] indicesMesa = ocuparMesasLivres(restaurante, reservaDto.getData(), reservaDto.getHora(), posicoesHorario.size());
+            for (int i = 0; i < indicesMesa.length; i++) {
+                mesaPorPosicao.put(posicoesHorario.get(i), indicesMesa[i]);
+            }
         }
 
+        List<Integer> posicoesReservadas = new ArrayList<>();
+        List<Reserva> reservas = new ArrayList<>();
+        for (int posicao : posicoes) {
+            int indiceMesa = mesaPorPosicao.get(posicao);
+            if (indiceMesa < 0) {
+                resultados[posicao] = new ResultadoReserva(posicao, null, false, RESTAURANTE_SEM_MESAS);
+            } else {
+                reservas.add(novaReserva(restaurante, reservasDto.get(posicao), indiceMesa));
+                posicoesReservadas.add(posicao);
+            }
+        }
+        if (reservas.isEmpty()) {
+            return;
+        }
+
+        for (Reserva reserva : reservas) {
+            reserva.setId(geradorIdentificador.proximo());
+            reserva.setVersao(0L);
+        }
+        List<ResultadoImportacao> gravadas = importacaoEmLote.inserir(reservas, Reserva.class, reserva -> String.valueOf(reserva.getId()));
+        if (gravadas.stream().anyMatch(ResultadoImportacao::isImportado)) {
+            reservaRepository.avancarVersao(restaurante.getId());
+        }
+        for (int i = 0; i < reservas.size(); i++) {
+            Reserva reserva = reservas.get(i);
+            int posicao = posicoesReservadas.get(i);
+            if (gravadas.get(i).isImportado()) {
+                resultados[posicao] = new ResultadoReserva(posicao, reserva, true, null);
+            } else {
+                liberarHorario(reserva.getRestauranteId(), reserva.getData(), reserva.getHora(), reserva.getIndiceMesa());
+                resultados[posicao] = new ResultadoReserva(posicao, null, false, gravadas.get(i).getErro());
+            }
+        }
+    }
+
+    private static Reserva novaReserva(Restaurante restaurante, ReservaDto reservaDto, int indiceMesa) {
         Reserva reserva = new Reserva();
         Cliente cliente = new Cliente();//clienteRepository.findById(reservaDto.getClienteId()).orElseThrow(() -> new RuntimeException("Cliente não encontrado"));
 
+        reserva.setRestauranteId(restaurante.getId());
         reserva.setCliente(cliente);
         reserva.setData(reservaDto.getData());
         reserva.setHora(reservaDto.getHora());
-        Mesa mesa = restaurante.getMesas().stream().filter(Mesa::isDisponivel).findFirst().orElseThrow(() -> new RuntimeException("Mesa não encontrada"));
-        reserva.setMesa(mesa);
-        mesa.setDisponivel(false);
-        restaurante.getReservas().add(reserva);
-        restauranteRepository.save(restaurante);
+        reserva.setMesa(restaurante.getMesas().get(indiceMesa));
+        reserva.setIndiceMesa(indiceMesa);
         return reserva;
     }
 
+    /**
+     * Ocupa uma mesa para cada um dos quantidade pedidos do mesmo horario. As mesas
+     * livres pelo indice em memoria sao ocupadas juntas em uma unica atualizacao
+     * condicional; so se o indice nao tem mesas suficientes ou se outra reserva ocupou
+     * alguma delas cada pedido volta a ocupar sua mesa sozinho por ocuparMesaLivre.
+     * Retorna o indice da mesa de cada pedido, ou -1 para os que nao couberam.
+     */
+    private int[] ocuparMesasLivres(Restaurante restaurante, LocalDate data, LocalTime hora, int quantidade) {
+        if (quantidade > 1 && !isIndisponivel(restaurante, data, hora)) {
+            int totalMesas = restaurante.getMesas().size();
+            int[] livres = indiceDisponibilidade.mesasLivres(restaurante.getId(), data, hora, quantidade, totalMesas);
+            if (livres.length == quantidade
+                    && ocupacaoHorarioRepository.ocuparMesas(restaurante.getId(), data, hora, totalMesas, livres)) {
+                for (int indiceMesa : livres) {
+                    indiceDisponibilidade.ocupar(restaurante.getId(), data, hora, indiceMesa);
+                }
+                return livres;
+            }
+        }
+        int[] indicesMesa = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            indicesMesa[i] = ocuparMesaLivre(restaurante, data, hora);
+        }
+        return indicesMesa;
+    }
+
+    /**
+     * Escolhe a primeira mesa livre pelo indice em memoria e tenta ocupa-la no Mongo,
+     * que continua sendo quem decide. Se outra reserva chegou antes, o mapa do horario
+     * e relido e a proxima mesa livre e tentada; cada falha corresponde a uma mesa
+     * ocupada, entao sao no maximo mesas.size() tentativas. O indice pode estar
+     * desatualizado (reservas de outras instancias, liberacoes que falharam), entao
+     * antes de recusar o horario como lotado ele e relido do Mongo uma vez.
+     * Retorna o indice da mesa ocupada ou -1 se o horario esta lotado.
+     */
+    private int ocuparMesaLivre(Restaurante restaurante, LocalDate data, LocalTime hora) {
+        int totalMesas = restaurante.getMesas().size();
+        boolean relido = false;
+        int falhas = 0;
+        while (falhas <= totalMesas) {
+            int indiceMesa = isIndisponivel(restaurante, data, hora)
+                    ? -1
+                    : indiceDisponibilidade.primeiraMesaLivre(restaurante.getId(), data, hora, totalMesas);
+            if (indiceMesa < 0) {
+                if (relido) {
+                    return -1;
+                }
+                relerHorario(restaurante.getId(), data, hora);
+                relido = true;
+                continue;
+            }
+            if (ocupacaoHorarioRepository.ocuparMesa(restaurante.getId(), data, hora, totalMesas, indiceMesa)) {
+                indiceDisponibilidade.ocupar(restaurante.getId(), data, hora, indiceMesa);
+                return indiceMesa;
+            }
+            relerHorario(restaurante.getId(), data, hora);
+            relido = true;
+            falhas++;
+        }
+        return -1;
+    }
+
+    private void relerHorario(String idRestaurante, LocalDate data, LocalTime hora) {
+        OcupacaoHorario ocupacao = ocupacaoHorarioRepository.buscar(idRestaurante, data, hora);
+        if (ocupacao == null) {
+            indiceDisponibilidade.limpar(idRestaurante, data, hora);
+        } else {
+            indiceDisponibilidade.definir(ocupacao);
+        }
+    }
+
+    private void liberarHorario(String idRestaurante, LocalDate data, LocalTime hora, Integer indiceMesa) {
+        ocupacaoHorarioRepository.liberarMesa(idRestaurante, data, hora, indiceMesa);
+        indiceDisponibilidade.liberar(idRestaurante, data, hora, indiceMesa);
+    }
+
     @Override
-    public Reserva adicionarComentario(Restaurante restaurante, String idReserva, String textoComentario) {
-        Reserva reserva = restaurante.getReservas().stream().filter(r -> r.getId().equals(Long.valueOf(idReserva))).findFirst().orElseThrow(() -> new RuntimeException(RESTAURANTE_NAO_ENCONTRADO));
+    public Reserva adicionarComentario(String idRestaurante, String idReserva, String textoComentario, Integer nota) {
+        validarNota(nota);
         Comentario comentario = new Comentario();
         comentario.setTexto(textoComentario);
+        comentario.setNota(nota);
+        identificarComentario(comentario);
+        Reserva reserva = reservaRepository.definirComentario(Long.valueOf(idReserva), idRestaurante, comentario);
+        if (reserva == null) {
+            throw new RuntimeException(RESERVA_NAO_ENCONTRADA);
+        }
+        reservaRepository.avancarVersao(idRestaurante);
+        restauranteRepository.registrarNota(idRestaurante, nota(reserva.getComentario()), nota);
+        invalidarCaches(idRestaurante);
         reserva.setComentario(comentario);
-        restauranteRepository.save(restaurante);
+        reserva.setVersao(reserva.getVersao() == null ? null : reserva.getVersao() + 1);
         return reserva;
     }
 
+    private static void validarNota(Integer nota) {
+        if (nota != null && (nota < Avaliacao.NOTA_MINIMA || nota > Avaliacao.NOTA_MAXIMA)) {
+            throw new IllegalArgumentException(NOTA_INVALIDA);
+        }
+    }
+
+    private static Integer nota(Comentario comentario) {
+        return comentario == null ? null : comentario.getNota();
+    }
+
+    /**
+     * Reservas anteriores ao horizonte de arquivamento podem estar no arquivo, que so e
+     * consultado quando o periodo pedido comeca antes dele; sem periodo, todas as reservas
+     * sao trazidas.
+     */
     @Override
-    public List<Reserva> listarReservasPorRestaurante(String id) {
-        Restaurante restaurante = buscarRestaurantePorId(id);
-        return restaurante.getReservas();
+    public List<Reserva> listarReservasPorRestaurante(String id, LocalDate de, LocalDate ate) {
+        if (!restauranteRepository.existsById(id)) {
+            throw new RuntimeException(RESTAURANTE_NAO_ENCONTRADO);
+        }
+        List<Reserva> reservas = new ArrayList<>();
+        if (incluirArquivadas(de)) {
+            reservas.addAll(reservaRepository.buscarArquivadas(id, de, ate));
+        }
+        reservas.addAll(de == null && ate == null ? reservaRepository.findByRestauranteId(id) : reservaRepository.buscarPorPeriodo(id, de, ate));
+        return reservas;
     }
 
+    private boolean incluirArquivadas(LocalDate de) {
+        LocalDate limite = arquivamentoReservas.limite();
+        return de == null || limite == null || de.isBefore(limite);
+    }
+
+    /**
+     * Versao para o ETag de GET /restaurante/reservas/{id}. Toda escrita nas reservas do
+     * restaurante avanca a versao depois de gravar; lida antes da listagem, ela nunca e
+     * mais nova que as reservas listadas. Restaurante inexistente nao tem versao (sem
+     * isso um id desconhecido teria versao 0 e responderia 304 a If-None-Match "0").
+     */
+    @Override
+    public long buscarVersaoReservas(String idRestaurante) {
+        if (buscarVersaoRestaurante(idRestaurante) == null) {
+            throw new RuntimeException(RESTAURANTE_NAO_ENCONTRADO);
+        }
+        return reservaRepository.buscarVersao(idRestaurante);
+    }
+
+    /**
+     * A nota do comentario substituido sai da avaliacao do restaurante e a nova entra,
+     * depois que a gravacao versionada confirmou qual comentario estava salvo.
+     */
     @Override
     public Reserva atualizarReserva(String idRestaurante, Reserva reserva) {
-        Restaurante restaurante = buscarRestaurantePorId(idRestaurante);
-        Reserva reservaSalva = restaurante.getReservas().stream().filter(r -> r.getId().equals(reserva.getId())).findFirst().orElseThrow(() -> new RuntimeException("Reserva não encontrada"));
-        reservaSalva.setComentario(reserva.getComentario());
-        reservaSalva.setCliente(reserva.getCliente());
-        reservaSalva.setData(reserva.getData());
-        reservaSalva.setHora(reserva.getHora());
-        reservaSalva.setMesa(reserva.getMesa());
-        return reservaSalva;
+        validarNota(nota(reserva.getComentario()));
+        Reserva atualizada = retentativaOtimista.executar("atualizarReserva", idRestaurante, () -> {
+            Reserva reservaSalva = reservaRepository.findByIdAndRestauranteId(reserva.getId(), idRestaurante).orElseThrow(() -> new RuntimeException(RESERVA_NAO_ENCONTRADA));
+            LocalDate dataAnterior = reservaSalva.getData();
+            LocalTime horaAnterior = reservaSalva.getHora();
+            Integer indiceMesaAnterior = reservaSalva.getIndiceMesa();
+            Comentario comentarioAnterior = reservaSalva.getComentario();
+            boolean mudouHorario = !Objects.equals(dataAnterior, reserva.getData()) || !Objects.equals(horaAnterior, reserva.getHora());
+            if (mudouHorario) {
+                Restaurante restaurante = buscarRestaurantePorId(idRestaurante);
+                int indiceMesa = ocuparMesaLivre(restaurante, reserva.getData(), reserva.getHora());
+                if (indiceMesa < 0) {
+                    throw new RuntimeException(RESTAURANTE_SEM_MESAS);
+                }
+                reservaSalva.setMesa(restaurante.getMesas().get(indiceMesa));
+                reservaSalva.setIndiceMesa(indiceMesa);
+            }
+            identificarComentario(reserva.getComentario());
+            reservaSalva.setComentario(reserva.getComentario());
+            reservaSalva.setCliente(reserva.getCliente());
+            reservaSalva.setData(reserva.getData());
+            reservaSalva.setHora(reserva.getHora());
+            Reserva reservaAtualizada;
+            try {
+                reservaAtualizada = reservaRepository.save(reservaSalva);
+            } catch (RuntimeException e) {
+                if (mudouHorario) {
+                    liberarHorario(idRestaurante, reserva.getData(), reserva.getHora(), reservaSalva.getIndiceMesa());
+                }
+                throw e;
+            }
+            if (mudouHorario) {
+                liberarHorario(idRestaurante, dataAnterior, horaAnterior, indiceMesaAnterior);
+            }
+            registrarNotaAlterada(idRestaurante, comentarioAnterior, reserva.getComentario());
+            return reservaAtualizada;
+        });
+        reservaRepository.avancarVersao(idRestaurante);
+        return atualizada;
     }
 
+    /**
+     * Sem troca de horario nem de comentario e uma unica escrita, sem leitura previa.
+     * Nos demais casos a reserva e lida e a escrita so casa se ela ainda esta na versao
+     * lida, o que garante que a nota substituida na avaliacao e a que estava gravada; na
+     * troca de horario a nova mesa e ocupada antes. Se outra escrita chegou antes, a mesa
+     * nova e devolvida e a operacao e refeita.
+     */
+    @Override
+    public Reserva atualizarReservaParcial(String idRestaurante, String idReserva, AtualizacaoReserva atualizacao) {
+        Reserva atualizada = aplicarAtualizacaoParcial(idRestaurante, idReserva, atualizacao);
+        reservaRepository.avancarVersao(idRestaurante);
+        return atualizada;
+    }
+
+    private Reserva aplicarAtualizacaoParcial(String idRestaurante, String idReserva, AtualizacaoReserva atualizacao) {
+        Long id = Long.valueOf(idReserva);
+        Map<String, Object> campos = new LinkedHashMap<>();
+        adicionarSeInformado(campos, "cliente", atualizacao.getCliente());
+        adicionarSeInformado(campos, "comentario", atualizacao.getComentario());
+        if (atualizacao.getComentario() != null) {
+            validarNota(atualizacao.getComentario().getNota());
+            identificarComentario(atualizacao.getComentario());
+        }
+        if (atualizacao.getData() == null && atualizacao.getHora() == null && atualizacao.getComentario() == null) {
+            Reserva reserva = reservaRepository.definirCampos(id, idRestaurante, null, campos);
+            if (reserva == null) {
+                throw new RuntimeException(RESERVA_NAO_ENCONTRADA);
+            }
+            return reserva;
+        }
+        return retentativaOtimista.executar("atualizarReservaParcial", idRestaurante, () -> {
+            Reserva reservaSalva = reservaRepository.findByIdAndRestauranteId(id, idRestaurante).orElseThrow(() -> new RuntimeException(RESERVA_NAO_ENCONTRADA));
+            LocalDate data = atualizacao.getData() != null ? atualizacao.getData() : reservaSalva.getData();
+            LocalTime hora = atualizacao.getHora() != null ? atualizacao.getHora() : reservaSalva.getHora();
+            if (Objects.equals(data, reservaSalva.getData()) && Objects.equals(hora, reservaSalva.getHora())) {
+                Reserva reservaAtualizada = reservaRepository.definirCampos(id, idRestaurante, reservaSalva.getVersao(), campos);
+                if (reservaAtualizada == null) {
+                    throw new OptimisticLockingFailureException(RESERVA_ALTERADA);
+                }
+                registrarNotaAlterada(idRestaurante, reservaSalva, atualizacao);
+                return reservaAtualizada;
+            }
+            Restaurante restaurante = buscarRestaurantePorId(idRestaurante);
+            int indiceMesa = ocuparMesaLivre(restaurante, data, hora);
+            if (indiceMesa < 0) {
+                throw new RuntimeException(RESTAURANTE_SEM_MESAS);
+            }
+            Map<String, Object> camposComHorario = new LinkedHashMap<>(campos);
+            camposComHorario.put("data", data);
+            camposComHorario.put("hora", hora);
+            camposComHorario.put("mesa", restaurante.getMesas().get(indiceMesa));
+            camposComHorario.put("indiceMesa", indiceMesa);
+            Reserva reservaAtualizada;
+            try {
+                reservaAtualizada = reservaRepository.definirCampos(id, idRestaurante, reservaSalva.getVersao(), camposComHorario);
+            } catch (RuntimeException e) {
+                liberarHorario(idRestaurante, data, hora, indiceMesa);
+                throw e;
+            }
+            if (reservaAtualizada == null) {
+                liberarHorario(idRestaurante, data, hora, indiceMesa);
+                throw new OptimisticLockingFailureException(RESERVA_ALTERADA);
+            }
+            liberarHorario(idRestaurante, reservaSalva.getData(), reservaSalva.getHora(), reservaSalva.getIndiceMesa());
+            registrarNotaAlterada(idRestaurante, reservaSalva, atualizacao);
+            return reservaAtualizada;
+        });
+    }
+
+    private void registrarNotaAlterada(String idRestaurante, Reserva reservaSalva, AtualizacaoReserva atualizacao) {
+        if (atualizacao.getComentario() != null) {
+            registrarNotaAlterada(idRestaurante, reservaSalva.getComentario(), atualizacao.getComentario());
+        }
+    }
+
+    private void registrarNotaAlterada(String idRestaurante, Comentario anterior, Comentario novo) {
+        if (!Objects.equals(nota(anterior), nota(novo))) {
+            restauranteRepository.registrarNota(idRestaurante, nota(anterior), nota(novo));
+            invalidarCaches(idRestaurante);
+        }
+    }
+
+    /**
+     * Remove a reserva com um unico findAndDelete por id e restaurante, que devolve o
+     * documento removido; com ele a mesa do horario e liberada sem outra leitura.
+     */
     @Override
     public void deletarReserva(String idRestaurante, String idReserva) {
-        Restaurante restaurante = buscarRestaurantePorId(idRestaurante);
-        Reserva reserva = restaurante.getReservas().stream().filter(r -> r.getId().equals(Long.valueOf(idReserva))).findFirst().orElseThrow(() -> new RuntimeException("Reserva não encontrada"));
-        List<Reserva> reservas = new ArrayList<>(restaurante.getReservas());
-        reservas.remove(reserva);
-        restaurante.setReservas(reservas);
-        restauranteRepository.save(restaurante);
+        Reserva reserva = reservaRepository.deleteByIdAndRestauranteId(Long.valueOf(idReserva), idRestaurante).orElseThrow(() -> new RuntimeException(RESERVA_NAO_ENCONTRADA));
+        reservaRepository.avancarVersao(idRestaurante);
+        liberarHorario(idRestaurante, reserva.getData(), reserva.getHora(), reserva.getIndiceMesa());
     }
 
 
+    /**
+     * Escreve as reservas como JSON delimitado por linha direto na saida, lendo do
+     * cursor do Mongo uma reserva por vez e enviando a cada LINHAS_POR_ENVIO linhas;
+     * a memoria usada nao depende de quantas reservas existem.
+     */
+    @Override
+    public void exportarReservas(String idRestaurante, LocalDate de, LocalDate ate, OutputStream saida) throws IOException {
+        try (Stream<Reserva> reservas = reservaRepository.buscarParaExportacao(idRestaurante, de, ate, incluirArquivadas(de));
+             JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+            gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            int linhas = 0;
+            for (Reserva reserva : (Iterable<Reserva>) reservas::iterator) {
+                gerador.writeObject(reserva);
+                gerador.writeRaw('\n');
+                if (++linhas % LINHAS_POR_ENVIO == 0) {
+                    gerador.flush();
+                }
+            }
+        }
+    }
+
     public Boolean isIndisponivel(Restaurante restaurante, LocalDate data, LocalTime hora){
-        return (restaurante.getReservas().size() >= restaurante.getQtdMesas()) && restaurante.getReservas().stream().anyMatch(r -> r.getData().equals(data) && r.getHora().equals(hora));
+        return indiceDisponibilidade.mesasOcupadas(restaurante.getId(), data, hora) >= restaurante.getMesas().size();
     }
 }
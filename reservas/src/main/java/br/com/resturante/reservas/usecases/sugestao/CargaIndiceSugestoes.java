@@ -0,0 +1,35 @@
+package br.com.resturante.reservas.usecases.sugestao;
+
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
+import br.com.resturante.reservas.external.RestauranteRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Carrega o indice de sugestoes com nome e tipo de cozinha de todos os restaurantes
+ * quando a aplicacao sobe e o recarrega periodicamente, para incluir as alteracoes
+ * feitas por outras instancias.
+ */
+@Component
+public class CargaIndiceSugestoes {
+
+    private final RestauranteRepository restauranteRepository;
+    private final IndiceSugestoes indiceSugestoes;
+
+    public CargaIndiceSugestoes(RestauranteRepository restauranteRepository, IndiceSugestoes indiceSugestoes) {
+        this.restauranteRepository = restauranteRepository;
+        this.indiceSugestoes = indiceSugestoes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${reservas.sugestoes.recarga-ms:300000}", fixedDelayString = "${reservas.sugestoes.recarga-ms:300000}")
+    public void carregar() {
+        try (Stream<SugestaoRestaurante> sugestoes = restauranteRepository.findSugestaoBy()) {
+            indiceSugestoes.reconstruir(sugestoes);
+        }
+    }
+}
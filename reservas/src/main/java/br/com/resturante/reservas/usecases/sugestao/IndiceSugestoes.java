@@ -0,0 +1,289 @@
+package br.com.resturante.reservas.usecases.sugestao;
+
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Busca por prefixo em nome e tipo de cozinha, em memoria. As chaves sao o texto sem
+ * acentos, em minusculas e com pontuacao trocada por espaco, a partir do inicio e de
+ * cada palavra ("Cantina Sao Joao" gera "cantina sao joao", "sao joao" e "joao"),
+ * guardadas em um array ordenado. A consulta e uma busca binaria ate a primeira chave
+ * maior ou igual ao prefixo seguida da leitura das chaves que comecam com ele.
+ * As leituras usam o estado vigente sem bloqueio. Para que uma escrita nao copie o
+ * indice inteiro, as chaves alteradas ficam em um segundo array ordenado, pequeno, e os
+ * restaurantes alterados sao marcados como substituidos no array principal; a consulta
+ * percorre os dois arrays em ordem. Quando as alteracoes passam de cerca da raiz
+ * quadrada do tamanho do indice elas sao intercaladas no array principal, e o custo
+ * dessa copia se divide entre as escritas que a antecederam.
+ */
+@Component
+public class IndiceSugestoes {
+
+    public static final String LIMITE_INVALIDO = "Limite de sugestões inválido";
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<Entrada> ORDEM = Comparator.comparing(Entrada::chave);
+
+    private static final int MINIMO_ALTERACOES = 64;
+
+    private final int limitePadrao;
+    private final int limiteMaximo;
+    private volatile Estado estado = new Estado(new Entrada[0], new Entrada[0], Set.of());
+    private final Object carga = new Object();
+    private List<Alteracao> alteracoesDuranteCarga;
+
+    public IndiceSugestoes(@Value("${reservas.sugestoes.limite-padrao:10}") int limitePadrao,
+                           @Value("${reservas.sugestoes.limite-maximo:50}") int limiteMaximo) {
+        this.limitePadrao = limitePadrao;
+        this.limiteMaximo = limiteMaximo;
+    }
+
+    /**
+     * Ate limite restaurantes com alguma chave iniciada pelo prefixo, na ordem das
+     * chaves e sem repetir restaurante.
+     */
+    public List<SugestaoRestaurante> sugerir(String prefixo, Integer limite) {
+        int maximo = limite(limite);
+        String chave = normalizar(prefixo);
+        if (chave.isEmpty()) {
+            return List.of();
+        }
+        Estado atual = estado;
+        Entrada[] base = atual.base;
+        Entrada[] recentes = atual.recentes;
+        Map<String, SugestaoRestaurante> encontrados = new LinkedHashMap<>();
+        int i = primeiraMaiorOuIgual(base, chave);
+        int j = primeiraMaiorOuIgual(recentes, chave);
+        while (encontrados.size() < maximo) {
+            while (i < base.length && atual.substituidos.contains(base[i].sugestao().getId())) {
+                i++;
+            }
+            Entrada proxima;
+            if (i < base.length && (j >= recentes.length || base[i].chave().compareTo(recentes[j].chave()) <= 0)) {
+                proxima = base[i++];
+            } else if (j < recentes.length) {
+                proxima = recentes[j++];
+            } else {
+                break;
+            }
+            if (!proxima.chave().startsWith(chave)) {
+                break;
+            }
+            encontrados.putIfAbsent(proxima.sugestao().getId(), proxima.sugestao());
+        }
+        return new ArrayList<>(encontrados.values());
+    }
+
+    public void atualizar(Restaurante restaurante) {
+        if (restaurante != null && restaurante.getId() != null) {
+            substituir(Set.of(restaurante.getId()), List.of(sugestao(restaurante)));
+        }
+    }
+
+    public void atualizar(Collection<Restaurante> restaurantes) {
+        Map<String, SugestaoRestaurante> sugestoes = new HashMap<>();
+        for (Restaurante restaurante : restaurantes) {
+            if (restaurante != null && restaurante.getId() != null) {
+                sugestoes.put(restaurante.getId(), sugestao(restaurante));
+            }
+        }
+        if (!sugestoes.isEmpty()) {
+            substituir(sugestoes.keySet(), sugestoes.values());
+        }
+    }
+
+    public void remover(String restauranteId) {
+        if (restauranteId != null) {
+            substituir(Set.of(restauranteId), List.of());
+        }
+    }
+
+    /**
+     * Le e ordena as sugestoes sem bloquear as escritas; so a troca do estado e
+     * sincronizada. As escritas feitas durante a leitura sao reaplicadas sobre o indice
+     * novo, ja que o cursor pode ter passado pelos restaurantes antes delas.
+     */
+    public void reconstruir(Stream<SugestaoRestaurante> sugestoes) {
+        synchronized (carga) {
+            synchronized (this) {
+                alteracoesDuranteCarga = new ArrayList<>();
+            }
+            try {
+                List<Entrada> novas = new ArrayList<>();
+                sugestoes.forEach(sugestao -> adicionarEntradas(sugestao, novas));
+                novas.sort(ORDEM);
+                synchronized (this) {
+                    Estado novo = new Estado(novas.toArray(new Entrada[0]), new Entrada[0], Set.of());
+                    for (Alteracao alteracao : alteracoesDuranteCarga) {
+                        novo = novo.aplicar(alteracao);
+                    }
+                    estado = novo;
+                }
+            } finally {
+                synchronized (this) {
+                    alteracoesDuranteCarga = null;
+                }
+            }
+        }
+    }
+
+    private synchronized void substituir(Set<String> ids, Collection<SugestaoRestaurante> sugestoes) {
+        List<Entrada> novas = new ArrayList<>();
+        sugestoes.forEach(sugestao -> adicionarEntradas(sugestao, novas));
+        novas.sort(ORDEM);
+        Alteracao alteracao = new Alteracao(ids, novas.toArray(new Entrada[0]));
+        estado = estado.aplicar(alteracao);
+        if (alteracoesDuranteCarga != null) {
+            alteracoesDuranteCarga.add(alteracao);
+        }
+    }
+
+    /**
+     * Entradas de atuais cujo restaurante nao esta em excluidos, intercaladas em ordem
+     * com novas.
+     */
+    private static Entrada[] intercalar(Entrada[] atuais, Set<String> excluidos, Entrada[] novas) {
+        List<Entrada> resultado = new ArrayList<>(atuais.length + novas.length);
+        int n = 0;
+        for (Entrada atual : atuais) {
+            if (excluidos.contains(atual.sugestao().getId())) {
+                continue;
+            }
+            while (n < novas.length && novas[n].chave().compareTo(atual.chave()) < 0) {
+                resultado.add(novas[n++]);
+            }
+            resultado.add(atual);
+        }
+        for (; n < novas.length; n++) {
+            resultado.add(novas[n]);
+        }
+        return resultado.toArray(new Entrada[0]);
+    }
+
+    private int limite(Integer solicitado) {
+        if (solicitado == null) {
+            return limitePadrao;
+        }
+        if (solicitado < 1) {
+            throw new IllegalArgumentException(LIMITE_INVALIDO);
+        }
+        return Math.min(solicitado, limiteMaximo);
+    }
+
+    private static int primeiraMaiorOuIgual(Entrada[] entradas, String chave) {
+        int inicio = 0;
+        int fim = entradas.length;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (entradas[meio].chave().compareTo(chave) < 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    private static void adicionarEntradas(SugestaoRestaurante sugestao, List<Entrada> entradas) {
+        Set<String> chaves = new LinkedHashSet<>();
+        adicionarChaves(sugestao.getNome(), chaves);
+        adicionarChaves(sugestao.getTipoCozinha(), chaves);
+        for (String chave : chaves) {
+            entradas.add(new Entrada(chave, sugestao));
+        }
+    }
+
+    private static void adicionarChaves(String texto, Set<String> chaves) {
+        String normalizado = normalizar(texto);
+        for (int i = 0; i < normalizado.length(); i++) {
+            if (i == 0 || normalizado.charAt(i - 1) == ' ') {
+                chaves.add(normalizado.substring(i));
+            }
+        }
+    }
+
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static SugestaoRestaurante sugestao(Restaurante restaurante) {
+        return new SugestaoRestaurante(restaurante.getId(), restaurante.getNome(), restaurante.getTipoCozinha());
+    }
+
+    /**
+     * Estado publicado do indice: o array principal, as chaves alteradas desde a ultima
+     * intercalacao e os restaurantes cujas chaves no array principal nao valem mais.
+     */
+    private static final class Estado {
+        private final Entrada[] base;
+        private final Entrada[] recentes;
+        private final Set<String> substituidos;
+
+        Estado(Entrada[] base, Entrada[] recentes, Set<String> substituidos) {
+            this.base = base;
+            this.recentes = recentes;
+            this.substituidos = substituidos;
+        }
+
+        Estado aplicar(Alteracao alteracao) {
+            Entrada[] novasRecentes = intercalar(recentes, alteracao.ids, alteracao.entradas);
+            Set<String> novosSubstituidos = new HashSet<>(substituidos);
+            novosSubstituidos.addAll(alteracao.ids);
+            int limite = Math.max(MINIMO_ALTERACOES, (int) Math.sqrt(base.length));
+            if (novasRecentes.length + novosSubstituidos.size() > limite) {
+                return new Estado(intercalar(base, novosSubstituidos, novasRecentes), new Entrada[0], Set.of());
+            }
+            return new Estado(base, novasRecentes, novosSubstituidos);
+        }
+    }
+
+    private static final class Alteracao {
+        private final Set<String> ids;
+        private final Entrada[] entradas;
+
+        Alteracao(Set<String> ids, Entrada[] entradas) {
+            this.ids = ids;
+            this.entradas = entradas;
+        }
+    }
+
+    private static final class Entrada {
+        private final String chave;
+        private final SugestaoRestaurante sugestao;
+
+        Entrada(String chave, SugestaoRestaurante sugestao) {
+            this.chave = chave;
+            this.sugestao = sugestao;
+        }
+
+        String chave() {
+            return chave;
+        }
+
+        SugestaoRestaurante sugestao() {
+            return sugestao;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.resturante.reservas.adapter.controller;
 
+import br.com.resturante.reservas.dto.Pagina;
 import br.com.resturante.reservas.entities.Cliente;
 import br.com.resturante.reservas.usecases.service.ClienteService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -17,6 +18,7 @@ import java.util.ArrayList;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -92,14 +94,14 @@ class ClienteControllerTest {
 
 
         Cliente expectedCliente = new Cliente();
-        when(clienteService.getAllClientes()).thenReturn(new ArrayList<Cliente>());
+        when(clienteService.listarClientes(null, null)).thenReturn(new Pagina<>(new ArrayList<Cliente>(), null));
 
         mockMvc.perform(get("/cliente")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(asJsonString(expectedCliente)))
                 .andExpect(status().isOk());
 
-        verify(clienteService, times(1)).getAllClientes();
+        verify(clienteService, times(1)).listarClientes(null, null);
 
     }
 
@@ -226,4 +228,45 @@ class ClienteControllerTest {
         verify(clienteService, times(1)).buscarClientePorTelefone(anyString());
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldReturnWhetherContatoExistsWhenExisteClienteIsCalled() throws Exception {
+        when(clienteService.existeCliente("11999990000", null)).thenReturn(true);
+
+        mockMvc.perform(get("/cliente/existe").param("telefone", "11999990000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(true));
+        verify(clienteService, times(1)).existeCliente("11999990000", null);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenExisteClienteIsCalledWithoutContato() throws Exception {
+        when(clienteService.existeCliente(null, null)).thenThrow(new IllegalArgumentException("Informe telefone ou email"));
+
+        mockMvc.perform(get("/cliente/existe"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnNotModifiedWithoutLoadingClienteWhenHashMatches() throws Exception {
+        when(clienteService.buscarHashCliente("1")).thenReturn(0xABCL);
+
+        mockMvc.perform(get("/cliente/{id}", "1").header("If-None-Match", "\"abc\""))
+                .andExpect(status().isNotModified());
+
+        verify(clienteService, never()).listarClientePorId(anyString());
+    }
+
+    @Test
+    void shouldReturnETagWithHashWhenBuscarClientePorIdIsCalled() throws Exception {
+        Cliente cliente = new Cliente("1", "nome", "email", "telefone", "endereco");
+        cliente.setHash(0xABCL);
+        when(clienteService.buscarHashCliente("1")).thenReturn(0xABCL);
+        when(clienteService.listarClientePorId("1")).thenReturn(cliente);
+
+        mockMvc.perform(get("/cliente/{id}", "1").header("If-None-Match", "\"123\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(jsonPath("$.hash").doesNotExist());
+    }
+
+}
@@ -1,26 +1,40 @@
 package br.com.resturante.reservas.adapter.controller;
 
+import br.com.resturante.reservas.dto.AtualizacaoReserva;
+import br.com.resturante.reservas.dto.AtualizacaoRestaurante;
+import br.com.resturante.reservas.dto.Pagina;
 import br.com.resturante.reservas.dto.ReservaDto;
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
 import br.com.resturante.reservas.entities.Reserva;
 import br.com.resturante.reservas.entities.Restaurante;
+import br.com.resturante.reservas.usecases.cache.CacheRespostasRestaurantes;
 import br.com.resturante.reservas.usecases.service.RestauranteService;
+import br.com.resturante.reservas.usecases.service.impl.RestauranteServiceImpl;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,7 +50,8 @@ class RestauranteControllerTest {
     @BeforeEach
     public void setup() {
         openMocks = MockitoAnnotations.openMocks(this);
-        RestauranteController restauranteController = new RestauranteController(restauranteService);
+        RestauranteController restauranteController = new RestauranteController(restauranteService,
+                new CacheRespostasRestaurantes(new ObjectMapper(), new SimpleMeterRegistry(), true, 1_000_000, 60, true));
         mockMvc = MockMvcBuilders.standaloneSetup(restauranteController)
                 .setControllerAdvice(new org.example.handler.GlobalExceptionHandler())
                 .addFilter((request, response, chain) -> {
@@ -79,27 +94,93 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnListOfRestaurantesWhenListarRestaurantesIsCalled() throws Exception {
-        List<Restaurante> expectedRestaurantes = Arrays.asList(new Restaurante(), new Restaurante());
-        when(restauranteService.listarRestaurantes()).thenReturn(expectedRestaurantes);
+        List<RestauranteResumo> expectedRestaurantes = Arrays.asList(new RestauranteResumo(), new RestauranteResumo());
+        when(restauranteService.listarRestaurantes(null, null)).thenReturn(new Pagina<>(expectedRestaurantes, "proxima"));
 
         mockMvc.perform(get("/restaurante")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)));
+                .andExpect(jsonPath("$.itens", hasSize(2)))
+                .andExpect(jsonPath("$.proximaPagina").value("proxima"));
 
-        verify(restauranteService, times(1)).listarRestaurantes();
+        verify(restauranteService, times(1)).listarRestaurantes(null, null);
     }
 
     @Test
     void shouldReturnEmptyListWhenNoRestaurantesExist() throws Exception {
-        when(restauranteService.listarRestaurantes()).thenReturn(new ArrayList<>());
+        when(restauranteService.listarRestaurantes(null, null)).thenReturn(new Pagina<>(new ArrayList<>(), null));
 
         mockMvc.perform(get("/restaurante")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(0)));
+                .andExpect(jsonPath("$.itens", hasSize(0)));
+
+        verify(restauranteService, times(1)).listarRestaurantes(null, null);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenListarRestaurantesIsCalledWithInvalidCursor() throws Exception {
+        when(restauranteService.listarRestaurantes("invalido", null)).thenThrow(new IllegalArgumentException());
+
+        mockMvc.perform(get("/restaurante")
+                        .param("cursor", "invalido")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnSugestoesWhenSugerirRestaurantesIsCalled() throws Exception {
+        when(restauranteService.sugerirRestaurantes("can", 5)).thenReturn(List.of(new SugestaoRestaurante("1", "Cantina", "Italiana")));
+
+        mockMvc.perform(get("/restaurante/sugestoes")
+                        .param("prefixo", "can")
+                        .param("limite", "5")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].nome").value("Cantina"));
+
+        verify(restauranteService, times(1)).sugerirRestaurantes("can", 5);
+    }
+
+    @Test
+    void shouldReturnRestaurantesProximosWhenBuscarRestaurantesProximosIsCalled() throws Exception {
+        RestauranteProximo proximo = new RestauranteProximo();
+        proximo.setId("1");
+        proximo.setDistanciaMetros(120.5);
+        when(restauranteService.buscarRestaurantesProximos(-23.56, -46.65, 2000.0, null, "Italiana")).thenReturn(List.of(proximo));
+
+        mockMvc.perform(get("/restaurante/proximos")
+                        .param("lat", "-23.56")
+                        .param("lon", "-46.65")
+                        .param("raio", "2000")
+                        .param("tipoCozinha", "Italiana")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].distanciaMetros").value(120.5));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenBuscarRestaurantesProximosIsCalledWithInvalidCoordinates() throws Exception {
+        when(restauranteService.buscarRestaurantesProximos(anyDouble(), anyDouble(), any(), any(), any())).thenThrow(new IllegalArgumentException());
+
+        mockMvc.perform(get("/restaurante/proximos")
+                        .param("lat", "95")
+                        .param("lon", "0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenSugerirRestaurantesIsCalledWithInvalidLimite() throws Exception {
+        when(restauranteService.sugerirRestaurantes("can", 0)).thenThrow(new IllegalArgumentException());
 
-        verify(restauranteService, times(1)).listarRestaurantes();
+        mockMvc.perform(get("/restaurante/sugestoes")
+                        .param("prefixo", "can")
+                        .param("limite", "0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -118,13 +199,23 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnNotFoundWhenBuscarRestaurantePorIdIsCalledWithInvalidId() throws Exception {
-        when(restauranteService.buscarRestaurantePorId(anyString())).thenReturn(null);
+        when(restauranteService.buscarVersaoRestaurante("invalid")).thenReturn(null);
+        when(restauranteService.buscarRestaurantePorId(anyString())).thenThrow(new RuntimeException(RestauranteServiceImpl.RESTAURANTE_NAO_ENCONTRADO));
 
         mockMvc.perform(get("/restaurante/{id}", "invalid")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
 
-        verify(restauranteService, times(1)).buscarRestaurantePorId(anyString());
+        verify(restauranteService, never()).buscarRestaurantePorId(anyString());
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenRestauranteIsDeletedAfterVersaoIsRead() throws Exception {
+        when(restauranteService.buscarVersaoRestaurante("1")).thenReturn(7L);
+        when(restauranteService.buscarRestaurantePorId("1")).thenThrow(new RuntimeException(RestauranteServiceImpl.RESTAURANTE_NAO_ENCONTRADO));
+
+        mockMvc.perform(get("/restaurante/{id}", "1"))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -230,6 +321,19 @@ class RestauranteControllerTest {
         verify(restauranteService, times(1)).atualizarRestaurante(anyString(), any(Restaurante.class));
     }
 
+    @Test
+    void shouldReturnConflictWhenAtualizarRestauranteIsCalledWithStaleVersao() throws Exception {
+        when(restauranteService.atualizarRestaurante(anyString(), any(Restaurante.class)))
+                .thenThrow(new OptimisticLockingFailureException(RestauranteServiceImpl.RESTAURANTE_ALTERADO));
+
+        mockMvc.perform(put("/restaurante/{id}", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new Restaurante())))
+                .andExpect(status().isConflict());
+
+        verify(restauranteService, times(1)).atualizarRestaurante(anyString(), any(Restaurante.class));
+    }
+
     @Test
     void shouldReturnNoContentWhenDeletarRestauranteIsCalledWithValidId() throws Exception {
         doNothing().when(restauranteService).deletarRestaurante(anyString());
@@ -241,6 +345,133 @@ class RestauranteControllerTest {
         verify(restauranteService, times(1)).deletarRestaurante(anyString());
     }
 
+    @Test
+    void shouldReturnUpdatedRestauranteWhenAtualizarRestauranteParcialIsCalled() throws Exception {
+        AtualizacaoRestaurante atualizacao = new AtualizacaoRestaurante();
+        atualizacao.setNome("novo nome");
+        Restaurante atualizado = new Restaurante();
+        atualizado.setId("1");
+        atualizado.setNome("novo nome");
+        when(restauranteService.atualizarRestauranteParcial(eq("1"), any(AtualizacaoRestaurante.class))).thenReturn(atualizado);
+
+        mockMvc.perform(patch("/restaurante/{id}", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(atualizacao)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nome").value("novo nome"));
+
+        verify(restauranteService, times(1)).atualizarRestauranteParcial(eq("1"), any(AtualizacaoRestaurante.class));
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenAtualizarRestauranteParcialIsCalledWithInvalidId() throws Exception {
+        when(restauranteService.atualizarRestauranteParcial(eq("invalid"), any(AtualizacaoRestaurante.class)))
+                .thenThrow(new RuntimeException(RestauranteServiceImpl.RESTAURANTE_NAO_ENCONTRADO));
+
+        mockMvc.perform(patch("/restaurante/{id}", "invalid")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new AtualizacaoRestaurante())))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnConflictWhenAtualizarRestauranteParcialMovesReservedMesa() throws Exception {
+        when(restauranteService.atualizarRestauranteParcial(eq("1"), any(AtualizacaoRestaurante.class)))
+                .thenThrow(new IllegalStateException(RestauranteServiceImpl.MESAS_RESERVADAS));
+
+        mockMvc.perform(patch("/restaurante/{id}", "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new AtualizacaoRestaurante())))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldReturnUpdatedReservaWhenAtualizarReservaParcialIsCalled() throws Exception {
+        Reserva atualizada = new Reserva();
+        atualizada.setId(2L);
+        when(restauranteService.atualizarReservaParcial(eq("1"), eq("2"), any(AtualizacaoReserva.class))).thenReturn(atualizada);
+
+        mockMvc.perform(patch("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "1", "2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").exists());
+
+        verify(restauranteService, times(1)).atualizarReservaParcial(eq("1"), eq("2"), any(AtualizacaoReserva.class));
+    }
+
+    @Test
+    void shouldWriteReservaIdsAsTextSoLargeIdsKeepTheirPrecision() throws Exception {
+        Reserva atualizada = new Reserva();
+        atualizada.setId(9007199254740993L);
+        when(restauranteService.atualizarReservaParcial(eq("1"), eq("9007199254740993"), any(AtualizacaoReserva.class))).thenReturn(atualizada);
+
+        mockMvc.perform(patch("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "1", "9007199254740993")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("9007199254740993"));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenAtualizarReservaParcialIsCalledWithInvalidNota() throws Exception {
+        when(restauranteService.atualizarReservaParcial(eq("1"), eq("2"), any(AtualizacaoReserva.class)))
+                .thenThrow(new IllegalArgumentException(RestauranteServiceImpl.NOTA_INVALIDA));
+
+        mockMvc.perform(patch("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "1", "2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnConflictWhenAtualizarReservaParcialLosesToAnotherWrite() throws Exception {
+        when(restauranteService.atualizarReservaParcial(eq("1"), eq("2"), any(AtualizacaoReserva.class)))
+                .thenThrow(new OptimisticLockingFailureException(RestauranteServiceImpl.RESERVA_ALTERADA));
+
+        mockMvc.perform(patch("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "1", "2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenAtualizarReservaParcialIsCalledWithInvalidReserva() throws Exception {
+        when(restauranteService.atualizarReservaParcial(eq("1"), eq("9"), any(AtualizacaoReserva.class)))
+                .thenThrow(new RuntimeException(RestauranteServiceImpl.RESERVA_NAO_ENCONTRADA));
+
+        mockMvc.perform(patch("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "1", "9")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnNoContentWhenDeletarReservaIsCalledWithValidIds() throws Exception {
+        doNothing().when(restauranteService).deletarReserva("1", "2");
+
+        mockMvc.perform(delete("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "1", "2"))
+                .andExpect(status().isNoContent());
+
+        verify(restauranteService, times(1)).deletarReserva("1", "2");
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenDeletarReservaIsCalledWithInvalidRestaurante() throws Exception {
+        doThrow(new RuntimeException(RestauranteServiceImpl.RESTAURANTE_NAO_ENCONTRADO)).when(restauranteService).deletarReserva("invalid", "2");
+
+        mockMvc.perform(delete("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "invalid", "2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenDeletarReservaIsCalledWithInvalidReserva() throws Exception {
+        doThrow(new RuntimeException(RestauranteServiceImpl.RESERVA_NAO_ENCONTRADA)).when(restauranteService).deletarReserva("1", "9");
+
+        mockMvc.perform(delete("/restaurante/restaurante/{idRestaurante}/reserva/{idReserva}", "1", "9"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void shouldReturnCreatedReservaWhenReservarRestauranteIsCalledWithValidReservaDto() throws Exception {
         ReservaDto reservaDto = new ReservaDto();
@@ -269,29 +500,55 @@ class RestauranteControllerTest {
         verify(restauranteService, times(0)).reservarRestaurante(any(ReservaDto.class));
     }
 
+    @Test
+    void shouldReturnBadRequestWhenReservarRestauranteIsCalledWithoutDataOrHora() throws Exception {
+        ReservaDto reservaDto = new ReservaDto();
+        reservaDto.setIdRestaurante("1");
+        when(restauranteService.reservarRestaurante(any(ReservaDto.class))).thenThrow(new IllegalArgumentException());
+
+        mockMvc.perform(post("/restaurante/reservar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(reservaDto)))
+                .andExpect(status().isBadRequest());
+
+        verify(restauranteService, times(1)).reservarRestaurante(any(ReservaDto.class));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenReservarEmLoteIsCalledWithoutDataOrHora() throws Exception {
+        when(restauranteService.reservarEmLote(anyList())).thenThrow(new IllegalArgumentException());
+
+        mockMvc.perform(post("/restaurante/reservar/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(List.of(new ReservaDto()))))
+                .andExpect(status().isBadRequest());
+
+        verify(restauranteService, times(1)).reservarEmLote(anyList());
+    }
+
     @Test
     void shouldReturnListOfReservasWhenListarReservasPorRestauranteIsCalledWithValidId() throws Exception {
         List<Reserva> expectedReservas = Arrays.asList(new Reserva(), new Reserva());
-        when(restauranteService.listarReservasPorRestaurante(anyString())).thenReturn(expectedReservas);
+        when(restauranteService.listarReservasPorRestaurante(anyString(), any(), any())).thenReturn(expectedReservas);
 
         mockMvc.perform(get("/restaurante/reservas/{id}", "validId")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(2)));
 
-        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString());
+        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString(), any(), any());
     }
 
     @Test
     void shouldReturnEmptyListWhenListarReservasPorRestauranteIsCalledAndNoReservasExist() throws Exception {
-        when(restauranteService.listarReservasPorRestaurante(anyString())).thenReturn(new ArrayList<>());
+        when(restauranteService.listarReservasPorRestaurante(anyString(), any(), any())).thenReturn(new ArrayList<>());
 
         mockMvc.perform(get("/restaurante/reservas/{id}", "validId")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(0)));
 
-        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString());
+        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString(), any(), any());
     }
 
 
@@ -304,10 +561,10 @@ class RestauranteControllerTest {
 
     /*@Test
     void shouldReturnCreatedRestauranteWhenCadastrarRestauranteIsCalledWithValidRestaurante() {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteService.cadastrarRestaurante(any(Restaurante.class))).thenReturn(expectedRestaurante);
 
-        ResponseEntity<Restaurante> responseEntity = restauranteController.cadastrarRestaurante(new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>()));
+        ResponseEntity<Restaurante> responseEntity = restauranteController.cadastrarRestaurante(new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>()));
 
         assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
         assertEquals(expectedRestaurante, responseEntity.getBody());
@@ -325,30 +582,30 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnListOfRestaurantesWhenListarRestaurantesIsCalled() {
-        List<Restaurante> expectedRestaurantes = Arrays.asList(new Restaurante(), new Restaurante());
-        when(restauranteService.listarRestaurantes()).thenReturn(expectedRestaurantes);
+        List<RestauranteResumo> expectedRestaurantes = Arrays.asList(new RestauranteResumo(), new RestauranteResumo());
+        when(restauranteService.listarRestaurantes(null, null)).thenReturn(new Pagina<>(expectedRestaurantes, null));
 
-        ResponseEntity<List<Restaurante>> responseEntity = restauranteController.listarRestaurantes();
+        ResponseEntity<Pagina<RestauranteResumo>> responseEntity = restauranteController.listarRestaurantes(null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
-        assertEquals(expectedRestaurantes, responseEntity.getBody());
-        verify(restauranteService, times(1)).listarRestaurantes();
+        assertEquals(expectedRestaurantes, responseEntity.getBody().getItens());
+        verify(restauranteService, times(1)).listarRestaurantes(null, null);
     }
 
     @Test
     void shouldReturnEmptyListWhenListarRestaurantesIsCalledAndNoRestaurantesExist() {
-        when(restauranteService.listarRestaurantes()).thenReturn(Collections.emptyList());
+        when(restauranteService.listarRestaurantes(null, null)).thenReturn(new Pagina<>(Collections.emptyList(), null));
 
-        ResponseEntity<List<Restaurante>> responseEntity = restauranteController.listarRestaurantes();
+        ResponseEntity<Pagina<RestauranteResumo>> responseEntity = restauranteController.listarRestaurantes(null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
-        assertTrue(responseEntity.getBody().isEmpty());
-        verify(restauranteService, times(1)).listarRestaurantes();
+        assertTrue(responseEntity.getBody().getItens().isEmpty());
+        verify(restauranteService, times(1)).listarRestaurantes(null, null);
     }
 
     @Test
     void shouldReturnRestauranteWhenBuscarRestaurantePorIdIsCalledWithValidId() {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteService.buscarRestaurantePorId(anyString())).thenReturn(expectedRestaurante);
 
         ResponseEntity<Restaurante> responseEntity = restauranteController.buscarRestaurantePorId("ValidId");
@@ -371,7 +628,7 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnRestauranteWhenBuscarRestaurantePorNomeIsCalledWithValidName() throws Exception {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteService.buscarRestaurantePorNome(anyString())).thenReturn(expectedRestaurante);
 
         ResponseEntity<Restaurante> responseEntity = restauranteController.buscarRestaurantePorNome("ValidName");
@@ -394,7 +651,7 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnRestauranteWhenBuscarRestaurantePorEnderecoIsCalledWithValidEndereco() throws Exception {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteService.buscarRestaurantePorEndereco(anyString())).thenReturn(expectedRestaurante);
 
         ResponseEntity<Restaurante> responseEntity = restauranteController.buscarRestaurantePorEndereco("ValidEndereco");
@@ -417,7 +674,7 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnRestauranteWhenBuscarRestaurantePorTipoCozinhaIsCalledWithValidTipo() throws Exception {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteService.buscarRestaurantePorTipoCozinha(anyString())).thenReturn(expectedRestaurante);
 
         ResponseEntity<Restaurante> responseEntity = restauranteController.buscarRestaurantePorTipoCozinha("ValidTipo");
@@ -440,10 +697,10 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnUpdatedRestauranteWhenAtualizarRestauranteIsCalledWithValidIdAndRestaurante() {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteService.atualizarRestaurante(anyString(), any(Restaurante.class))).thenReturn(expectedRestaurante);
 
-        ResponseEntity<Restaurante> responseEntity = restauranteController.atualizarRestaurante("4", new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>()));
+        ResponseEntity<Restaurante> responseEntity = restauranteController.atualizarRestaurante("4", new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>()));
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(expectedRestaurante, responseEntity.getBody());
@@ -454,7 +711,7 @@ class RestauranteControllerTest {
     void shouldReturnNotFoundWhenAtualizarRestauranteIsCalledWithInvalidId() {
         when(restauranteService.atualizarRestaurante(anyString(), any(Restaurante.class))).thenReturn(null);
 
-        ResponseEntity<Restaurante> responseEntity = restauranteController.atualizarRestaurante("InvalidId", new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>()));
+        ResponseEntity<Restaurante> responseEntity = restauranteController.atualizarRestaurante("InvalidId", new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>()));
 
         assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         assertNull(responseEntity.getBody());
@@ -503,42 +760,36 @@ class RestauranteControllerTest {
 
     @Test
     void shouldReturnUpdatedReservaWhenAdicionarComentarioIsCalledWithValidIdAndComentario() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
         Reserva expectedReserva = new Reserva();
-        when(restauranteService.buscarRestaurantePorId(anyString())).thenReturn(restaurante);
-        when(restauranteService.adicionarComentario(any(Restaurante.class), anyString(), anyString())).thenReturn(expectedReserva);
+        when(restauranteService.adicionarComentario(anyString(), anyString(), anyString(), any())).thenReturn(expectedReserva);
 
-        ResponseEntity<Reserva> responseEntity = restauranteController.adicionarComentario("ValidIdRestaurante", "ValidIdReserva", "ValidComentario");
+        ResponseEntity<Reserva> responseEntity = restauranteController.adicionarComentario("ValidIdRestaurante", "ValidIdReserva", "ValidComentario", 5);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(expectedReserva, responseEntity.getBody());
-        verify(restauranteService, times(1)).buscarRestaurantePorId(anyString());
-        verify(restauranteService, times(1)).adicionarComentario(any(Restaurante.class), anyString(), anyString());
+        verify(restauranteService, never()).buscarRestaurantePorId(anyString());
+        verify(restauranteService, times(1)).adicionarComentario(anyString(), anyString(), anyString(), any());
     }
 
     @Test
     void shouldReturnNotFoundWhenAdicionarComentarioIsCalledWithInvalidIdRestaurante() {
-        when(restauranteService.buscarRestaurantePorId(anyString())).thenReturn(null);
+        when(restauranteService.adicionarComentario(eq("InvalidIdRestaurante"), anyString(), anyString(), any())).thenThrow(new RuntimeException());
 
-        ResponseEntity<Reserva> responseEntity = restauranteController.adicionarComentario("InvalidIdRestaurante", "ValidIdReserva", "ValidComentario");
+        ResponseEntity<Reserva> responseEntity = restauranteController.adicionarComentario("InvalidIdRestaurante", "ValidIdReserva", "ValidComentario", null);
 
         assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         assertNull(responseEntity.getBody());
-        verify(restauranteService, times(1)).buscarRestaurantePorId(anyString());
     }
 
     @Test
     void shouldReturnNotFoundWhenAdicionarComentarioIsCalledWithInvalidReserva() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        when(restauranteService.buscarRestaurantePorId(anyString())).thenReturn(restaurante);
-        when(restauranteService.adicionarComentario(any(Restaurante.class), anyString(), anyString())).thenReturn(null);
+        when(restauranteService.adicionarComentario(anyString(), eq("InvalidIdReserva"), anyString(), any())).thenThrow(new RuntimeException(RestauranteServiceImpl.RESERVA_NAO_ENCONTRADA));
 
-        ResponseEntity<Reserva> responseEntity = restauranteController.adicionarComentario("ValidIdRestaurante", "InvalidIdReserva", "ValidComentario");
+        ResponseEntity<Reserva> responseEntity = restauranteController.adicionarComentario("ValidIdRestaurante", "InvalidIdReserva", "ValidComentario", null);
 
         assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         assertNull(responseEntity.getBody());
-        verify(restauranteService, times(1)).buscarRestaurantePorId(anyString());
-        verify(restauranteService, times(1)).adicionarComentario(any(Restaurante.class), anyString(), anyString());
+        verify(restauranteService, times(1)).adicionarComentario(anyString(), anyString(), anyString(), any());
     }
 
     @Test
@@ -552,24 +803,28 @@ class RestauranteControllerTest {
     }
 
     @Test
-    void shouldThrowExceptionWhenDeletarReservaIsCalledWithInvalidIdRestaurante() {
+    void shouldReturnNotFoundWhenDeletarReservaIsCalledWithInvalidIdRestaurante() {
         doThrow(new RuntimeException()).when(restauranteService).deletarReserva(anyString(), anyString());
 
-        assertThrows(RuntimeException.class, () -> restauranteController.deletarReserva("InvalidIdRestaurante", "ValidIdReserva"));
+        ResponseEntity<Void> responseEntity = restauranteController.deletarReserva("InvalidIdRestaurante", "ValidIdReserva");
+
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         verify(restauranteService, times(1)).deletarReserva(anyString(), anyString());
     }
 
     @Test
-    void shouldThrowExceptionWhenDeletarReservaIsCalledWithInvalidIdReserva() {
+    void shouldReturnNotFoundWhenDeletarReservaIsCalledWithInvalidIdReserva() {
         doThrow(new RuntimeException()).when(restauranteService).deletarReserva(anyString(), anyString());
 
-        assertThrows(RuntimeException.class, () -> restauranteController.deletarReserva("ValidIdRestaurante", "InvalidIdReserva"));
+        ResponseEntity<Void> responseEntity = restauranteController.deletarReserva("ValidIdRestaurante", "InvalidIdReserva");
+
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         verify(restauranteService, times(1)).deletarReserva(anyString(), anyString());
     }
 
     @Test
     void shouldReturnUpdatedReservaWhenAtualizarReservaIsCalledWithValidIdRestauranteAndReserva() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         Reserva expectedReserva = new Reserva();
         when(restauranteService.atualizarReserva(anyString(), any(Reserva.class))).thenReturn(expectedReserva);
 
@@ -594,24 +849,136 @@ class RestauranteControllerTest {
     @Test
     void shouldReturnListOfReservasWhenListarReservasPorRestauranteIsCalledWithValidId() {
         List<Reserva> expectedReservas = Arrays.asList(new Reserva(), new Reserva());
-        when(restauranteService.listarReservasPorRestaurante(anyString())).thenReturn(expectedReservas);
+        when(restauranteService.listarReservasPorRestaurante(anyString(), any(), any())).thenReturn(expectedReservas);
 
-        ResponseEntity<List<Reserva>> responseEntity = restauranteController.listarReservasPorRestaurante("ValidId");
+        ResponseEntity<List<Reserva>> responseEntity = restauranteController.listarReservasPorRestaurante("ValidId", null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(expectedReservas, responseEntity.getBody());
-        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString());
+        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString(), any(), any());
     }
 
     @Test
     void shouldReturnEmptyListWhenListarReservasPorRestauranteIsCalledAndNoReservasExist() {
-        when(restauranteService.listarReservasPorRestaurante(anyString())).thenReturn(Collections.emptyList());
+        when(restauranteService.listarReservasPorRestaurante(anyString(), any(), any())).thenReturn(Collections.emptyList());
 
-        ResponseEntity<List<Reserva>> responseEntity = restauranteController.listarReservasPorRestaurante("ValidId");
+        ResponseEntity<List<Reserva>> responseEntity = restauranteController.listarReservasPorRestaurante("ValidId", null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertTrue(responseEntity.getBody().isEmpty());
-        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString());
+        verify(restauranteService, times(1)).listarReservasPorRestaurante(anyString(), any(), any());
     }*/
 
+    @Test
+    void shouldReturnETagWithVersaoWhenBuscarRestaurantePorIdIsCalled() throws Exception {
+        Restaurante restaurante = new Restaurante();
+        restaurante.setId("1");
+        restaurante.setVersao(7L);
+        when(restauranteService.buscarVersaoRestaurante("1")).thenReturn(7L);
+        when(restauranteService.buscarRestaurantePorId("1")).thenReturn(restaurante);
+
+        mockMvc.perform(get("/restaurante/{id}", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
+    }
+
+    @Test
+    void shouldReturnNotModifiedWithoutLoadingRestauranteWhenVersaoMatches() throws Exception {
+        when(restauranteService.buscarVersaoRestaurante("1")).thenReturn(7L);
+
+        mockMvc.perform(get("/restaurante/{id}", "1").header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"7\""));
+
+        verify(restauranteService, never()).buscarRestaurantePorId(anyString());
+    }
+
+    @Test
+    void shouldReturnNotModifiedWithoutListingReservasWhenVersaoMatches() throws Exception {
+        when(restauranteService.buscarVersaoReservas("validId")).thenReturn(3L);
+
+        mockMvc.perform(get("/restaurante/reservas/{id}", "validId").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified());
+
+        verify(restauranteService, never()).listarReservasPorRestaurante(anyString(), any(), any());
+    }
+
+    @Test
+    void shouldReturnNotFoundInsteadOfNotModifiedWhenRestauranteDoesNotExist() throws Exception {
+        when(restauranteService.buscarVersaoReservas("inexistente"))
+                .thenThrow(new RuntimeException(RestauranteServiceImpl.RESTAURANTE_NAO_ENCONTRADO));
+
+        mockMvc.perform(get("/restaurante/reservas/{id}", "inexistente").header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotFound());
+
+        verify(restauranteService, never()).listarReservasPorRestaurante(anyString(), any(), any());
+    }
+
+    @Test
+    void shouldListReservasWithNewETagWhenVersaoChanged() throws Exception {
+        when(restauranteService.buscarVersaoReservas("validId")).thenReturn(4L);
+        when(restauranteService.listarReservasPorRestaurante("validId", null, null)).thenReturn(List.of(new Reserva()));
+
+        mockMvc.perform(get("/restaurante/reservas/{id}", "validId").header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void shouldServeSerializedRestauranteFromCacheWhileVersaoIsUnchanged() throws Exception {
+        Restaurante restaurante = new Restaurante();
+        restaurante.setId("1");
+        restaurante.setNome("nome");
+        restaurante.setVersao(7L);
+        when(restauranteService.buscarVersaoRestaurante("1")).thenReturn(7L);
+        when(restauranteService.buscarRestaurantePorId("1")).thenReturn(restaurante);
+
+        mockMvc.perform(get("/restaurante/{id}", "1")).andExpect(status().isOk());
+        mockMvc.perform(get("/restaurante/{id}", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nome").value("nome"));
+
+        verify(restauranteService, times(1)).buscarRestaurantePorId("1");
+    }
+
+    @Test
+    void shouldSerializeAgainWhenVersaoChanges() throws Exception {
+        Restaurante anterior = new Restaurante();
+        anterior.setId("1");
+        anterior.setNome("anterior");
+        anterior.setVersao(7L);
+        Restaurante atual = new Restaurante();
+        atual.setId("1");
+        atual.setNome("atual");
+        atual.setVersao(8L);
+        when(restauranteService.buscarVersaoRestaurante("1")).thenReturn(7L).thenReturn(8L);
+        when(restauranteService.buscarRestaurantePorId("1")).thenReturn(anterior).thenReturn(atual);
+
+        mockMvc.perform(get("/restaurante/{id}", "1")).andExpect(jsonPath("$.nome").value("anterior"));
+        mockMvc.perform(get("/restaurante/{id}", "1"))
+                .andExpect(header().string("ETag", "\"8\""))
+                .andExpect(jsonPath("$.nome").value("atual"));
+    }
+
+    @Test
+    void shouldReturnGzippedBodyWhenClientAcceptsGzip() throws Exception {
+        Restaurante restaurante = new Restaurante();
+        restaurante.setId("1");
+        restaurante.setNome("nome");
+        restaurante.setVersao(7L);
+        when(restauranteService.buscarVersaoRestaurante("1")).thenReturn(7L);
+        when(restauranteService.buscarRestaurantePorId("1")).thenReturn(restaurante);
+
+        byte[] corpo = mockMvc.perform(get("/restaurante/{id}", "1").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(corpo))) {
+            assertEquals("nome", new ObjectMapper().readTree(gzip).get("nome").asText());
+        }
+    }
+
 }
@@ -39,13 +39,11 @@ public class StepDefinition {
         Mesa mesa = new Mesa();
         mesa.setNumero(1);
         mesa.setCapacidade(4);
-        mesa.setDisponivel(true);
         reserva.setMesa(mesa);
 
         Restaurante restaurante = new Restaurante();
         restaurante.setNome("Restaurante Teste");
         restaurante.setLocalizacao("Rua Teste");
-        restaurante.getReservas().add(reserva);
         restaurante.setQtdMesas(10);
         restaurante.getMesas().add(mesa);
 
@@ -95,13 +93,11 @@ public class StepDefinition {
         Mesa mesa = new Mesa();
         mesa.setNumero(1);
         mesa.setCapacidade(4);
-        mesa.setDisponivel(false);
         reserva.setMesa(mesa);
 
         Restaurante restaurante = new Restaurante();
         restaurante.setNome("Restaurante Teste");
         restaurante.setLocalizacao("Rua Teste");
-        restaurante.getReservas().add(reserva);
         restaurante.setQtdMesas(1);
         restaurante.getMesas().add(mesa);
 
@@ -111,7 +107,8 @@ public class StepDefinition {
                 .when()
                 .post(ENDPOINT_CADASTRAR_RESTAURANTE);
         restauranteResponse = response.then().extract().as(Restaurante.class);
-        return response.then().extract().as(Restaurante.class);
+        eu_reservo_a_mesa();
+        return restauranteResponse;
     }
 
     @Quando("eu tento reservar a mesa")
@@ -0,0 +1,147 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.entities.Reserva;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest
+@Testcontainers
+@ContextConfiguration(classes = MongoDBTestContainerConfig.class)
+class ArquivamentoReservasIT {
+
+    private static final LocalDate LIMITE = LocalDate.of(2030, 1, 1);
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    ReservaRepository reservaRepository;
+
+    ArquivamentoReservas arquivamentoReservas;
+
+    @BeforeEach
+    void setup() {
+        mongoTemplate.remove(new Query(), Reserva.class);
+        mongoTemplate.remove(new Query(), ReservaRepositoryCustom.COLECAO_ARQUIVO);
+        mongoTemplate.remove(new Query(), "arquivamento");
+        arquivamentoReservas = new ArquivamentoReservas(mongoTemplate, reservaRepository, true, 90, 2);
+    }
+
+    @Test
+    void deveMoverReservasAntigasParaOArquivoEmLotes() {
+        // Arrange
+        reservar(1L, LIMITE.minusDays(10));
+        reservar(2L, LIMITE.plusDays(1));
+        reservar(3L, LIMITE.minusDays(1));
+        reservar(4L, LIMITE.minusDays(30));
+        reservar(5L, LIMITE);
+
+        // Act
+        long arquivadas = arquivamentoReservas.arquivar(LIMITE);
+
+        // Assert
+        assertThat(arquivadas).isEqualTo(3);
+        assertThat(reservaRepository.findAll()).extracting(Reserva::getId).containsExactlyInAnyOrder(2L, 5L);
+        assertThat(reservaRepository.buscarArquivadas("1", null, null)).extracting(Reserva::getId).containsExactly(4L, 1L, 3L);
+        assertThat(mongoTemplate.findById("reserva", Document.class, "arquivamento").get("ultimoId", Number.class).longValue()).isEqualTo(4L);
+    }
+
+    @Test
+    void deveRetomarDoUltimoLoteEIgnorarCopiasJaArquivadas() {
+        // Arrange
+        reservar(1L, LIMITE.minusDays(1));
+        reservar(2L, LIMITE.minusDays(1));
+        reservar(3L, LIMITE.minusDays(1));
+        reservaRepository.arquivar(reservaRepository.findAllById(List.of(3L)));
+        mongoTemplate.save(new Document("_id", "reserva").append("limite", LIMITE.toString()).append("ultimoId", 2L), "arquivamento");
+
+        // Act
+        long arquivadas = arquivamentoReservas.arquivar(LIMITE);
+
+        // Assert
+        assertThat(arquivadas).isEqualTo(1);
+        assertThat(reservaRepository.findAll()).extracting(Reserva::getId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(mongoTemplate.count(new Query(), ReservaRepositoryCustom.COLECAO_ARQUIVO)).isEqualTo(1);
+    }
+
+    @Test
+    void deveManterAlteracaoFeitaDepoisDaCopia() {
+        // Arrange
+        reservar(1L, LIMITE.minusDays(1));
+        reservar(2L, LIMITE.minusDays(1));
+        List<Reserva> copiadas = reservaRepository.findAllById(List.of(1L, 2L));
+        reservaRepository.arquivar(copiadas);
+        Reserva alterada = reservaRepository.findById(1L).orElseThrow();
+        alterada.setHora(LocalTime.of(21, 0));
+        reservaRepository.save(alterada);
+
+        // Act
+        List<Reserva> restantes = reservaRepository.removerArquivadas(copiadas);
+
+        // Assert
+        assertThat(restantes).extracting(Reserva::getId).containsExactly(1L);
+        assertThat(reservaRepository.findAll()).extracting(Reserva::getId).containsExactly(1L);
+        assertThat(restantes.get(0).getHora()).isEqualTo(LocalTime.of(21, 0));
+    }
+
+    @Test
+    void deveRefazerCopiaDaReservaAlteradaAntesDaRemocao() {
+        // Arrange
+        reservar(1L, LIMITE.minusDays(1));
+        reservaRepository.arquivar(reservaRepository.findAllById(List.of(1L)));
+        Reserva alterada = reservaRepository.findById(1L).orElseThrow();
+        alterada.setHora(LocalTime.of(21, 0));
+        reservaRepository.save(alterada);
+
+        // Act
+        reservaRepository.rearquivar(List.of(alterada));
+        List<Reserva> restantes = reservaRepository.removerArquivadas(List.of(alterada));
+
+        // Assert
+        assertThat(restantes).isEmpty();
+        assertThat(reservaRepository.findAll()).isEmpty();
+        assertThat(reservaRepository.buscarArquivadas("1", null, null)).extracting(Reserva::getHora).containsExactly(LocalTime.of(21, 0));
+    }
+
+    @Test
+    void deveExportarReservasDoArquivoEDaColecaoEmOrdemDeData() {
+        // Arrange
+        reservar(1L, LIMITE.minusDays(1));
+        reservar(2L, LIMITE.minusDays(10));
+        reservar(3L, LIMITE.plusDays(1));
+        arquivamentoReservas.arquivar(LIMITE);
+
+        // Act
+        List<Reserva> exportadas;
+        try (Stream<Reserva> reservas = reservaRepository.buscarParaExportacao("1", null, null, true)) {
+            exportadas = reservas.toList();
+        }
+
+        // Assert
+        assertThat(exportadas).extracting(Reserva::getId).containsExactly(2L, 1L, 3L);
+    }
+
+    private void reservar(Long id, LocalDate data) {
+        Reserva reserva = new Reserva();
+        reserva.setId(id);
+        reserva.setRestauranteId("1");
+        reserva.setData(data);
+        reserva.setHora(LocalTime.of(20, 0));
+        mongoTemplate.insert(reserva);
+    }
+}
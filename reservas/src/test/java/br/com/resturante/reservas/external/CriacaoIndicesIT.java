@@ -0,0 +1,71 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.entities.Cliente;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest
+@Testcontainers
+@ContextConfiguration(classes = MongoDBTestContainerConfig.class)
+class CriacaoIndicesIT {
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    CriacaoIndices criacaoIndices;
+
+    @BeforeEach
+    void setup() {
+        criacaoIndices.criarIndices();
+        mongoTemplate.save(new Restaurante("indices", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>()));
+        mongoTemplate.save(new Cliente("indices", "nome", "email", "telefone", "endereco"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "restaurante, nome",
+            "restaurante, localizacao",
+            "restaurante, tipoCozinha",
+            "cliente, nome",
+            "cliente, endereco",
+            "cliente, telefone"
+    })
+    void naoDeveVarrerColecaoNasBuscas(String colecao, String campo) {
+        // Arrange
+        Document filtro = new Document(campo, "valor");
+
+        // Act
+        Document plano = mongoTemplate.getCollection(colecao).find(filtro).explain();
+
+        // Assert
+        Document planoVencedor = plano.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+        List<String> estagios = new ArrayList<>();
+        coletarEstagios(planoVencedor, estagios);
+        assertThat(estagios).doesNotContain("COLLSCAN").contains("IXSCAN");
+    }
+
+    private static void coletarEstagios(Document plano, List<String> estagios) {
+        estagios.add(plano.getString("stage"));
+        if (plano.containsKey("inputStage")) {
+            coletarEstagios(plano.get("inputStage", Document.class), estagios);
+        }
+        for (Document entrada : plano.getList("inputStages", Document.class, List.of())) {
+            coletarEstagios(entrada, estagios);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
+import br.com.resturante.reservas.entities.Cliente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest
+@Testcontainers
+@ContextConfiguration(classes = MongoDBTestContainerConfig.class)
+class ImportacaoEmLoteIT {
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    ImportacaoEmLote importacaoEmLote;
+
+    @BeforeEach
+    void setup() {
+        mongoTemplate.dropCollection(Cliente.class);
+        importacaoEmLote = new ImportacaoEmLote(mongoTemplate, 2);
+    }
+
+    @Test
+    void deveGravarOsDemaisItensQuandoUmFalha() {
+        // Arrange
+        mongoTemplate.save(new Cliente("existente", "nome", "email", "telefone", "endereco"));
+        List<Cliente> clientes = new ArrayList<>();
+        clientes.add(new Cliente("lote-1", "nome 1", "email", "telefone", "endereco"));
+        clientes.add(new Cliente("existente", "nome 2", "email", "telefone", "endereco"));
+        clientes.add(null);
+        clientes.add(new Cliente("lote-2", "nome 3", "email", "telefone", "endereco"));
+        clientes.add(new Cliente("lote-3", "nome 4", "email", "telefone", "endereco"));
+
+        // Act
+        List<ResultadoImportacao> resultados = importacaoEmLote.inserir(clientes, Cliente.class, Cliente::getId);
+
+        // Assert
+        assertThat(resultados).extracting(ResultadoImportacao::getPosicao).containsExactly(0, 1, 2, 3, 4);
+        assertThat(resultados).extracting(ResultadoImportacao::isImportado).containsExactly(true, false, false, true, true);
+        assertThat(resultados.get(1).getErro()).isEqualTo(ImportacaoEmLote.DOCUMENTO_DUPLICADO);
+        assertThat(resultados.get(2).getErro()).isEqualTo(ImportacaoEmLote.DOCUMENTO_VAZIO);
+        assertThat(mongoTemplate.count(new Query(), Cliente.class)).isEqualTo(4);
+        assertThat(mongoTemplate.findById("existente", Cliente.class).getNome()).isEqualTo("nome");
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.entities.Reserva;
+import br.com.resturante.reservas.usecases.identificador.GeradorIdentificador;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.spy;
+
+@DataMongoTest
+@Testcontainers
+@ContextConfiguration(classes = MongoDBTestContainerConfig.class)
+class MigracaoReservasEmbutidasIT {
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    ReservaRepository reservaRepository;
+
+    @Autowired
+    MigracaoReservasEmbutidas migracaoReservasEmbutidas;
+
+    @Autowired
+    GeradorIdentificador geradorIdentificador;
+
+    @Autowired
+    OcupacaoHorarioRepository ocupacaoHorarioRepository;
+
+    @Test
+    void deveMoverReservasEmbutidasParaColecaoPropria() {
+        Document restaurante = new Document("_id", "migracao-1")
+                .append("nome", "nome")
+                .append("reservas", List.of(new Document("_id", 10L), new Document()));
+        mongoTemplate.insert(restaurante, "restaurante");
+
+        migracaoReservasEmbutidas.run(new DefaultApplicationArguments());
+
+        List<Reserva> reservas = reservaRepository.findByRestauranteId("migracao-1");
+        assertThat(reservas).hasSize(2);
+        assertThat(reservas).allSatisfy(reserva -> assertThat(reserva.getId()).isNotNull());
+        Document migrado = mongoTemplate.findById("migracao-1", Document.class, "restaurante");
+        assertThat(migrado).doesNotContainKey("reservas");
+    }
+
+    @Test
+    void deveManterIdsGeradosQuandoMigracaoParaAntesDeLimpar() {
+        // Arrange
+        Document restaurante = new Document("_id", "migracao-2")
+                .append("nome", "nome")
+                .append("reservas", List.of(new Document(), new Document()));
+        mongoTemplate.insert(restaurante, "restaurante");
+        MongoTemplate mongoTemplateComFalha = spy(mongoTemplate);
+        doCallRealMethod().doThrow(new IllegalStateException("queda")).when(mongoTemplateComFalha).insert(any(Reserva.class));
+        MigracaoReservasEmbutidas interrompida = new MigracaoReservasEmbutidas(mongoTemplateComFalha, geradorIdentificador, ocupacaoHorarioRepository);
+        assertThatThrownBy(() -> interrompida.run(new DefaultApplicationArguments())).isInstanceOf(IllegalStateException.class);
+        List<Object> idsGravados = mongoTemplate.findById("migracao-2", Document.class, "restaurante")
+                .getList("reservas", Document.class).stream().map(embutida -> embutida.get("_id")).toList();
+        // Act
+        migracaoReservasEmbutidas.run(new DefaultApplicationArguments());
+        // Assert
+        assertThat(idsGravados).doesNotContainNull();
+        List<Reserva> reservas = reservaRepository.findByRestauranteId("migracao-2");
+        assertThat(reservas).extracting(Reserva::getId).containsExactlyInAnyOrderElementsOf(
+                idsGravados.stream().map(id -> ((Number) id).longValue()).toList());
+    }
+}
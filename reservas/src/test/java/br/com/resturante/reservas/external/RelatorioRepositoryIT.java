@@ -0,0 +1,97 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.dto.LinhaRelatorioOcupacao;
+import br.com.resturante.reservas.entities.Reserva;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest
+@Testcontainers
+@ContextConfiguration(classes = MongoDBTestContainerConfig.class)
+class RelatorioRepositoryIT {
+
+    private static final LocalDate DATA = LocalDate.of(2030, 1, 1);
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    RelatorioRepository relatorioRepository;
+
+    private long proximoId = 1;
+
+    @BeforeEach
+    void setup() {
+        mongoTemplate.remove(new Query(), Reserva.class);
+        mongoTemplate.remove(new Query(), ReservaRepositoryCustom.COLECAO_ARQUIVO);
+        reservar("1", DATA, LocalTime.of(20, 0));
+        reservar("1", DATA, LocalTime.of(20, 0));
+        reservar("1", DATA, LocalTime.of(21, 0));
+        reservar("1", DATA.plusDays(1), LocalTime.of(20, 0));
+        reservar("2", DATA, LocalTime.of(20, 0));
+    }
+
+    @Test
+    void deveContarReservasPorRestauranteDiaEHorario() {
+        // Act
+        List<LinhaRelatorioOcupacao> linhas = relatorioRepository.contarReservasPorHorario(null, null, null, false);
+
+        // Assert
+        assertThat(linhas).extracting(LinhaRelatorioOcupacao::getRestauranteId).containsExactly("1", "1", "1", "2");
+        assertThat(linhas).extracting(LinhaRelatorioOcupacao::getReservas).containsExactly(2L, 1L, 1L, 1L);
+        assertThat(linhas.get(0).getData()).isEqualTo(DATA);
+        assertThat(linhas.get(0).getHora()).isEqualTo(LocalTime.of(20, 0));
+    }
+
+    @Test
+    void deveFiltrarPorRestauranteEPeriodo() {
+        // Act
+        List<LinhaRelatorioOcupacao> linhas = relatorioRepository.contarReservasPorHorario(Set.of("1"), DATA.plusDays(1), DATA.plusDays(1), false);
+
+        // Assert
+        assertThat(linhas).hasSize(1);
+        assertThat(linhas.get(0).getData()).isEqualTo(DATA.plusDays(1));
+        assertThat(linhas.get(0).getReservas()).isEqualTo(1L);
+    }
+
+    @Test
+    void deveSomarReservasArquivadasDoMesmoHorario() {
+        // Arrange
+        Reserva arquivada = new Reserva();
+        arquivada.setId(proximoId++);
+        arquivada.setRestauranteId("2");
+        arquivada.setData(DATA);
+        arquivada.setHora(LocalTime.of(20, 0));
+        mongoTemplate.insert(arquivada, ReservaRepositoryCustom.COLECAO_ARQUIVO);
+
+        // Act
+        List<LinhaRelatorioOcupacao> linhas = relatorioRepository.contarReservasPorHorario(Set.of("2"), DATA, DATA, true);
+
+        // Assert
+        assertThat(linhas).hasSize(1);
+        assertThat(linhas.get(0).getReservas()).isEqualTo(2L);
+    }
+
+    private void reservar(String restauranteId, LocalDate data, LocalTime hora) {
+        Reserva reserva = new Reserva();
+        reserva.setId(proximoId++);
+        reserva.setRestauranteId(restauranteId);
+        reserva.setData(data);
+        reserva.setHora(hora);
+        mongoTemplate.insert(reserva);
+    }
+}
@@ -0,0 +1,71 @@
+package br.com.resturante.reservas.external;
+
+import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.entities.Mesa;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DataMongoTest
+@Testcontainers
+@ContextConfiguration(classes = MongoDBTestContainerConfig.class)
+class RestauranteRepositoryIT {
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    RestauranteRepository restauranteRepository;
+
+    @BeforeEach
+    void setup() {
+        mongoTemplate.remove(new Query(), Restaurante.class);
+        salvar("perto", "Italiana", -46.6500, -23.5600);
+        salvar("meio", "Japonesa", -46.6500, -23.5700);
+        salvar("longe", "Italiana", -46.6500, -23.6600);
+    }
+
+    @Test
+    void deveBuscarProximosDoMaisPertoAoMaisLongeDentroDoRaio() {
+        // Act
+        List<RestauranteProximo> proximos = restauranteRepository.buscarProximos(-23.5600, -46.6500, 5_000, 10, null);
+
+        // Assert
+        assertThat(proximos).extracting(RestauranteProximo::getId).containsExactly("perto", "meio");
+        assertThat(proximos.get(0).getDistanciaMetros()).isCloseTo(0, within(1.0));
+        assertThat(proximos.get(1).getDistanciaMetros()).isCloseTo(1_112, within(10.0));
+        assertThat(proximos.get(1).getNome()).isEqualTo("nome meio");
+        assertThat(proximos.get(1).getTipoCozinha()).isEqualTo("Japonesa");
+        assertThat(proximos.get(1).getCoordenadas()).isEqualTo(new GeoJsonPoint(-46.6500, -23.5700));
+    }
+
+    @Test
+    void deveFiltrarProximosPorTipoCozinha() {
+        // Act
+        List<RestauranteProximo> proximos = restauranteRepository.buscarProximos(-23.5600, -46.6500, 50_000, 10, "Italiana");
+
+        // Assert
+        assertThat(proximos).extracting(RestauranteProximo::getId).containsExactly("perto", "longe");
+    }
+
+    private void salvar(String id, String tipoCozinha, double longitude, double latitude) {
+        Restaurante restaurante = new Restaurante(id, "nome " + id, "localizacao", tipoCozinha, "horarioFuncionamento", 10, 1, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa()));
+        restaurante.setCoordenadas(new GeoJsonPoint(longitude, latitude));
+        mongoTemplate.save(restaurante);
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.resturante.reservas.performance;
+
+import br.com.resturante.reservas.usecases.identificador.GeradorIdentificador;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazao do gerador de ids com uma thread e com uma thread por nucleo disputando o
+ * mesmo gerador. Executar com: mvn -Pbenchmark test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeradorIdentificadorBenchmark {
+
+    private final GeradorIdentificador gerador = new GeradorIdentificador(1);
+
+    @Benchmark
+    @Threads(1)
+    public long umaThread() {
+        return gerador.proximo();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long threadPorNucleo() {
+        return gerador.proximo();
+    }
+}
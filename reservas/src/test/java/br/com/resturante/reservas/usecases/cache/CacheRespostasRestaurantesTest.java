@@ -0,0 +1,87 @@
+package br.com.resturante.reservas.usecases.cache;
+
+import br.com.resturante.reservas.entities.Restaurante;
+import br.com.resturante.reservas.usecases.cache.CacheRespostasRestaurantes.RespostaSerializada;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheRespostasRestaurantesTest {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    AtomicInteger leituras;
+
+    @BeforeEach
+    void setup() {
+        leituras = new AtomicInteger();
+    }
+
+    @Test
+    void shouldSerializeOncePerVersao() throws IOException {
+        CacheRespostasRestaurantes cache = new CacheRespostasRestaurantes(objectMapper, new SimpleMeterRegistry(), true, 1_000_000, 60, false);
+
+        RespostaSerializada primeira = cache.buscar("1", 3L, () -> carregar(3L));
+        RespostaSerializada segunda = cache.buscar("1", 3L, () -> carregar(3L));
+
+        assertSame(primeira, segunda);
+        assertEquals(1, leituras.get());
+        assertEquals("nome", objectMapper.readTree(segunda.getJson()).get("nome").asText());
+        assertNull(segunda.getGzip());
+    }
+
+    @Test
+    void shouldLoadAgainWhenVersaoChangesOrEntryIsInvalidated() {
+        CacheRespostasRestaurantes cache = new CacheRespostasRestaurantes(objectMapper, new SimpleMeterRegistry(), true, 1_000_000, 60, false);
+
+        cache.buscar("1", 3L, () -> carregar(3L));
+        RespostaSerializada nova = cache.buscar("1", 4L, () -> carregar(4L));
+        cache.buscar("1", 4L, () -> carregar(4L));
+        cache.invalidar("1");
+        cache.buscar("1", 4L, () -> carregar(4L));
+
+        assertEquals(4L, nova.getVersao());
+        assertEquals(3, leituras.get());
+    }
+
+    @Test
+    void shouldKeepGzippedCopyWhenEnabled() throws IOException {
+        CacheRespostasRestaurantes cache = new CacheRespostasRestaurantes(objectMapper, new SimpleMeterRegistry(), true, 1_000_000, 60, true);
+
+        RespostaSerializada resposta = cache.buscar("1", 3L, () -> carregar(3L));
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(resposta.getGzip()))) {
+            assertArrayEquals(resposta.getJson(), gzip.readAllBytes());
+        }
+    }
+
+    @Test
+    void shouldNotCacheWithoutVersaoOrWhenDisabled() {
+        CacheRespostasRestaurantes cache = new CacheRespostasRestaurantes(objectMapper, new SimpleMeterRegistry(), true, 1_000_000, 60, false);
+        CacheRespostasRestaurantes desabilitado = new CacheRespostasRestaurantes(objectMapper, new SimpleMeterRegistry(), false, 1_000_000, 60, false);
+
+        cache.buscar("1", null, () -> carregar(null));
+        cache.buscar("1", null, () -> carregar(null));
+        desabilitado.buscar("1", 3L, () -> carregar(3L));
+        desabilitado.buscar("1", 3L, () -> carregar(3L));
+
+        assertEquals(4, leituras.get());
+        assertNull(cache.buscar("2", 1L, () -> null));
+    }
+
+    private Restaurante carregar(Long versao) {
+        leituras.incrementAndGet();
+        Restaurante restaurante = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        restaurante.setVersao(versao);
+        return restaurante;
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.resturante.reservas.usecases.cache;
+
+import br.com.resturante.reservas.entities.Mesa;
+import br.com.resturante.reservas.entities.Restaurante;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheRestaurantesTest {
+
+    SimpleMeterRegistry meterRegistry;
+
+    AtomicInteger leituras;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        leituras = new AtomicInteger();
+    }
+
+    @Test
+    void shouldLoadOnceAndCountHitsAndMisses() {
+        CacheRestaurantes cache = new CacheRestaurantes(meterRegistry, true, 1_000_000, 60);
+
+        cache.buscar("1", this::carregar);
+        Optional<Restaurante> result = cache.buscar("1", this::carregar);
+
+        assertEquals("1", result.orElseThrow().getId());
+        assertEquals(1, leituras.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CacheRestaurantes.NOME).tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CacheRestaurantes.NOME).tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void shouldNotCacheMissingRestaurante() {
+        CacheRestaurantes cache = new CacheRestaurantes(meterRegistry, true, 1_000_000, 60);
+
+        assertTrue(cache.buscar("inexistente", id -> { leituras.incrementAndGet(); return Optional.empty(); }).isEmpty());
+        assertTrue(cache.buscar("inexistente", id -> { leituras.incrementAndGet(); return Optional.empty(); }).isEmpty());
+
+        assertEquals(2, leituras.get());
+    }
+
+    @Test
+    void shouldReadAgainAfterInvalidarAndServeUpdatedRestaurante() {
+        CacheRestaurantes cache = new CacheRestaurantes(meterRegistry, true, 1_000_000, 60);
+        cache.buscar("1", this::carregar);
+
+        cache.invalidar("1");
+        cache.buscar("1", this::carregar);
+        Restaurante atualizado = restaurante("1", 0);
+        atualizado.setNome("novo nome");
+        cache.atualizar(atualizado);
+
+        assertEquals(2, leituras.get());
+        assertEquals("novo nome", cache.buscar("1", this::carregar).orElseThrow().getNome());
+    }
+
+    @Test
+    void shouldAlwaysReadWhenDisabled() {
+        CacheRestaurantes cache = new CacheRestaurantes(meterRegistry, false, 1_000_000, 60);
+
+        cache.buscar("1", this::carregar);
+        cache.atualizar(restaurante("1", 0));
+        cache.buscar("1", this::carregar);
+
+        assertEquals(2, leituras.get());
+    }
+
+    @Test
+    void shouldWeighRestauranteByItsMesas() {
+        assertTrue(CacheRestaurantes.peso(restaurante("1", 100)) > CacheRestaurantes.peso(restaurante("1", 0)) + 100 * 32);
+    }
+
+    private Optional<Restaurante> carregar(String id) {
+        leituras.incrementAndGet();
+        return Optional.of(restaurante(id, 0));
+    }
+
+    private static Restaurante restaurante(String id, int mesas) {
+        return new Restaurante(id, "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, mesas,
+                new ArrayList<>(Collections.nCopies(mesas, new Mesa())));
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.resturante.reservas.usecases.concorrencia;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetentativaOtimistaTest {
+
+    SimpleMeterRegistry meterRegistry;
+
+    RetentativaOtimista retentativaOtimista;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        retentativaOtimista = new RetentativaOtimista(meterRegistry, 3, 1, 2);
+    }
+
+    @Test
+    void shouldReturnResultWhenMutationSucceedsAfterConflicts() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        String result = retentativaOtimista.executar("operacao", "1", () -> {
+            if (chamadas.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("conflito");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, chamadas.get());
+        assertEquals(2.0, meterRegistry.get("reservas.concorrencia.conflitos").tag("operacao", "operacao").counter().count());
+        assertEquals(2.0, meterRegistry.get("reservas.concorrencia.retentativas").summary().totalAmount());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenConflictsExceedMaxTentativas() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        assertThrows(OptimisticLockingFailureException.class, () -> retentativaOtimista.executar("operacao", "1", () -> {
+            chamadas.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflito");
+        }));
+
+        assertEquals(3, chamadas.get());
+        assertEquals(3.0, meterRegistry.get("reservas.concorrencia.conflitos").counter().count());
+    }
+
+    @Test
+    void shouldNotRetryWhenMutationFailsWithOtherException() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        assertThrows(RuntimeException.class, () -> retentativaOtimista.executar("operacao", "1", () -> {
+            chamadas.incrementAndGet();
+            throw new RuntimeException("Reserva não encontrada");
+        }));
+
+        assertEquals(1, chamadas.get());
+        assertEquals(1, meterRegistry.get("reservas.concorrencia.retentativas").summary().count());
+    }
+}
@@ -0,0 +1,129 @@
+package br.com.resturante.reservas.usecases.disponibilidade;
+
+import br.com.resturante.reservas.entities.OcupacaoHorario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceDisponibilidadeTest {
+
+    private static final LocalDate DATA = LocalDate.of(2030, 1, 1);
+
+    IndiceDisponibilidade indiceDisponibilidade;
+
+    @BeforeEach
+    void setup() {
+        indiceDisponibilidade = new IndiceDisponibilidade();
+    }
+
+    @Test
+    void shouldCountEachSlotSeparately() {
+        for (int dia = 10; dia >= 0; dia--) {
+            indiceDisponibilidade.ocupar("1", DATA.plusDays(dia), LocalTime.of(20, 0), 0);
+            indiceDisponibilidade.ocupar("1", DATA.plusDays(dia), LocalTime.of(19, 30), 0);
+            indiceDisponibilidade.ocupar("1", DATA.plusDays(dia), LocalTime.of(20, 0), 1);
+        }
+
+        assertEquals(2, indiceDisponibilidade.mesasOcupadas("1", DATA.plusDays(5), LocalTime.of(20, 0)));
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("1", DATA.plusDays(5), LocalTime.of(19, 30)));
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("1", DATA.plusDays(5), LocalTime.of(21, 0)));
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("1", DATA.plusDays(11), LocalTime.of(20, 0)));
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("2", DATA, LocalTime.of(20, 0)));
+    }
+
+    @Test
+    void shouldReturnFirstFreeMesaOfTheSlot() {
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 0);
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 1);
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 3);
+
+        assertEquals(2, indiceDisponibilidade.primeiraMesaLivre("1", DATA, LocalTime.of(20, 0), 4));
+        assertEquals(0, indiceDisponibilidade.primeiraMesaLivre("1", DATA, LocalTime.of(21, 0), 4));
+        assertEquals(-1, indiceDisponibilidade.primeiraMesaLivre("1", DATA, LocalTime.of(20, 0), 2));
+    }
+
+    @Test
+    void shouldKeepSlotsWhenMesaIndexNeedsMoreWords() {
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(19, 0), 5);
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 1);
+        for (int mesa = 0; mesa < 70; mesa++) {
+            indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(21, 0), mesa);
+        }
+
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(19, 0)));
+        assertEquals(0, indiceDisponibilidade.primeiraMesaLivre("1", DATA, LocalTime.of(19, 0), 100));
+        assertEquals(0, indiceDisponibilidade.primeiraMesaLivre("1", DATA, LocalTime.of(20, 0), 100));
+        assertEquals(70, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(21, 0)));
+        assertEquals(70, indiceDisponibilidade.primeiraMesaLivre("1", DATA, LocalTime.of(21, 0), 100));
+    }
+
+    @Test
+    void shouldFreeOnlyTheReleasedMesa() {
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 0);
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 1);
+
+        indiceDisponibilidade.liberar("1", DATA, LocalTime.of(20, 0), 0);
+        indiceDisponibilidade.liberar("1", DATA, LocalTime.of(20, 0), 0);
+
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(20, 0)));
+        assertEquals(0, indiceDisponibilidade.primeiraMesaLivre("1", DATA, LocalTime.of(20, 0), 2));
+    }
+
+    @Test
+    void shouldReplaceContentWhenRebuilt() {
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 0);
+        OcupacaoHorario ocupacao = new OcupacaoHorario();
+        ocupacao.setRestauranteId("2");
+        ocupacao.setData(DATA);
+        ocupacao.setHora(LocalTime.of(20, 0));
+        ocupacao.getMapa().put("0", 0b1011L);
+        ocupacao.getMapa().put("1", 1L);
+
+        indiceDisponibilidade.reconstruir(Stream.of(ocupacao));
+
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(20, 0)));
+        assertEquals(4, indiceDisponibilidade.mesasOcupadas("2", DATA, LocalTime.of(20, 0)));
+        assertEquals(2, indiceDisponibilidade.primeiraMesaLivre("2", DATA, LocalTime.of(20, 0), 100));
+    }
+
+    @Test
+    void shouldForgetRestauranteWhenRemoved() {
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 0);
+
+        indiceDisponibilidade.removerRestaurante("1");
+
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(20, 0)));
+    }
+
+    @Test
+    void shouldDropDaysBeforeTheGivenDate() {
+        indiceDisponibilidade.ocupar("1", DATA.minusDays(2), LocalTime.of(20, 0), 0);
+        indiceDisponibilidade.ocupar("1", DATA.minusDays(1), LocalTime.of(20, 0), 0);
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 0);
+        indiceDisponibilidade.ocupar("1", DATA.plusDays(1), LocalTime.of(20, 0), 1);
+
+        indiceDisponibilidade.descartarAntesDe(DATA);
+
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("1", DATA.minusDays(2), LocalTime.of(20, 0)));
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("1", DATA.minusDays(1), LocalTime.of(20, 0)));
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(20, 0)));
+        assertEquals(0, indiceDisponibilidade.primeiraMesaLivre("1", DATA.plusDays(1), LocalTime.of(20, 0), 2));
+    }
+
+    @Test
+    void shouldFreeEveryMesaOfTheSlotWhenCleared() {
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 0);
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(20, 0), 1);
+        indiceDisponibilidade.ocupar("1", DATA, LocalTime.of(21, 0), 0);
+
+        indiceDisponibilidade.limpar("1", DATA, LocalTime.of(20, 0));
+
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(20, 0)));
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("1", DATA, LocalTime.of(21, 0)));
+    }
+}
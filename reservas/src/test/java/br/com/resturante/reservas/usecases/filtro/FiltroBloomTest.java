@@ -0,0 +1,57 @@
+package br.com.resturante.reservas.usecases.filtro;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltroBloomTest {
+
+    @Test
+    void shouldNeverMissAddedValuesWhileGrowing() {
+        FiltroBloom filtro = new FiltroBloom(1000, 0.01);
+
+        for (int i = 0; i < 20_000; i++) {
+            filtro.adicionar("t:" + (11_900_000_000L + i));
+        }
+
+        assertTrue(filtro.quantidadeCamadas() > 1);
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(filtro.talvezContem("t:" + (11_900_000_000L + i)));
+        }
+    }
+
+    @Test
+    void shouldKeepFalsePositiveRateBelowConfiguredAfterGrowing() {
+        FiltroBloom filtro = new FiltroBloom(1000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filtro.adicionar("e:cliente" + i + "@email.com");
+        }
+
+        int falsosPositivos = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filtro.talvezContem("e:outro" + i + "@email.com")) {
+                falsosPositivos++;
+            }
+        }
+
+        assertTrue(falsosPositivos < 1_500, "falsos positivos: " + falsosPositivos);
+    }
+
+    @Test
+    void shouldNotGrowWhenSameValueIsAddedAgain() {
+        FiltroBloom filtro = new FiltroBloom(10, 0.01);
+
+        for (int i = 0; i < 1_000; i++) {
+            filtro.adicionar("t:11999990000");
+        }
+
+        assertEquals(1, filtro.quantidadeCamadas());
+    }
+
+    @Test
+    void shouldRejectInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(1000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new FiltroBloom(1000, 1));
+    }
+}
@@ -0,0 +1,38 @@
+package br.com.resturante.reservas.usecases.filtro;
+
+import br.com.resturante.reservas.dto.ContatoCliente;
+import br.com.resturante.reservas.entities.Cliente;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltroContatosClientesTest {
+
+    @Test
+    void shouldKeepClienteSavedWhileRebuilding() {
+        FiltroContatosClientes filtro = new FiltroContatosClientes(true, 1000, 0.01);
+        filtro.reconstruir(0, Stream::empty);
+
+        filtro.reconstruir(1, () -> {
+            filtro.adicionar(new Cliente("1", "Ana", "ana@email.com", "11999990000", "Rua A"));
+            return Stream.of(new ContatoCliente("11888880000", "bia@email.com"));
+        });
+
+        assertTrue(filtro.talvezTelefone("11999990000"));
+        assertTrue(filtro.talvezEmail("ana@email.com"));
+        assertTrue(filtro.talvezTelefone("11888880000"));
+    }
+
+    @Test
+    void shouldKeepClienteSavedAfterRebuild() {
+        FiltroContatosClientes filtro = new FiltroContatosClientes(true, 1000, 0.01);
+        filtro.reconstruir(0, Stream::empty);
+
+        filtro.adicionar(new Cliente("1", "Ana", "ana@email.com", "11999990000", "Rua A"));
+
+        assertTrue(filtro.talvezTelefone("11999990000"));
+        assertFalse(filtro.talvezTelefone("11888880000"));
+    }
+}
@@ -0,0 +1,85 @@
+package br.com.resturante.reservas.usecases.identificador;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeradorIdentificadorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_POR_THREAD = 200_000;
+
+    @Test
+    void shouldGenerateIncreasingIdsWithNodeBits() {
+        GeradorIdentificador gerador = new GeradorIdentificador(37);
+
+        long anterior = gerador.proximo();
+        for (int i = 0; i < 100_000; i++) {
+            long id = gerador.proximo();
+            assertTrue(id > anterior);
+            assertEquals(37, (id >>> GeradorIdentificador.BITS_SEQUENCIA) & GeradorIdentificador.MAXIMO_NO);
+            anterior = id;
+        }
+    }
+
+    @Test
+    void shouldStartFromCurrentTime() {
+        long antes = System.currentTimeMillis();
+
+        long id = new GeradorIdentificador(0).proximo();
+
+        long instante = (id >>> (GeradorIdentificador.BITS_NO + GeradorIdentificador.BITS_SEQUENCIA)) + GeradorIdentificador.EPOCA;
+        assertTrue(instante >= antes);
+        assertTrue(instante <= System.currentTimeMillis());
+    }
+
+    @Test
+    void shouldNotRepeatIdsAcrossThreads() throws Exception {
+        GeradorIdentificador gerador = new GeradorIdentificador(1);
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> resultados = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Callable<long[]> geracao = () -> {
+                    largada.await();
+                    long[] ids = new long[IDS_POR_THREAD];
+                    for (int i = 0; i < IDS_POR_THREAD; i++) {
+                        ids[i] = gerador.proximo();
+                    }
+                    return ids;
+                };
+                resultados.add(executor.submit(geracao));
+            }
+            largada.countDown();
+
+            Set<Long> unicos = new HashSet<>(THREADS * IDS_POR_THREAD * 2);
+            for (Future<long[]> resultado : resultados) {
+                long[] ids = resultado.get();
+                for (int i = 0; i < ids.length; i++) {
+                    assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                    unicos.add(ids[i]);
+                }
+            }
+            assertEquals(THREADS * IDS_POR_THREAD, unicos.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRejectNodeOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new GeradorIdentificador(-1));
+        assertThrows(IllegalArgumentException.class, () -> new GeradorIdentificador(GeradorIdentificador.MAXIMO_NO + 1));
+    }
+}
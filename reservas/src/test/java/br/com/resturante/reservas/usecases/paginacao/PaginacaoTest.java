@@ -0,0 +1,56 @@
+package br.com.resturante.reservas.usecases.paginacao;
+
+import br.com.resturante.reservas.dto.Pagina;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaginacaoTest {
+
+    Paginacao paginacao = new Paginacao(20, 100);
+
+    @Test
+    void shouldUseDefaultSizeAndCapAtMaximum() {
+        assertEquals(20, paginacao.tamanho(null));
+        assertEquals(5, paginacao.tamanho(5));
+        assertEquals(100, paginacao.tamanho(1000));
+        assertEquals(Limit.of(21), paginacao.limite(20));
+    }
+
+    @Test
+    void shouldRejectNonPositiveSize() {
+        assertThrows(IllegalArgumentException.class, () -> paginacao.tamanho(0));
+    }
+
+    @Test
+    void shouldReturnCursorOfLastItemWhenThereIsAnotherPage() {
+        Pagina<String> pagina = paginacao.pagina(List.of("65f1a2b3c4d5e6f708192a3b", "65f1a2b3c4d5e6f708192a3c", "65f1a2b3c4d5e6f708192a3d"), 2, Function.identity());
+
+        assertEquals(List.of("65f1a2b3c4d5e6f708192a3b", "65f1a2b3c4d5e6f708192a3c"), pagina.getItens());
+        assertEquals("65f1a2b3c4d5e6f708192a3c", paginacao.depoisDe(pagina.getProximaPagina()));
+    }
+
+    @Test
+    void shouldNotReturnCursorOnLastPage() {
+        Pagina<String> pagina = paginacao.pagina(List.of("1", "2"), 2, Function.identity());
+
+        assertEquals(List.of("1", "2"), pagina.getItens());
+        assertNull(pagina.getProximaPagina());
+    }
+
+    @Test
+    void shouldStartFromBeginningWithoutCursor() {
+        assertNull(paginacao.depoisDe(null));
+        assertNull(paginacao.depoisDe(""));
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> paginacao.depoisDe("%%%"));
+        assertEquals(Paginacao.CURSOR_INVALIDO, exception.getMessage());
+    }
+}
@@ -163,9 +163,9 @@ class ClienteServiceIT {
         Cliente clienteSaved = new Cliente("1","nome", "email", "12455656", "rua x");
         mongoTemplate.save(clienteSaved);
         // Act
-        clienteService.getAllClientes();
+        var clientes = clienteService.listarClientes(null, null);
         // Assert
-        assertThat(clienteService.getAllClientes()).isNotEmpty();
+        assertThat(clientes.getItens()).isNotEmpty();
     }
 
 
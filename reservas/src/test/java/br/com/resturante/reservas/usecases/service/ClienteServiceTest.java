@@ -1,18 +1,30 @@
 package br.com.resturante.reservas.usecases.service;
 
+import br.com.resturante.reservas.dto.ContatoCliente;
+import br.com.resturante.reservas.dto.HashCliente;
+import br.com.resturante.reservas.dto.Pagina;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
 import br.com.resturante.reservas.entities.Cliente;
 import br.com.resturante.reservas.external.ClienteRepository;
+import br.com.resturante.reservas.external.ImportacaoEmLote;
+import br.com.resturante.reservas.usecases.cache.CacheClientesAusentes;
+import br.com.resturante.reservas.usecases.filtro.FiltroContatosClientes;
+import br.com.resturante.reservas.usecases.paginacao.Paginacao;
 import br.com.resturante.reservas.usecases.service.impl.ClienteServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Limit;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +37,18 @@ class ClienteServiceTest {
     @Mock
     ClienteRepository clienteRepository;
 
+    @Mock
+    ImportacaoEmLote importacaoEmLote;
+
+    @Spy
+    Paginacao paginacao = new Paginacao(20, 100);
+
+    @Spy
+    CacheClientesAusentes cacheClientesAusentes = new CacheClientesAusentes(new SimpleMeterRegistry(), true, 1000, 60);
+
+    @Spy
+    FiltroContatosClientes filtroContatosClientes = new FiltroContatosClientes(true, 1000, 0.01);
+
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
@@ -190,13 +214,134 @@ class ClienteServiceTest {
     }
 
     @Test
-    void shouldReturnAllClientesWhenGetAllClientesIsCalled() {
+    void shouldReturnFirstPageWhenListarClientesIsCalledWithoutCursor() {
         List<Cliente> expectedClientes = Arrays.asList(new Cliente(), new Cliente());
-        when(clienteRepository.findAll()).thenReturn(expectedClientes);
+        when(clienteRepository.findAllByOrderByIdAsc(Limit.of(21))).thenReturn(expectedClientes);
+
+        Pagina<Cliente> result = clienteService.listarClientes(null, null);
+
+        assertEquals(expectedClientes, result.getItens());
+        assertNull(result.getProximaPagina());
+        verify(clienteRepository, times(0)).findAll();
+    }
+
+    @Test
+    void shouldCapPageSizeWhenListarClientesIsCalledWithLargeSize() {
+        when(clienteRepository.findAllByOrderByIdAsc(Limit.of(101))).thenReturn(List.of());
+
+        clienteService.listarClientes(null, 1000);
+
+        verify(clienteRepository, times(1)).findAllByOrderByIdAsc(Limit.of(101));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenListarClientesIsCalledWithInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> clienteService.listarClientes("%%%", null));
+        verify(clienteRepository, times(0)).findByIdGreaterThanOrderByIdAsc(anyString(), any(Limit.class));
+    }
+
+    @Test
+    void shouldAssignIdsBeforeBulkInsertWhenImportarClientesIsCalled() {
+        Cliente semId = new Cliente();
+        Cliente comId = new Cliente("7", "nome", "email", "telefone", "endereco");
+        List<Cliente> clientes = Arrays.asList(semId, comId);
+        List<ResultadoImportacao> esperado = List.of(new ResultadoImportacao(0, "a", true, null), new ResultadoImportacao(1, "7", true, null));
+        when(importacaoEmLote.inserir(eq(clientes), eq(Cliente.class), any())).thenReturn(esperado);
+
+        List<ResultadoImportacao> result = clienteService.importarClientes(clientes);
+
+        assertEquals(esperado, result);
+        assertNotNull(semId.getId());
+        assertEquals("7", comId.getId());
+        verify(clienteRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotQueryAgainForRecentlyMissingId() {
+        when(clienteRepository.findById("inexistente")).thenReturn(Optional.empty());
+
+        assertThrows(ClienteNaoEncontradoException.class, () -> clienteService.listarClientePorId("inexistente"));
+        ClienteNaoEncontradoException e = assertThrows(ClienteNaoEncontradoException.class, () -> clienteService.listarClientePorId("inexistente"));
+
+        assertEquals(ClienteServiceImpl.CLIENTE_NAO_ENCONTRADO, e.getMessage());
+        assertEquals(0, e.getStackTrace().length);
+        verify(clienteRepository, times(1)).findById("inexistente");
+    }
+
+    @Test
+    void shouldQueryAgainAfterClienteIsCadastrado() throws Exception {
+        Cliente cliente = new Cliente("7", "nome", "email", "telefone", "endereco");
+        when(clienteRepository.findByTelefone("telefone")).thenReturn(Optional.empty()).thenReturn(Optional.of(cliente));
+        when(clienteRepository.save(cliente)).thenReturn(cliente);
 
-        List<Cliente> result = clienteService.getAllClientes();
+        assertThrows(ClienteNaoEncontradoException.class, () -> clienteService.buscarClientePorTelefone("telefone"));
+        clienteService.cadastrarCliente(cliente);
+        Cliente result = clienteService.buscarClientePorTelefone("telefone");
+
+        assertEquals(cliente, result);
+        verify(clienteRepository, times(2)).findByTelefone("telefone");
+    }
+
+    @Test
+    void shouldAnswerUnknownContatoWithoutQueryingOnceFiltroIsLoaded() throws Exception {
+        filtroContatosClientes.reconstruir(1, () -> Stream.of(new ContatoCliente("(11) 99999-0000", "Ana@Email.com")));
+
+        assertFalse(clienteService.existeCliente("11888880000", "outro@email.com"));
+        assertThrows(ClienteNaoEncontradoException.class, () -> clienteService.buscarClientePorTelefone("11888880000"));
+
+        verify(clienteRepository, times(0)).existsByTelefone(anyString());
+        verify(clienteRepository, times(0)).existsByEmail(anyString());
+        verify(clienteRepository, times(0)).findByTelefone(anyString());
+    }
+
+    @Test
+    void shouldQueryWhenContatoMayExist() {
+        filtroContatosClientes.reconstruir(1, () -> Stream.of(new ContatoCliente("11999990000", "ana@email.com")));
+        when(clienteRepository.existsByEmail(" ANA@email.com")).thenReturn(true);
+
+        assertTrue(clienteService.existeCliente(null, " ANA@email.com"));
+        verify(clienteRepository, times(1)).existsByEmail(" ANA@email.com");
+    }
+
+    @Test
+    void shouldAddContatosOfCadastradoClienteToFiltro() {
+        filtroContatosClientes.reconstruir(0, Stream::empty);
+        Cliente cliente = new Cliente("8", "nome", "novo@email.com", "11777770000", "endereco");
+        when(clienteRepository.save(cliente)).thenReturn(cliente);
+        when(clienteRepository.existsByTelefone("11777770000")).thenReturn(true);
+
+        assertFalse(clienteService.existeCliente("11777770000", null));
+        clienteService.cadastrarCliente(cliente);
+
+        assertTrue(clienteService.existeCliente("11777770000", null));
+        verify(clienteRepository, times(1)).existsByTelefone("11777770000");
+    }
+
+    @Test
+    void shouldRejectExisteClienteWithoutTelefoneOrEmail() {
+        assertThrows(IllegalArgumentException.class, () -> clienteService.existeCliente(" ", null));
+    }
+
+    @Test
+    void shouldStoreContentHashWhenClienteIsCadastradoOrAtualizado() {
+        Cliente cliente = new Cliente("9", "nome", "email", "11999990000", "rua x");
+        when(clienteRepository.save(any(Cliente.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Long hashCadastro = clienteService.cadastrarCliente(cliente).getHash();
+        Long hashMesmoConteudo = clienteService.atualizarCliente("9", new Cliente("9", "nome", "email", "11999990000", "rua x")).getHash();
+        Long hashAlterado = clienteService.atualizarCliente("9", new Cliente("9", "nome", "email", "11999990000", "rua y")).getHash();
+
+        assertNotNull(hashCadastro);
+        assertEquals(hashCadastro, hashMesmoConteudo);
+        assertNotEquals(hashCadastro, hashAlterado);
+    }
+
+    @Test
+    void shouldReadOnlyHashWhenBuscarHashClienteIsCalled() {
+        when(clienteRepository.findHashById("9")).thenReturn(Optional.of(new HashCliente("9", 42L)));
 
-        assertEquals(expectedClientes, result);
-        verify(clienteRepository, times(1)).findAll();
+        assertEquals(42L, clienteService.buscarHashCliente("9"));
+        assertNull(clienteService.buscarHashCliente("10"));
+        verify(clienteRepository, never()).findById(anyString());
     }
 }
@@ -0,0 +1,102 @@
+package br.com.resturante.reservas.usecases.service;
+
+import br.com.resturante.reservas.dto.LinhaRelatorioOcupacao;
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.external.ArquivamentoReservas;
+import br.com.resturante.reservas.external.RelatorioRepository;
+import br.com.resturante.reservas.external.RestauranteRepository;
+import br.com.resturante.reservas.usecases.service.impl.RelatorioServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RelatorioServiceTest {
+
+    @InjectMocks
+    RelatorioService relatorioService = new RelatorioServiceImpl();
+
+    @Mock
+    RelatorioRepository relatorioRepository;
+
+    @Mock
+    RestauranteRepository restauranteRepository;
+
+    @Mock
+    ArquivamentoReservas arquivamentoReservas;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void shouldComputeOcupacaoFromAggregatedRows() {
+        LocalDate de = LocalDate.of(2030, 1, 1);
+        when(arquivamentoReservas.limite()).thenReturn(LocalDate.of(2029, 10, 1));
+        when(relatorioRepository.contarReservasPorHorario(null, de, null, false)).thenReturn(List.of(linha("1", 3), linha("2", 1)));
+        when(restauranteRepository.findResumoByIdIn(Set.of("1", "2"))).thenReturn(List.of(
+                new RestauranteResumo("1", "Cantina", "localizacao", "italiana", 40, 4, null),
+                new RestauranteResumo("2", "Sushi", "localizacao", "japonesa", 20, 0, null)));
+
+        List<LinhaRelatorioOcupacao> result = relatorioService.relatorioOcupacao(de, null, null);
+
+        assertEquals(2, result.size());
+        assertEquals("Cantina", result.get(0).getNomeRestaurante());
+        assertEquals(75.0, result.get(0).getPercentualOcupacao());
+        assertEquals("Sushi", result.get(1).getNomeRestaurante());
+        assertNull(result.get(1).getPercentualOcupacao());
+    }
+
+    @Test
+    void shouldRestrictAggregationToRestaurantesOfTipoCozinha() {
+        when(restauranteRepository.findResumoByTipoCozinha("italiana")).thenReturn(List.of(
+                new RestauranteResumo("1", "Cantina", "localizacao", "italiana", 40, 4, null)));
+        when(relatorioRepository.contarReservasPorHorario(Set.of("1"), null, null, true)).thenReturn(List.of(linha("1", 2)));
+
+        List<LinhaRelatorioOcupacao> result = relatorioService.relatorioOcupacao(null, null, "italiana");
+
+        assertEquals(1, result.size());
+        assertEquals(50.0, result.get(0).getPercentualOcupacao());
+        verify(restauranteRepository, never()).findResumoByIdIn(any());
+    }
+
+    @Test
+    void shouldSkipAggregationWhenNoRestauranteHasTipoCozinha() {
+        when(restauranteRepository.findResumoByTipoCozinha("grega")).thenReturn(List.of());
+
+        List<LinhaRelatorioOcupacao> result = relatorioService.relatorioOcupacao(null, null, "grega");
+
+        assertTrue(result.isEmpty());
+        verify(relatorioRepository, never()).contarReservasPorHorario(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void shouldIncludeArchiveWhenPeriodStartsBeforeLimite() {
+        LocalDate de = LocalDate.of(2029, 6, 1);
+        when(arquivamentoReservas.limite()).thenReturn(LocalDate.of(2030, 1, 1));
+        when(relatorioRepository.contarReservasPorHorario(null, de, null, true)).thenReturn(List.of());
+
+        relatorioService.relatorioOcupacao(de, null, null);
+
+        verify(relatorioRepository, times(1)).contarReservasPorHorario(null, de, null, true);
+    }
+
+    private static LinhaRelatorioOcupacao linha(String restauranteId, long reservas) {
+        LinhaRelatorioOcupacao linha = new LinhaRelatorioOcupacao();
+        linha.setRestauranteId(restauranteId);
+        linha.setData(LocalDate.of(2030, 1, 1));
+        linha.setHora(LocalTime.of(20, 0));
+        linha.setReservas(reservas);
+        return linha;
+    }
+}
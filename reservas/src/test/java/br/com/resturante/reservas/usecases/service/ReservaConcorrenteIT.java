@@ -0,0 +1,95 @@
+package br.com.resturante.reservas.usecases.service;
+
+import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.dto.ReservaDto;
+import br.com.resturante.reservas.entities.Mesa;
+import br.com.resturante.reservas.entities.OcupacaoHorario;
+import br.com.resturante.reservas.entities.Reserva;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest
+@Testcontainers
+@ContextConfiguration(classes = MongoDBTestContainerConfig.class)
+class ReservaConcorrenteIT {
+
+    private static final String RESTAURANTE = "concorrencia";
+    private static final int MESAS = 10;
+    private static final int TENTATIVAS = 300;
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @Autowired
+    RestauranteService restauranteService;
+
+    @Test
+    void naoDeveUltrapassarCapacidadeComReservasSimultaneas() throws Exception {
+        // Arrange
+        List<Mesa> mesas = new ArrayList<>();
+        for (int i = 1; i <= MESAS; i++) {
+            Mesa mesa = new Mesa();
+            mesa.setNumero(i);
+            mesa.setCapacidade(4);
+            mesas.add(mesa);
+        }
+        mongoTemplate.save(new Restaurante(RESTAURANTE, "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 40, MESAS, mesas));
+        LocalDate data = LocalDate.of(2030, 1, 1);
+        LocalTime hora = LocalTime.of(20, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger confirmadas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        List<Future<?>> tentativas = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < TENTATIVAS; i++) {
+            tentativas.add(executor.submit(() -> {
+                largada.await();
+                try {
+                    restauranteService.reservarRestaurante(new ReservaDto(RESTAURANTE, data, hora));
+                    confirmadas.incrementAndGet();
+                } catch (RuntimeException e) {
+                    recusadas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tentativa : tentativas) {
+            tentativa.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        List<Reserva> reservas = mongoTemplate.find(new Query(Criteria.where("restauranteId").is(RESTAURANTE)), Reserva.class);
+        OcupacaoHorario ocupacao = mongoTemplate.findById(OcupacaoHorario.chave(RESTAURANTE, data, hora), OcupacaoHorario.class);
+        assertThat(confirmadas.get()).isEqualTo(MESAS);
+        assertThat(recusadas.get()).isEqualTo(TENTATIVAS - MESAS);
+        assertThat(reservas).hasSize(MESAS);
+        assertThat(reservas.stream().map(r -> r.getMesa().getNumero()).distinct()).hasSize(MESAS);
+        assertThat(ocupacao).isNotNull();
+        assertThat(ocupacao.getOcupadas()).isEqualTo(MESAS);
+        assertThat(ocupacao.getMapa()).containsEntry("0", (1L << MESAS) - 1);
+    }
+}
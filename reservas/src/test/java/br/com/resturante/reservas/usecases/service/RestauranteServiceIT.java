@@ -1,14 +1,22 @@
 package br.com.resturante.reservas.usecases.service;
 
 import br.com.resturante.reservas.bd.MongoDBTestContainerConfig;
+import br.com.resturante.reservas.entities.Reserva;
 import br.com.resturante.reservas.entities.Restaurante;
+import br.com.resturante.reservas.external.CriacaoIndices;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.context.ContextConfiguration;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,11 +31,18 @@ class RestauranteServiceIT {
     MongoTemplate mongoTemplate;
     @Autowired
     RestauranteService restauranteService;
+    @Autowired
+    CriacaoIndices criacaoIndices;
+
+    @BeforeEach
+    void setup() {
+        mongoTemplate.remove(new Query(), Restaurante.class);
+    }
 
     @Test
     void deveBuscarRestaurantePorId() {
         // Arrange
-        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         mongoTemplate.save(restauranteSaved);
         // Act
         Restaurante restaurante = restauranteService.buscarRestaurantePorId("4");
@@ -39,7 +54,7 @@ class RestauranteServiceIT {
     @Test
     void deveObterUmRestaurantePorNome() throws Exception {
         // Arrange
-        Restaurante restauranteSaved = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restauranteSaved = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         mongoTemplate.save(restauranteSaved);
         // Act
         Restaurante restaurante = restauranteService.buscarRestaurantePorNome("nome");
@@ -75,7 +90,7 @@ class RestauranteServiceIT {
     @Test
     void deveObterUmRestaurantePorEndereco() throws Exception {
         // Arrange
-        Restaurante restauranteSaved = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restauranteSaved = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         mongoTemplate.save(restauranteSaved);
         // Act
         Restaurante restaurante = restauranteService.buscarRestaurantePorEndereco("localizacao");
@@ -87,7 +102,7 @@ class RestauranteServiceIT {
     @Test
     void deveObterUmRestaurantePorTipoCozinha() throws Exception {
         // Arrange
-        Restaurante restauranteSaved = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restauranteSaved = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         mongoTemplate.save(restauranteSaved);
         // Act
         Restaurante restaurante = restauranteService.buscarRestaurantePorTipoCozinha("tipoCozinha");
@@ -99,9 +114,9 @@ class RestauranteServiceIT {
     @Test
     void deveAtualizarRestaurante() {
         // Arrange
-        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         mongoTemplate.save(restauranteSaved);
-        Restaurante restaurante = new Restaurante("4", "nome atualizado", "localizacao atualizada", "tipoCozinha atualizada", "horarioFuncionamento atualizado", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restaurante = new Restaurante("4", "nome atualizado", "localizacao atualizada", "tipoCozinha atualizada", "horarioFuncionamento atualizado", 10, 10, new ArrayList<>());
         // Act
         Restaurante restauranteAtualizado = restauranteService.atualizarRestaurante("4", restaurante);
         // Assert
@@ -112,10 +127,25 @@ class RestauranteServiceIT {
         assertThat(restauranteAtualizado.getHorarioFuncionamento()).isEqualTo("horarioFuncionamento atualizado");
     }
 
+    @Test
+    void deveRejeitarAtualizacaoComVersaoDesatualizada() {
+        // Arrange
+        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        mongoTemplate.save(restauranteSaved);
+        Restaurante copiaDesatualizada = mongoTemplate.findById("4", Restaurante.class);
+        restauranteService.atualizarRestaurante("4", new Restaurante("4", "nome atualizado", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>()));
+        // Act
+        copiaDesatualizada.setNome("nome antigo");
+        // Assert
+        assertThatThrownBy(() -> mongoTemplate.save(copiaDesatualizada))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(mongoTemplate.findById("4", Restaurante.class).getNome()).isEqualTo("nome atualizado");
+    }
+
     @Test
     void deveDeletarRestaurante() {
         // Arrange
-        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         mongoTemplate.save(restauranteSaved);
         // Act
         restauranteService.deletarRestaurante("4");
@@ -126,13 +156,85 @@ class RestauranteServiceIT {
     @Test
     void deveListarRestaurantes() {
         // Arrange
-        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante restauranteSaved = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         mongoTemplate.save(restauranteSaved);
         // Act
-        var restaurantes = restauranteService.listarRestaurantes();
+        var restaurantes = restauranteService.listarRestaurantes(null, null).getItens();
         // Assert
         assertThat(restaurantes).isNotNull();
         assertThat(restaurantes.size()).isGreaterThan(0);
+        assertThat(restaurantes.get(0).getNome()).isEqualTo("nome");
+        assertThat(restaurantes.get(0).getTipoCozinha()).isEqualTo("tipoCozinha");
+        assertThat(restaurantes.get(0).getQtdMesas()).isEqualTo(10);
+    }
+
+    @Test
+    void deveListarRestaurantesPorPaginas() {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            mongoTemplate.save(new Restaurante(String.valueOf(i), "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>()));
+        }
+        // Act
+        var primeiraPagina = restauranteService.listarRestaurantes(null, 2);
+        var segundaPagina = restauranteService.listarRestaurantes(primeiraPagina.getProximaPagina(), 2);
+        var terceiraPagina = restauranteService.listarRestaurantes(segundaPagina.getProximaPagina(), 2);
+        // Assert
+        assertThat(primeiraPagina.getItens()).extracting("id").containsExactly("1", "2");
+        assertThat(segundaPagina.getItens()).extracting("id").containsExactly("3", "4");
+        assertThat(terceiraPagina.getItens()).extracting("id").containsExactly("5");
+        assertThat(terceiraPagina.getProximaPagina()).isNull();
     }
 
+    @Test
+    void deveManterAvaliacaoDoRestauranteAoComentar() {
+        // Arrange
+        mongoTemplate.save(new Restaurante("avaliacao", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>()));
+        for (long id = 901; id <= 902; id++) {
+            Reserva reserva = new Reserva();
+            reserva.setId(id);
+            reserva.setRestauranteId("avaliacao");
+            reserva.setData(LocalDate.of(2030, 1, 1));
+            reserva.setHora(LocalTime.of(20, 0));
+            mongoTemplate.insert(reserva);
+        }
+
+        // Act
+        restauranteService.adicionarComentario("avaliacao", "901", "bom", 4);
+        restauranteService.adicionarComentario("avaliacao", "902", "ruim", 2);
+        restauranteService.adicionarComentario("avaliacao", "902", "nem tanto", 3);
+
+        // Assert
+        Restaurante restaurante = restauranteService.buscarRestaurantePorId("avaliacao");
+        assertThat(restaurante.getAvaliacao().getQuantidade()).isEqualTo(2);
+        assertThat(restaurante.getAvaliacao().getSoma()).isEqualTo(7);
+        assertThat(restaurante.getAvaliacao().getNotas()).containsEntry("4", 1L).containsEntry("3", 1L).containsEntry("2", 0L);
+        assertThat(restaurante.getAvaliacao().getMedia()).isEqualTo(3.5);
+        assertThat(restauranteService.listarRestaurantes(null, null).getItens().get(0).getAvaliacao().getQuantidade()).isEqualTo(2);
+    }
+
+    @Test
+    void deveBuscarRestaurantesProximosDoMaisPertoAoMaisLonge() {
+        // Arrange
+        criacaoIndices.criarIndices();
+        mongoTemplate.save(restauranteEm("se", "Italiana", -23.5505, -46.6333));
+        mongoTemplate.save(restauranteEm("paulista", "Japonesa", -23.5614, -46.6559));
+        mongoTemplate.save(restauranteEm("rio", "Japonesa", -22.9068, -43.1729));
+        mongoTemplate.save(new Restaurante("sem-coordenadas", "nome", "localizacao", "Japonesa", "horarioFuncionamento", 10, 10, new ArrayList<>()));
+
+        // Act
+        var proximos = restauranteService.buscarRestaurantesProximos(-23.5613, -46.6565, 5_000.0, null, null);
+        var japoneses = restauranteService.buscarRestaurantesProximos(-23.5613, -46.6565, 5_000.0, null, "Japonesa");
+
+        // Assert
+        assertThat(proximos).extracting("id").containsExactly("paulista", "se");
+        assertThat(proximos.get(0).getDistanciaMetros()).isLessThan(100);
+        assertThat(proximos.get(1).getDistanciaMetros()).isBetween(2_000.0, 3_000.0);
+        assertThat(japoneses).extracting("id").containsExactly("paulista");
+    }
+
+    private static Restaurante restauranteEm(String id, String tipoCozinha, double latitude, double longitude) {
+        Restaurante restaurante = new Restaurante(id, "nome", "localizacao", tipoCozinha, "horarioFuncionamento", 10, 10, new ArrayList<>());
+        restaurante.setCoordenadas(new GeoJsonPoint(longitude, latitude));
+        return restaurante;
+    }
 }
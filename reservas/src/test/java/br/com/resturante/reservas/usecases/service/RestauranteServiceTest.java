@@ -1,31 +1,62 @@
 package br.com.resturante.reservas.usecases.service;
 
+import br.com.resturante.reservas.dto.AtualizacaoReserva;
+import br.com.resturante.reservas.dto.AtualizacaoRestaurante;
+import br.com.resturante.reservas.dto.Pagina;
 import br.com.resturante.reservas.dto.ReservaDto;
+import br.com.resturante.reservas.dto.ResultadoImportacao;
+import br.com.resturante.reservas.dto.ResultadoReserva;
+import br.com.resturante.reservas.dto.RestauranteProximo;
+import br.com.resturante.reservas.dto.RestauranteResumo;
+import br.com.resturante.reservas.dto.VersaoDocumento;
 import br.com.resturante.reservas.entities.Cliente;
+import br.com.resturante.reservas.entities.Comentario;
 import br.com.resturante.reservas.entities.Mesa;
+import br.com.resturante.reservas.entities.OcupacaoHorario;
 import br.com.resturante.reservas.entities.Reserva;
 import br.com.resturante.reservas.entities.Restaurante;
+import br.com.resturante.reservas.external.ArquivamentoReservas;
 import br.com.resturante.reservas.external.ClienteRepository;
+import br.com.resturante.reservas.external.ImportacaoEmLote;
+import br.com.resturante.reservas.external.OcupacaoHorarioRepository;
+import br.com.resturante.reservas.external.ReservaRepository;
 import br.com.resturante.reservas.external.RestauranteRepository;
+import br.com.resturante.reservas.usecases.cache.CacheRespostasRestaurantes;
+import br.com.resturante.reservas.usecases.cache.CacheRestaurantes;
+import br.com.resturante.reservas.usecases.concorrencia.RetentativaOtimista;
+import br.com.resturante.reservas.usecases.disponibilidade.IndiceDisponibilidade;
+import br.com.resturante.reservas.usecases.identificador.GeradorIdentificador;
+import br.com.resturante.reservas.usecases.paginacao.Paginacao;
 import br.com.resturante.reservas.usecases.service.impl.RestauranteServiceImpl;
+import br.com.resturante.reservas.usecases.sugestao.IndiceSugestoes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-import static br.com.resturante.reservas.usecases.service.impl.RestauranteServiceImpl.RESTAURANTE_NAO_ENCONTRADO;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -43,6 +74,42 @@ class RestauranteServiceTest {
     @Mock
     ClienteRepository clienteRepository;
 
+    @Mock
+    ReservaRepository reservaRepository;
+
+    @Mock
+    GeradorIdentificador geradorIdentificador;
+
+    @Mock
+    OcupacaoHorarioRepository ocupacaoHorarioRepository;
+
+    @Mock
+    ImportacaoEmLote importacaoEmLote;
+
+    @Mock
+    ArquivamentoReservas arquivamentoReservas;
+
+    @Spy
+    Paginacao paginacao = new Paginacao(20, 100);
+
+    @Spy
+    IndiceDisponibilidade indiceDisponibilidade = new IndiceDisponibilidade();
+
+    @Spy
+    CacheRestaurantes cacheRestaurantes = new CacheRestaurantes(new SimpleMeterRegistry(), true, 1_000_000, 60);
+
+    @Spy
+    IndiceSugestoes indiceSugestoes = new IndiceSugestoes(10, 50);
+
+    @Spy
+    RetentativaOtimista retentativaOtimista = new RetentativaOtimista(new SimpleMeterRegistry(), 3, 0, 0);
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    CacheRespostasRestaurantes cacheRespostasRestaurantes = new CacheRespostasRestaurantes(new ObjectMapper(), new SimpleMeterRegistry(), true, 1_000_000, 60, false);
+
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
@@ -51,7 +118,7 @@ class RestauranteServiceTest {
 
     @Test
     void shouldReturnRestauranteWhenCadastrarRestauranteIsCalledWithValidRestaurante() {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteRepository.save(any(Restaurante.class))).thenReturn(expectedRestaurante);
 
         Restaurante result = restauranteService.cadastrarRestaurante(expectedRestaurante);
@@ -60,6 +127,56 @@ class RestauranteServiceTest {
         verify(restauranteRepository, times(1)).save(any(Restaurante.class));
     }
 
+    @Test
+    void shouldAssignIdOnlyToMesasWithoutIdWhenCadastrarRestauranteIsCalled() {
+        Mesa mesaNova = new Mesa();
+        Mesa mesaExistente = new Mesa();
+        mesaExistente.setId(5L);
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 2, new ArrayList<>(List.of(mesaNova, mesaExistente)));
+        when(geradorIdentificador.proximo()).thenReturn(100L);
+        when(restauranteRepository.save(any(Restaurante.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        restauranteService.cadastrarRestaurante(restaurante);
+
+        assertEquals(100L, mesaNova.getId());
+        assertEquals(5L, mesaExistente.getId());
+        verify(geradorIdentificador, times(1)).proximo();
+    }
+
+    @Test
+    void shouldKeepSugestoesInSyncWhenRestauranteIsCadastradoAndDeletado() {
+        Restaurante restaurante = new Restaurante("4", "Cantina São João", "localizacao", "Italiana", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        when(restauranteRepository.save(any(Restaurante.class))).thenReturn(restaurante);
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+
+        restauranteService.cadastrarRestaurante(restaurante);
+
+        assertEquals("4", restauranteService.sugerirRestaurantes("sao jo", null).get(0).getId());
+        assertEquals("4", restauranteService.sugerirRestaurantes("ITAL", null).get(0).getId());
+
+        restauranteService.deletarRestaurante("4");
+
+        assertTrue(restauranteService.sugerirRestaurantes("cantina", null).isEmpty());
+    }
+
+    @Test
+    void shouldLimitRaioAndQuantidadeWhenBuscarRestaurantesProximosIsCalled() {
+        when(restauranteRepository.buscarProximos(-23.56, -46.65, 50_000, 100, "Italiana")).thenReturn(List.of(new RestauranteProximo()));
+
+        List<RestauranteProximo> result = restauranteService.buscarRestaurantesProximos(-23.56, -46.65, 1_000_000.0, 1000, "Italiana");
+
+        assertEquals(1, result.size());
+        verify(restauranteRepository, times(1)).buscarProximos(-23.56, -46.65, 50_000, 100, "Italiana");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenBuscarRestaurantesProximosIsCalledWithInvalidCoordinates() {
+        assertThrows(IllegalArgumentException.class, () -> restauranteService.buscarRestaurantesProximos(91, 0, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> restauranteService.buscarRestaurantesProximos(0, -181, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> restauranteService.buscarRestaurantesProximos(0, 0, 0.0, null, null));
+        verify(restauranteRepository, never()).buscarProximos(anyDouble(), anyDouble(), anyDouble(), anyInt(), any());
+    }
+
     /*@Test
     void shouldThrowExceptionWhenCadastrarRestauranteIsCalledWithNullRestaurante() {
         assertThrows(NullPointerException.class, () -> restauranteService.cadastrarRestaurante(null));
@@ -68,7 +185,7 @@ class RestauranteServiceTest {
 
     @Test
     void shouldReturnRestauranteWhenBuscarRestauranteIsCalledWithValidId() {
-        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante expectedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(expectedRestaurante));
 
         Restaurante result = restauranteService.buscarRestaurantePorId("4");
@@ -77,6 +194,43 @@ class RestauranteServiceTest {
         verify(restauranteRepository, times(1)).findById(anyString());
     }
 
+    @Test
+    void shouldReadRestauranteOnceUntilItIsWritten() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(reservaRepository.definirComentario(eq(1L), eq("4"), any(Comentario.class))).thenReturn(new Reserva());
+
+        restauranteService.buscarRestaurantePorId("4");
+        restauranteService.buscarRestaurantePorId("4");
+        restauranteService.adicionarComentario("4", "1", "bom", 5);
+        restauranteService.buscarRestaurantePorId("4");
+
+        verify(restauranteRepository, times(2)).findById("4");
+    }
+
+    @Test
+    void shouldAnswerVersaoFromCachedRestauranteWithoutQuerying() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        restaurante.setVersao(3L);
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(restauranteRepository.findVersaoById("5")).thenReturn(Optional.of(new VersaoDocumento("5", 8L)));
+
+        restauranteService.buscarRestaurantePorId("4");
+
+        assertEquals(3L, restauranteService.buscarVersaoRestaurante("4"));
+        assertEquals(8L, restauranteService.buscarVersaoRestaurante("5"));
+        verify(restauranteRepository, never()).findVersaoById("4");
+        verify(restauranteRepository, never()).findById("5");
+    }
+
+    @Test
+    void shouldThrowExceptionWhenBuscarVersaoReservasIsCalledWithUnknownRestaurante() {
+        when(restauranteRepository.findVersaoById("inexistente")).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> restauranteService.buscarVersaoReservas("inexistente"));
+        verify(reservaRepository, never()).buscarVersao(anyString());
+    }
+
     @Test
     void shouldThrowExceptionWhenBuscarRestauranteIsCalledWithInvalidId() {
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.empty());
@@ -87,8 +241,8 @@ class RestauranteServiceTest {
 
     @Test
     void shouldReturnUpdatedRestauranteWhenAtualizarRestauranteIsCalledWithValidIdAndRestaurante() {
-        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        Restaurante updatedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        Restaurante updatedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
         when(restauranteRepository.save(any(Restaurante.class))).thenReturn(updatedRestaurante);
 
@@ -99,9 +253,83 @@ class RestauranteServiceTest {
         verify(restauranteRepository, times(1)).save(any(Restaurante.class));
     }
 
+    @Test
+    void shouldRetryAtualizarRestauranteWhenVersionConflicts() {
+        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        existingRestaurante.setVersao(3L);
+        Restaurante updatedRestaurante = new Restaurante("4", "nome atualizado", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
+        when(restauranteRepository.save(any(Restaurante.class)))
+                .thenThrow(new OptimisticLockingFailureException("conflito"))
+                .thenReturn(updatedRestaurante);
+
+        Restaurante result = restauranteService.atualizarRestaurante("4", updatedRestaurante);
+
+        assertEquals(updatedRestaurante, result);
+        assertEquals(3L, updatedRestaurante.getVersao());
+        verify(restauranteRepository, times(2)).findById(anyString());
+        verify(restauranteRepository, times(2)).save(any(Restaurante.class));
+    }
+
+    @Test
+    void shouldRejectAtualizarRestauranteWithoutRetryWhenInformedVersaoIsStale() {
+        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        existingRestaurante.setVersao(4L);
+        Restaurante updatedRestaurante = new Restaurante("4", "nome atualizado", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        updatedRestaurante.setVersao(3L);
+        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> restauranteService.atualizarRestaurante("4", updatedRestaurante));
+        verify(restauranteRepository, times(0)).save(any(Restaurante.class));
+    }
+
+    @Test
+    void shouldNotRetryAtualizarRestauranteWhenSaveConflictsWithInformedVersao() {
+        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        existingRestaurante.setVersao(3L);
+        Restaurante updatedRestaurante = new Restaurante("4", "nome atualizado", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        updatedRestaurante.setVersao(3L);
+        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
+        when(restauranteRepository.save(any(Restaurante.class))).thenThrow(new OptimisticLockingFailureException("conflito"));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> restauranteService.atualizarRestaurante("4", updatedRestaurante));
+        verify(restauranteRepository, times(1)).save(any(Restaurante.class));
+    }
+
+    @Test
+    void shouldRejectAtualizarRestauranteWhenItDropsMesaWithFutureReserva() {
+        Mesa primeira = new Mesa();
+        primeira.setId(1L);
+        Mesa segunda = new Mesa();
+        segunda.setId(2L);
+        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 2, new ArrayList<>(List.of(primeira, segunda)));
+        Restaurante updatedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 2, new ArrayList<>(List.of(primeira)));
+        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
+        when(reservaRepository.buscarMesasReservadas(eq("4"), any(LocalDate.class))).thenReturn(List.of(1));
+
+        assertThrows(IllegalStateException.class, () -> restauranteService.atualizarRestaurante("4", updatedRestaurante));
+        verify(restauranteRepository, times(0)).save(any(Restaurante.class));
+    }
+
+    @Test
+    void shouldCountMesasFromListWhenAtualizarRestauranteIsCalled() {
+        Mesa primeira = new Mesa();
+        primeira.setId(1L);
+        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 1, new ArrayList<>(List.of(primeira)));
+        Restaurante updatedRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(List.of(primeira, new Mesa())));
+        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
+        when(reservaRepository.buscarMesasReservadas(eq("4"), any(LocalDate.class))).thenReturn(List.of(0));
+        when(restauranteRepository.save(any(Restaurante.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Restaurante result = restauranteService.atualizarRestaurante("4", updatedRestaurante);
+
+        assertEquals(2, result.getQtdMesas());
+        assertNotNull(result.getMesas().get(1).getId());
+    }
+
     @Test
     void shouldThrowExceptionWhenAtualizarRestauranteIsCalledWithInvalidId() {
-        Restaurante updatedRestaurante = new Restaurante("41", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante updatedRestaurante = new Restaurante("41", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> restauranteService.atualizarRestaurante("100", updatedRestaurante));
@@ -111,18 +339,36 @@ class RestauranteServiceTest {
 
     @Test
     void shouldReturnAllRestaurantesWhenListarRestaurantesPorIdIsCalled() {
-        List<Restaurante> expectedRestaurantes = Arrays.asList(new Restaurante(), new Restaurante());
-        when(restauranteRepository.findAll()).thenReturn(expectedRestaurantes);
+        List<RestauranteResumo> expectedRestaurantes = Arrays.asList(new RestauranteResumo(), new RestauranteResumo());
+        when(restauranteRepository.findResumoByOrderByIdAsc(Limit.of(21))).thenReturn(expectedRestaurantes);
 
-        List<Restaurante> result = restauranteService.listarRestaurantes();
+        Pagina<RestauranteResumo> result = restauranteService.listarRestaurantes(null, null);
 
-        assertEquals(expectedRestaurantes, result);
-        verify(restauranteRepository, times(1)).findAll();
+        assertEquals(expectedRestaurantes, result.getItens());
+        assertNull(result.getProximaPagina());
+        verify(restauranteRepository, times(1)).findResumoByOrderByIdAsc(Limit.of(21));
+        verify(restauranteRepository, times(0)).findAll();
+    }
+
+    @Test
+    void shouldContinueAfterCursorWhenListarRestaurantesIsCalledWithNextPage() {
+        RestauranteResumo primeiro = new RestauranteResumo("a", "nome", "localizacao", "tipoCozinha", 10, 10, null);
+        RestauranteResumo segundo = new RestauranteResumo("b", "nome", "localizacao", "tipoCozinha", 10, 10, null);
+        RestauranteResumo terceiro = new RestauranteResumo("c", "nome", "localizacao", "tipoCozinha", 10, 10, null);
+        when(restauranteRepository.findResumoByOrderByIdAsc(Limit.of(3))).thenReturn(List.of(primeiro, segundo, terceiro));
+        when(restauranteRepository.findResumoByIdGreaterThanOrderByIdAsc("b", Limit.of(3))).thenReturn(List.of(terceiro));
+
+        Pagina<RestauranteResumo> primeiraPagina = restauranteService.listarRestaurantes(null, 2);
+        Pagina<RestauranteResumo> segundaPagina = restauranteService.listarRestaurantes(primeiraPagina.getProximaPagina(), 2);
+
+        assertEquals(List.of(primeiro, segundo), primeiraPagina.getItens());
+        assertEquals(List.of(terceiro), segundaPagina.getItens());
+        assertNull(segundaPagina.getProximaPagina());
     }
 
     @Test
     void shouldDeleteRestauranteWhenDeletarRestauranteIsCalledWithValidId() {
-        Restaurante existingRestaurante = new Restaurante("50", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
+        Restaurante existingRestaurante = new Restaurante("50", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
         doNothing().when(restauranteRepository).delete(any(Restaurante.class));
 
@@ -130,6 +376,9 @@ class RestauranteServiceTest {
 
         verify(restauranteRepository, times(1)).findById(anyString());
         verify(restauranteRepository, times(1)).delete(any(Restaurante.class));
+        verify(reservaRepository, times(1)).deleteByRestauranteId("50");
+        verify(reservaRepository, times(1)).removerDoArquivoPorRestaurante("50");
+        verify(ocupacaoHorarioRepository, times(1)).removerPorRestaurante("50");
     }
 
     @Test
@@ -206,12 +455,11 @@ class RestauranteServiceTest {
 
     @Test
     void shouldReturnReservaWhenReservarRestauranteIsCalledWithValidReservaDto() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        restaurante.setReservas(new ArrayList<>());
-        restaurante.setQtdMesas(0);
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        restaurante.setQtdMesas(1);
         Cliente cliente = new Cliente();
         Mesa mesa = new Mesa();
-        mesa.setDisponivel(true);
+        mesa.setNumero(7);
         restaurante.setMesas(Arrays.asList(mesa));
         ReservaDto reservaDto = new ReservaDto();
         reservaDto.setNome("Teste");
@@ -224,15 +472,24 @@ class RestauranteServiceTest {
         reservaDto.setClienteId("ValidClienteId");
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(restaurante));
         when(clienteRepository.findById(anyString())).thenReturn(Optional.of(cliente));
+        when(ocupacaoHorarioRepository.ocuparMesa("4", data, LocalTime.of(10, 0), 1, 0)).thenReturn(true);
+        when(geradorIdentificador.proximo()).thenReturn(1L);
+        when(reservaRepository.insert(any(Reserva.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Reserva result = restauranteService.reservarRestaurante(reservaDto);
 
         assertNotNull(result);
         //assertEquals(cliente, result.getCliente());
-        assertFalse(result.getMesa().isDisponivel());
+        assertEquals(1L, result.getId());
+        assertEquals("4", result.getRestauranteId());
+        assertEquals(7, result.getMesa().getNumero());
+        assertEquals(0, result.getIndiceMesa());
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("4", data, LocalTime.of(10, 0)));
         verify(restauranteRepository, times(1)).findById(anyString());
         //verify(clienteRepository, times(1)).findById(anyString());
-        verify(restauranteRepository, times(1)).save(any(Restaurante.class));
+        verify(restauranteRepository, times(0)).save(any(Restaurante.class));
+        verify(reservaRepository, times(1)).insert(any(Reserva.class));
+        verify(reservaRepository, times(1)).avancarVersao("4");
     }
 
     @Test
@@ -242,6 +499,8 @@ class RestauranteServiceTest {
         reservaDto.getEmail();
         reservaDto.getNome();
         reservaDto.setIdRestaurante("InvalidId");
+        reservaDto.setData(LocalDate.now());
+        reservaDto.setHora(LocalTime.of(20, 0));
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> restauranteService.reservarRestaurante(reservaDto));
@@ -250,16 +509,17 @@ class RestauranteServiceTest {
 
     @Test
     void shouldThrowExceptionWhenReservarRestauranteIsCalledWithInvalidClienteId() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        restaurante.setQtdMesas(0);
-        Mesa mesa = new Mesa();
-        mesa.setDisponivel(true);
-        restaurante.setMesas(List.of(mesa));
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        restaurante.setQtdMesas(1);
+        restaurante.setMesas(List.of(new Mesa()));
         ReservaDto reservaDto = new ReservaDto();
         reservaDto.setIdRestaurante("ValidId");
         reservaDto.setClienteId("InvalidClienteId");
+        reservaDto.setData(LocalDate.now());
+        reservaDto.setHora(LocalTime.of(20, 0));
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(restaurante));
         when(clienteRepository.findById(anyString())).thenReturn(Optional.of(new Cliente()));
+        when(ocupacaoHorarioRepository.ocuparMesa(any(), any(), any(), anyInt(), anyInt())).thenReturn(true);
 
         //assertThrows(RuntimeException.class, () -> restauranteService.reservarRestaurante(reservaDto));
         restauranteService.reservarRestaurante(reservaDto);
@@ -269,131 +529,612 @@ class RestauranteServiceTest {
 
     @Test
     void shouldThrowExceptionWhenReservarRestauranteIsCalledWithNoAvailableMesa() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        restaurante.setQtdMesas(0);
-        Mesa mesa = new Mesa();
-        mesa.setDisponivel(false);
-        restaurante.setMesas(List.of(mesa));
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>());
+        restaurante.setQtdMesas(1);
         ReservaDto reservaDto = new ReservaDto();
         reservaDto.setIdRestaurante("ValidId");
         reservaDto.setClienteId("InvalidClienteId");
+        reservaDto.setData(LocalDate.now());
+        reservaDto.setHora(LocalTime.of(20, 0));
         when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(restaurante));
         when(clienteRepository.findById(anyString())).thenReturn(Optional.of(new Cliente()));
 
         assertThrows(RuntimeException.class, () ->  restauranteService.reservarRestaurante(reservaDto));
         verify(restauranteRepository, times(1)).findById(anyString());
+        verify(reservaRepository, times(0)).insert(any(Reserva.class));
+        verify(ocupacaoHorarioRepository, times(0)).ocuparMesa(any(), any(), any(), anyInt(), anyInt());
         //verify(clienteRepository, times(1)).findById(anyString());
     }
 
+    @Test
+    void shouldRejectReservaWithoutDataOrHoraBeforeTouchingSlot() {
+        ReservaDto semData = new ReservaDto("4", null, LocalTime.of(20, 0));
+        ReservaDto semHora = new ReservaDto("4", LocalDate.now(), null);
+
+        IllegalArgumentException semDataException = assertThrows(IllegalArgumentException.class, () -> restauranteService.reservarRestaurante(semData));
+        assertThrows(IllegalArgumentException.class, () -> restauranteService.reservarRestaurante(semHora));
+
+        assertEquals(RestauranteServiceImpl.DATA_HORA_OBRIGATORIAS, semDataException.getMessage());
+        verify(restauranteRepository, times(0)).findById(anyString());
+        verify(ocupacaoHorarioRepository, times(0)).ocuparMesa(any(), any(), any(), anyInt(), anyInt());
+        verify(reservaRepository, times(0)).insert(any(Reserva.class));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenReservarRestauranteIsCalledWithSlotFull() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 2, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa(), new Mesa()));
+        ReservaDto reservaDto = new ReservaDto("4", LocalDate.now(), LocalTime.of(20, 0));
+        OcupacaoHorario ocupacao = new OcupacaoHorario();
+        ocupacao.setRestauranteId("4");
+        ocupacao.setData(reservaDto.getData());
+        ocupacao.setHora(reservaDto.getHora());
+        ocupacao.getMapa().put("0", 3L);
+        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesa(anyString(), any(LocalDate.class), any(LocalTime.class), anyInt(), anyInt())).thenReturn(false);
+        when(ocupacaoHorarioRepository.buscar("4", reservaDto.getData(), reservaDto.getHora())).thenReturn(ocupacao);
+
+        assertThrows(RuntimeException.class, () -> restauranteService.reservarRestaurante(reservaDto));
+        verify(ocupacaoHorarioRepository, times(1)).ocuparMesa("4", reservaDto.getData(), reservaDto.getHora(), 2, 0);
+        verify(reservaRepository, times(0)).insert(any(Reserva.class));
+        assertEquals(2, indiceDisponibilidade.mesasOcupadas("4", reservaDto.getData(), reservaDto.getHora()));
+    }
+
+    @Test
+    void shouldRejectReservaWithoutClaimingMesaWhenDatabaseConfirmsSlotIsFull() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 1, new ArrayList<>());
+        ReservaDto reservaDto = new ReservaDto("4", LocalDate.now(), LocalTime.of(20, 0));
+        restaurante.setMesas(List.of(new Mesa()));
+        indiceDisponibilidade.ocupar("4", reservaDto.getData(), reservaDto.getHora(), 0);
+        OcupacaoHorario ocupacao = new OcupacaoHorario();
+        ocupacao.setRestauranteId("4");
+        ocupacao.setData(reservaDto.getData());
+        ocupacao.setHora(reservaDto.getHora());
+        ocupacao.getMapa().put("0", 1L);
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(ocupacaoHorarioRepository.buscar("4", reservaDto.getData(), reservaDto.getHora())).thenReturn(ocupacao);
+
+        assertThrows(RuntimeException.class, () -> restauranteService.reservarRestaurante(reservaDto));
+        verify(ocupacaoHorarioRepository, times(1)).buscar("4", reservaDto.getData(), reservaDto.getHora());
+        verify(ocupacaoHorarioRepository, times(0)).ocuparMesa(anyString(), any(LocalDate.class), any(LocalTime.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldRereadSlotAndReserveWhenStaleIndexSaysSlotIsFull() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 1, new ArrayList<>());
+        ReservaDto reservaDto = new ReservaDto("4", LocalDate.now(), LocalTime.of(20, 0));
+        restaurante.setMesas(List.of(new Mesa()));
+        indiceDisponibilidade.ocupar("4", reservaDto.getData(), reservaDto.getHora(), 0);
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(ocupacaoHorarioRepository.buscar("4", reservaDto.getData(), reservaDto.getHora())).thenReturn(null);
+        when(ocupacaoHorarioRepository.ocuparMesa("4", reservaDto.getData(), reservaDto.getHora(), 1, 0)).thenReturn(true);
+        when(reservaRepository.insert(any(Reserva.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Reserva result = restauranteService.reservarRestaurante(reservaDto);
+
+        assertEquals(0, result.getIndiceMesa());
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("4", reservaDto.getData(), reservaDto.getHora()));
+    }
+
+    @Test
+    void shouldPickNextFreeMesaWhenAnotherBookingTookTheFirstOne() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 3, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa(), new Mesa(), new Mesa()));
+        ReservaDto reservaDto = new ReservaDto("4", LocalDate.now(), LocalTime.of(20, 0));
+        OcupacaoHorario ocupacao = new OcupacaoHorario();
+        ocupacao.setRestauranteId("4");
+        ocupacao.setData(reservaDto.getData());
+        ocupacao.setHora(reservaDto.getHora());
+        ocupacao.getMapa().put("0", 1L);
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesa("4", reservaDto.getData(), reservaDto.getHora(), 3, 0)).thenReturn(false);
+        when(ocupacaoHorarioRepository.buscar("4", reservaDto.getData(), reservaDto.getHora())).thenReturn(ocupacao);
+        when(ocupacaoHorarioRepository.ocuparMesa("4", reservaDto.getData(), reservaDto.getHora(), 3, 1)).thenReturn(true);
+        when(reservaRepository.insert(any(Reserva.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Reserva result = restauranteService.reservarRestaurante(reservaDto);
+
+        assertEquals(1, result.getIndiceMesa());
+        assertEquals(2, indiceDisponibilidade.mesasOcupadas("4", reservaDto.getData(), reservaDto.getHora()));
+    }
+
     @Test
     void shouldAddCommentToReservationWhenAdicionarComentarioIsCalledWithValidParameters() {
-        Restaurante restaurante = new Restaurante("3", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        Reserva reserva = new Reserva();
-        reserva.setId(1L);
-        restaurante.setReservas(Arrays.asList(reserva));
-        when(restauranteRepository.save(any(Restaurante.class))).thenReturn(restaurante);
+        Reserva reservaAnterior = new Reserva();
+        reservaAnterior.setId(1L);
+        reservaAnterior.setVersao(2L);
+        when(reservaRepository.definirComentario(eq(1L), eq("3"), any(Comentario.class))).thenReturn(reservaAnterior);
 
-        Reserva result = restauranteService.adicionarComentario(restaurante, "1", "Test Comment");
+        Reserva result = restauranteService.adicionarComentario("3", "1", "Test Comment", 4);
 
         assertNotNull(result.getComentario());
         assertEquals("Test Comment", result.getComentario().getTexto());
+        assertEquals(4, result.getComentario().getNota());
+        assertEquals(3L, result.getVersao());
+        verify(restauranteRepository, times(1)).registrarNota("3", null, 4);
+        verify(reservaRepository, never()).save(any(Reserva.class));
+        verify(reservaRepository, never()).findByIdAndRestauranteId(any(), any());
+        verify(restauranteRepository, never()).findById(anyString());
     }
 
     @Test
     void shouldThrowExceptionWhenAdicionarComentarioIsCalledWithInvalidReservationId() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        Reserva reserva = new Reserva();
-        reserva.setId(1L);
-        restaurante.setReservas(Arrays.asList(reserva));
+        when(reservaRepository.definirComentario(eq(2L), eq("4"), any(Comentario.class))).thenReturn(null);
 
-        assertThrows(RuntimeException.class, () -> restauranteService.adicionarComentario(restaurante, "2", "Test Comment"));
+        assertThrows(RuntimeException.class, () -> restauranteService.adicionarComentario("4", "2", "Test Comment", null));
+        verify(restauranteRepository, never()).registrarNota(any(), any(), any());
     }
 
     @Test
     void shouldReturnReservationsWhenListarReservasPorRestauranteIsCalledWithValidId() {
-        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
         Reserva reserva = new Reserva();
-        restaurante.setReservas(Arrays.asList(reserva));
-        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(restaurante));
+        Reserva arquivada = new Reserva();
+        when(restauranteRepository.existsById(anyString())).thenReturn(true);
+        when(arquivamentoReservas.limite()).thenReturn(LocalDate.of(2030, 1, 1));
+        when(reservaRepository.buscarArquivadas("ValidId", null, null)).thenReturn(List.of(arquivada));
+        when(reservaRepository.findByRestauranteId("ValidId")).thenReturn(List.of(reserva));
 
-        List<Reserva> result = restauranteService.listarReservasPorRestaurante("ValidId");
+        List<Reserva> result = restauranteService.listarReservasPorRestaurante("ValidId", null, null);
 
-        assertEquals(1, result.size());
-        assertEquals(reserva, result.get(0));
+        assertEquals(List.of(arquivada, reserva), result);
+        verify(restauranteRepository, times(0)).findById(anyString());
+    }
+
+    @Test
+    void shouldSkipArchiveWhenListarReservasPorRestauranteStartsAfterHorizon() {
+        Reserva reserva = new Reserva();
+        LocalDate de = LocalDate.of(2030, 1, 1);
+        when(restauranteRepository.existsById(anyString())).thenReturn(true);
+        when(arquivamentoReservas.limite()).thenReturn(de);
+        when(reservaRepository.buscarPorPeriodo("ValidId", de, null)).thenReturn(List.of(reserva));
+
+        List<Reserva> result = restauranteService.listarReservasPorRestaurante("ValidId", de, null);
+
+        assertEquals(List.of(reserva), result);
+        verify(reservaRepository, never()).buscarArquivadas(any(), any(), any());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenListarReservasPorRestauranteIsCalledWithInvalidId() {
+        when(restauranteRepository.existsById(anyString())).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> restauranteService.listarReservasPorRestaurante("InvalidId", null, null));
+        verify(reservaRepository, times(0)).findByRestauranteId(anyString());
     }
 
 
     @Test
     void shouldReturnUpdatedReservaWhenAtualizarReservaIsCalledWithValidIdAndReserva() {
-        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        existingRestaurante.setId("1");
         Reserva existingReserva = new Reserva();
         existingReserva.setId(1L);
-        existingRestaurante.setReservas(Arrays.asList(existingReserva));
         Reserva updatedReserva = new Reserva();
         updatedReserva.setId(1L);
-        when(restauranteRepository.findById(any())).thenReturn(Optional.of(existingRestaurante));
+        updatedReserva.setHora(LocalTime.of(21, 0));
+        Restaurante restaurante = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, List.of(new Mesa()));
+        when(reservaRepository.findByIdAndRestauranteId(1L, "1")).thenReturn(Optional.of(existingReserva));
+        when(reservaRepository.save(any(Reserva.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(restauranteRepository.findById("1")).thenReturn(Optional.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesa("1", null, LocalTime.of(21, 0), 1, 0)).thenReturn(true);
 
         Reserva result = restauranteService.atualizarReserva("1", updatedReserva);
 
         assertEquals(updatedReserva, result);
-        verify(restauranteRepository, times(1)).findById(anyString());
+        assertEquals(LocalTime.of(21, 0), result.getHora());
+        verify(reservaRepository, times(1)).save(existingReserva);
+        assertEquals(0, result.getIndiceMesa());
+        verify(ocupacaoHorarioRepository, times(1)).liberarMesa("1", null, null, null);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenAtualizarReservaIsCalledWithFullSlot() {
+        Reserva existingReserva = new Reserva();
+        existingReserva.setId(1L);
+        Reserva updatedReserva = new Reserva();
+        updatedReserva.setId(1L);
+        updatedReserva.setHora(LocalTime.of(21, 0));
+        Restaurante restaurante = new Restaurante("1", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, List.of(new Mesa()));
+        when(reservaRepository.findByIdAndRestauranteId(1L, "1")).thenReturn(Optional.of(existingReserva));
+        when(restauranteRepository.findById("1")).thenReturn(Optional.of(restaurante));
+
+        assertThrows(RuntimeException.class, () -> restauranteService.atualizarReserva("1", updatedReserva));
+        verify(reservaRepository, times(0)).save(any(Reserva.class));
+        verify(ocupacaoHorarioRepository, times(0)).liberarMesa(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldReplaceNotaAfterSavingWhenAtualizarReservaChangesComentario() {
+        Comentario comentarioAnterior = new Comentario();
+        comentarioAnterior.setNota(2);
+        Reserva existingReserva = new Reserva();
+        existingReserva.setId(1L);
+        existingReserva.setComentario(comentarioAnterior);
+        Comentario comentario = new Comentario();
+        comentario.setNota(5);
+        Reserva updatedReserva = new Reserva();
+        updatedReserva.setId(1L);
+        updatedReserva.setComentario(comentario);
+        when(reservaRepository.findByIdAndRestauranteId(1L, "1")).thenReturn(Optional.of(existingReserva));
+        when(reservaRepository.save(any(Reserva.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        restauranteService.atualizarReserva("1", updatedReserva);
+
+        verify(restauranteRepository, times(1)).registrarNota("1", 2, 5);
+        verify(cacheRespostasRestaurantes, times(1)).invalidar("1");
+    }
+
+    @Test
+    void shouldRejectNotaOutOfRangeWhenAtualizarReservaIsCalled() {
+        Comentario comentario = new Comentario();
+        comentario.setNota(0);
+        Reserva updatedReserva = new Reserva();
+        updatedReserva.setId(1L);
+        updatedReserva.setComentario(comentario);
+
+        assertThrows(IllegalArgumentException.class, () -> restauranteService.atualizarReserva("1", updatedReserva));
+        verify(reservaRepository, never()).save(any(Reserva.class));
+        verify(restauranteRepository, never()).registrarNota(any(), any(), any());
     }
 
     @Test
     void shouldThrowExceptionWhenAtualizarReservaIsCalledWithInvalidRestauranteId() {
         Reserva updatedReserva = new Reserva();
-        when(restauranteRepository.findById(anyString())).thenThrow(new RuntimeException(RESTAURANTE_NAO_ENCONTRADO));
+        updatedReserva.setId(1L);
+        when(reservaRepository.findByIdAndRestauranteId(1L, "InvalidId")).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> restauranteService.atualizarReserva("InvalidId", updatedReserva));
-        verify(restauranteRepository, times(1)).findById(anyString());
+        verify(reservaRepository, times(0)).save(any(Reserva.class));
     }
 
     @Test
     void shouldThrowExceptionWhenAtualizarReservaIsCalledWithInvalidReservaId() {
-        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        Reserva existingReserva = new Reserva();
-        existingReserva.setId(1L);
-        existingRestaurante.setReservas(Arrays.asList(existingReserva));
         Reserva updatedReserva = new Reserva();
         updatedReserva.setId(2L);
-        when(restauranteRepository.findById(any())).thenReturn(Optional.of(existingRestaurante));
+        when(reservaRepository.findByIdAndRestauranteId(2L, "1")).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> restauranteService.atualizarReserva("1", updatedReserva));
-        verify(restauranteRepository, times(1)).findById(anyString());
+        verify(reservaRepository, times(1)).findByIdAndRestauranteId(2L, "1");
     }
 
     @Test
     void shouldDeleteReservaWhenDeletarReservaIsCalledWithValidId() {
-        Restaurante existingRestaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 10, new ArrayList<>(), new ArrayList<>());
-        Reserva existingReserva = new Reserva();
-        existingReserva.setId(1L);
-        existingRestaurante.setReservas(Arrays.asList(existingReserva));
-        when(restauranteRepository.findById(anyString())).thenReturn(Optional.of(existingRestaurante));
+        Reserva reserva = new Reserva();
+        reserva.setId(1L);
+        reserva.setData(LocalDate.of(2024, 5, 10));
+        reserva.setHora(LocalTime.of(20, 0));
+        reserva.setIndiceMesa(3);
+        when(reservaRepository.deleteByIdAndRestauranteId(1L, "ValidId")).thenReturn(Optional.of(reserva));
 
         restauranteService.deletarReserva("ValidId", "1");
 
-        verify(restauranteRepository, times(1)).save(any(Restaurante.class));
+        verify(reservaRepository, times(1)).deleteByIdAndRestauranteId(1L, "ValidId");
+        verify(ocupacaoHorarioRepository, times(1)).liberarMesa("ValidId", LocalDate.of(2024, 5, 10), LocalTime.of(20, 0), 3);
+        verify(restauranteRepository, times(0)).save(any(Restaurante.class));
+        verify(reservaRepository, times(1)).avancarVersao("ValidId");
     }
 
     @Test
-    void shouldThrowExceptionWhenDeletarReservaIsCalledWithInvalidRestauranteId() {
-        when(restauranteRepository.findById(anyString())).thenThrow(new RuntimeException(RESTAURANTE_NAO_ENCONTRADO));
+    void shouldThrowExceptionWhenDeletarReservaIsCalledWithInvalidReservaId() {
+        when(reservaRepository.deleteByIdAndRestauranteId(2L, "ValidId")).thenReturn(Optional.empty());
 
-        assertThrows(RuntimeException.class, () -> restauranteService.deletarReserva("InvalidId", "1"));
-        verify(restauranteRepository, times(1)).findById(anyString());
+        assertThrows(RuntimeException.class, () -> restauranteService.deletarReserva("ValidId", "2"));
+        verify(reservaRepository, never()).avancarVersao(anyString());
     }
 
-    /*@Test
-    void shouldThrowExceptionWhenDeletarReservaIsCalledWithInvalidReservaId() {
-        Restaurante existingRestaurante = new Restaurante();
-        Reserva existingReserva = new Reserva();
-        existingReserva.setId(1L);
-        existingRestaurante.setReservas(Arrays.asList(existingReserva));
-        when(restauranteService.buscarRestaurante(anyString())).thenReturn(existingRestaurante);
+    @Test
+    void shouldWriteOneLinePerReservaWhenExportarReservasIsCalled() throws IOException {
+        Reserva primeira = new Reserva();
+        primeira.setId(1L);
+        primeira.setRestauranteId("1");
+        primeira.setData(LocalDate.of(2030, 1, 1));
+        Reserva segunda = new Reserva();
+        segunda.setId(2L);
+        segunda.setRestauranteId("1");
+        segunda.setData(LocalDate.of(2030, 1, 2));
+        when(arquivamentoReservas.limite()).thenReturn(LocalDate.of(2029, 10, 1));
+        when(reservaRepository.buscarParaExportacao("1", LocalDate.of(2030, 1, 1), null, false)).thenReturn(Stream.of(primeira, segunda));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        restauranteService.exportarReservas("1", LocalDate.of(2030, 1, 1), null, saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, linhas.length);
+        assertEquals(1L, objectMapper.readValue(linhas[0], Reserva.class).getId());
+        assertEquals(LocalDate.of(2030, 1, 2), objectMapper.readValue(linhas[1], Reserva.class).getData());
+    }
 
-        assertThrows(RuntimeException.class, () -> restauranteService.deletarReserva("ValidId", "2"));
-        verify(restauranteService, times(1)).buscarRestaurante(anyString());
-    }*/
+    @Test
+    void shouldIncludeArchiveInExportWhenPeriodStartsBeforeLimite() throws IOException {
+        when(arquivamentoReservas.limite()).thenReturn(LocalDate.of(2030, 1, 1));
+        when(reservaRepository.buscarParaExportacao("1", LocalDate.of(2029, 6, 1), null, true)).thenReturn(Stream.empty());
+
+        restauranteService.exportarReservas("1", LocalDate.of(2029, 6, 1), null, new ByteArrayOutputStream());
 
+        verify(reservaRepository, times(1)).buscarParaExportacao("1", LocalDate.of(2029, 6, 1), null, true);
+    }
+
+    @Test
+    void shouldBookEachRestauranteInOneBulkWriteWhenReservarEmLoteIsCalled() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 1, new ArrayList<>());
+        Mesa mesa = new Mesa();
+        mesa.setNumero(7);
+        restaurante.setMesas(List.of(mesa));
+        LocalDate data = LocalDate.now();
+        List<ReservaDto> reservasDto = List.of(
+                new ReservaDto("4", data, LocalTime.of(10, 0)),
+                new ReservaDto("inexistente", data, LocalTime.of(10, 0)),
+                new ReservaDto("4", data, LocalTime.of(10, 0)),
+                new ReservaDto("4", data, LocalTime.of(11, 0)));
+        OcupacaoHorario lotado = new OcupacaoHorario();
+        lotado.setRestauranteId("4");
+        lotado.setData(data);
+        lotado.setHora(LocalTime.of(10, 0));
+        lotado.getMapa().put("0", 1L);
+        when(restauranteRepository.findAllById(any())).thenReturn(List.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesa(eq("4"), eq(data), any(), eq(1), eq(0))).thenReturn(true);
+        when(ocupacaoHorarioRepository.buscar("4", data, LocalTime.of(10, 0))).thenReturn(lotado);
+        when(geradorIdentificador.proximo()).thenReturn(10L, 11L);
+        when(importacaoEmLote.inserir(anyList(), eq(Reserva.class), any())).thenReturn(List.of(
+                new ResultadoImportacao(0, "10", true, null),
+                new ResultadoImportacao(1, "11", true, null)));
+
+        List<ResultadoReserva> result = restauranteService.reservarEmLote(reservasDto);
+
+        assertEquals(4, result.size());
+        assertTrue(result.get(0).isReservado());
+        assertEquals(10L, result.get(0).getReserva().getId());
+        assertEquals(RestauranteServiceImpl.RESTAURANTE_NAO_ENCONTRADO, result.get(1).getErro());
+        assertEquals(RestauranteServiceImpl.RESTAURANTE_SEM_MESAS, result.get(2).getErro());
+        assertEquals(11L, result.get(3).getReserva().getId());
+        assertEquals(LocalTime.of(11, 0), result.get(3).getReserva().getHora());
+        verify(restauranteRepository, times(1)).findAllById(any());
+        verify(importacaoEmLote, times(1)).inserir(anyList(), eq(Reserva.class), any());
+        verify(reservaRepository, never()).insert(any(Reserva.class));
+    }
+
+    @Test
+    void shouldClaimAllMesasOfSlotInOneUpdateWhenReservarEmLoteIsCalled() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 2, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa(), new Mesa()));
+        LocalDate data = LocalDate.now();
+        when(restauranteRepository.findAllById(any())).thenReturn(List.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesas(eq("4"), eq(data), eq(LocalTime.of(10, 0)), eq(2), aryEq(new int[]{0, 1}))).thenReturn(true);
+        when(geradorIdentificador.proximo()).thenReturn(1L, 2L);
+        when(importacaoEmLote.inserir(anyList(), eq(Reserva.class), any())).thenReturn(List.of(
+                new ResultadoImportacao(0, "1", true, null),
+                new ResultadoImportacao(1, "2", true, null)));
+
+        List<ResultadoReserva> result = restauranteService.reservarEmLote(List.of(
+                new ReservaDto("4", data, LocalTime.of(10, 0)),
+                new ReservaDto("4", data, LocalTime.of(10, 0))));
+
+        assertEquals(0, result.get(0).getReserva().getIndiceMesa());
+        assertEquals(1, result.get(1).getReserva().getIndiceMesa());
+        assertEquals(2, indiceDisponibilidade.mesasOcupadas("4", data, LocalTime.of(10, 0)));
+        verify(ocupacaoHorarioRepository, never()).ocuparMesa(any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldClaimMesasOneByOneWhenGroupClaimConflicts() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 3, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa(), new Mesa(), new Mesa()));
+        LocalDate data = LocalDate.now();
+        when(restauranteRepository.findAllById(any())).thenReturn(List.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesas(anyString(), any(LocalDate.class), any(LocalTime.class), anyInt(), any(int[].class))).thenReturn(false);
+        when(ocupacaoHorarioRepository.ocuparMesa("4", data, LocalTime.of(10, 0), 3, 0)).thenReturn(true);
+        when(ocupacaoHorarioRepository.ocuparMesa("4", data, LocalTime.of(10, 0), 3, 1)).thenReturn(true);
+        when(geradorIdentificador.proximo()).thenReturn(1L, 2L);
+        when(importacaoEmLote.inserir(anyList(), eq(Reserva.class), any())).thenReturn(List.of(
+                new ResultadoImportacao(0, "1", true, null),
+                new ResultadoImportacao(1, "2", true, null)));
+
+        List<ResultadoReserva> result = restauranteService.reservarEmLote(List.of(
+                new ReservaDto("4", data, LocalTime.of(10, 0)),
+                new ReservaDto("4", data, LocalTime.of(10, 0))));
+
+        assertTrue(result.get(0).isReservado());
+        assertTrue(result.get(1).isReservado());
+        verify(ocupacaoHorarioRepository, times(1)).ocuparMesas(anyString(), any(LocalDate.class), any(LocalTime.class), anyInt(), any(int[].class));
+        verify(ocupacaoHorarioRepository, times(2)).ocuparMesa(anyString(), any(LocalDate.class), any(LocalTime.class), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldRejectLoteWithoutDataOrHoraBeforeTouchingSlots() {
+        List<ReservaDto> reservasDto = List.of(
+                new ReservaDto("4", LocalDate.now(), LocalTime.of(10, 0)),
+                new ReservaDto("4", LocalDate.now(), null));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> restauranteService.reservarEmLote(reservasDto));
+
+        assertEquals(RestauranteServiceImpl.DATA_HORA_OBRIGATORIAS, exception.getMessage());
+        verify(restauranteRepository, never()).findAllById(any());
+        verify(ocupacaoHorarioRepository, never()).ocuparMesa(any(), any(), any(), anyInt(), anyInt());
+        verify(ocupacaoHorarioRepository, never()).ocuparMesas(any(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void shouldReleaseMesaWhenBulkWriteRejectsReserva() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 1, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa()));
+        LocalDate data = LocalDate.now();
+        when(restauranteRepository.findAllById(any())).thenReturn(List.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesa("4", data, LocalTime.of(10, 0), 1, 0)).thenReturn(true);
+        when(geradorIdentificador.proximo()).thenReturn(1L);
+        when(importacaoEmLote.inserir(anyList(), eq(Reserva.class), any())).thenReturn(List.of(
+                new ResultadoImportacao(0, "1", false, ImportacaoEmLote.DOCUMENTO_DUPLICADO)));
+
+        List<ResultadoReserva> result = restauranteService.reservarEmLote(List.of(new ReservaDto("4", data, LocalTime.of(10, 0))));
+
+        assertFalse(result.get(0).isReservado());
+        assertEquals(ImportacaoEmLote.DOCUMENTO_DUPLICADO, result.get(0).getErro());
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("4", data, LocalTime.of(10, 0)));
+        verify(ocupacaoHorarioRepository, times(1)).liberarMesa("4", data, LocalTime.of(10, 0), 0);
+    }
+
+    @Test
+    void shouldSetOnlySuppliedFieldsWhenAtualizarRestauranteParcialIsCalled() {
+        AtualizacaoRestaurante atualizacao = new AtualizacaoRestaurante();
+        atualizacao.setNome("novo nome");
+        atualizacao.setCapacidade(20);
+        Restaurante atualizado = new Restaurante("4", "novo nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 20, 10, new ArrayList<>());
+        when(restauranteRepository.definirCampos("4", Map.of("nome", "novo nome", "capacidade", 20))).thenReturn(atualizado);
+
+        Restaurante result = restauranteService.atualizarRestauranteParcial("4", atualizacao);
+
+        assertEquals(atualizado, result);
+        verify(restauranteRepository, never()).findById(anyString());
+        verify(restauranteRepository, never()).save(any(Restaurante.class));
+        verify(cacheRespostasRestaurantes, times(1)).invalidar("4");
+    }
+
+    @Test
+    void shouldRejectAtualizarRestauranteParcialWhenItMovesMesaWithFutureReserva() {
+        Mesa primeira = new Mesa();
+        primeira.setId(1L);
+        Mesa segunda = new Mesa();
+        segunda.setId(2L);
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 2, new ArrayList<>(List.of(primeira, segunda)));
+        AtualizacaoRestaurante atualizacao = new AtualizacaoRestaurante();
+        atualizacao.setMesas(new ArrayList<>(List.of(segunda, primeira)));
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(reservaRepository.buscarMesasReservadas(eq("4"), any(LocalDate.class))).thenReturn(List.of(0));
+
+        assertThrows(IllegalStateException.class, () -> restauranteService.atualizarRestauranteParcial("4", atualizacao));
+        verify(restauranteRepository, never()).definirCampos(anyString(), anyMap());
+    }
+
+    @Test
+    void shouldSetQtdMesasFromMesasWhenAtualizarRestauranteParcialChangesMesas() {
+        Mesa primeira = new Mesa();
+        primeira.setId(1L);
+        Mesa segunda = new Mesa();
+        segunda.setId(2L);
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 1, new ArrayList<>(List.of(primeira)));
+        AtualizacaoRestaurante atualizacao = new AtualizacaoRestaurante();
+        atualizacao.setMesas(new ArrayList<>(List.of(primeira, segunda)));
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(reservaRepository.buscarMesasReservadas(eq("4"), any(LocalDate.class))).thenReturn(List.of(0));
+        when(restauranteRepository.definirCampos("4", Map.of("mesas", atualizacao.getMesas(), "qtdMesas", 2))).thenReturn(restaurante);
+
+        restauranteService.atualizarRestauranteParcial("4", atualizacao);
+
+        verify(restauranteRepository, times(1)).definirCampos("4", Map.of("mesas", atualizacao.getMesas(), "qtdMesas", 2));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenAtualizarRestauranteParcialIsCalledWithInvalidId() {
+        AtualizacaoRestaurante atualizacao = new AtualizacaoRestaurante();
+        atualizacao.setNome("novo nome");
+        when(restauranteRepository.definirCampos(eq("InvalidId"), anyMap())).thenReturn(null);
+
+        assertThrows(RuntimeException.class, () -> restauranteService.atualizarRestauranteParcial("InvalidId", atualizacao));
+    }
+
+    @Test
+    void shouldUpdateReservaWithoutReadingWhenAtualizarReservaParcialKeepsSlot() {
+        AtualizacaoReserva atualizacao = new AtualizacaoReserva();
+        Cliente cliente = new Cliente();
+        atualizacao.setCliente(cliente);
+        Reserva atualizada = new Reserva();
+        when(reservaRepository.definirCampos(1L, "4", null, Map.of("cliente", cliente))).thenReturn(atualizada);
+
+        Reserva result = restauranteService.atualizarReservaParcial("4", "1", atualizacao);
+
+        assertEquals(atualizada, result);
+        verify(reservaRepository, never()).findByIdAndRestauranteId(any(), any());
+        verify(ocupacaoHorarioRepository, never()).ocuparMesa(any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void shouldMoveReservaAndReleaseOldMesaWhenAtualizarReservaParcialChangesHora() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 2, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa(), new Mesa()));
+        LocalDate data = LocalDate.now();
+        Reserva reservaSalva = new Reserva();
+        reservaSalva.setId(1L);
+        reservaSalva.setRestauranteId("4");
+        reservaSalva.setData(data);
+        reservaSalva.setHora(LocalTime.of(10, 0));
+        reservaSalva.setIndiceMesa(1);
+        reservaSalva.setVersao(3L);
+        indiceDisponibilidade.ocupar("4", data, LocalTime.of(10, 0), 1);
+        AtualizacaoReserva atualizacao = new AtualizacaoReserva();
+        atualizacao.setHora(LocalTime.of(11, 0));
+        when(reservaRepository.findByIdAndRestauranteId(1L, "4")).thenReturn(Optional.of(reservaSalva));
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesa("4", data, LocalTime.of(11, 0), 2, 0)).thenReturn(true);
+        Reserva atualizada = new Reserva();
+        when(reservaRepository.definirCampos(eq(1L), eq("4"), eq(3L), anyMap())).thenReturn(atualizada);
+
+        Reserva result = restauranteService.atualizarReservaParcial("4", "1", atualizacao);
+
+        assertEquals(atualizada, result);
+        assertEquals(1, indiceDisponibilidade.mesasOcupadas("4", data, LocalTime.of(11, 0)));
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("4", data, LocalTime.of(10, 0)));
+        verify(ocupacaoHorarioRepository, times(1)).liberarMesa("4", data, LocalTime.of(10, 0), 1);
+    }
+
+    @Test
+    void shouldReleaseNewMesaWhenAtualizarReservaParcialLosesVersionRace() {
+        Restaurante restaurante = new Restaurante("4", "nome", "localizacao", "tipoCozinha", "horarioFuncionamento", 10, 1, new ArrayList<>());
+        restaurante.setMesas(List.of(new Mesa()));
+        LocalDate data = LocalDate.now();
+        Reserva reservaSalva = new Reserva();
+        reservaSalva.setId(1L);
+        reservaSalva.setData(data);
+        reservaSalva.setHora(LocalTime.of(10, 0));
+        reservaSalva.setIndiceMesa(0);
+        reservaSalva.setVersao(3L);
+        AtualizacaoReserva atualizacao = new AtualizacaoReserva();
+        atualizacao.setHora(LocalTime.of(11, 0));
+        when(reservaRepository.findByIdAndRestauranteId(1L, "4")).thenReturn(Optional.of(reservaSalva));
+        when(restauranteRepository.findById("4")).thenReturn(Optional.of(restaurante));
+        when(ocupacaoHorarioRepository.ocuparMesa("4", data, LocalTime.of(11, 0), 1, 0)).thenReturn(true);
+        when(reservaRepository.definirCampos(eq(1L), eq("4"), eq(3L), anyMap())).thenReturn(null);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> restauranteService.atualizarReservaParcial("4", "1", atualizacao));
+        assertEquals(0, indiceDisponibilidade.mesasOcupadas("4", data, LocalTime.of(11, 0)));
+        verify(ocupacaoHorarioRepository, times(3)).liberarMesa("4", data, LocalTime.of(11, 0), 0);
+        verify(ocupacaoHorarioRepository, never()).liberarMesa("4", data, LocalTime.of(10, 0), 0);
+    }
+
+    @Test
+    void shouldReplacePreviousNotaWhenAdicionarComentarioChangesComment() {
+        Comentario comentarioAnterior = new Comentario();
+        comentarioAnterior.setNota(2);
+        Reserva reservaAnterior = new Reserva();
+        reservaAnterior.setComentario(comentarioAnterior);
+        when(reservaRepository.definirComentario(eq(1L), eq("3"), any(Comentario.class))).thenReturn(reservaAnterior);
+
+        restauranteService.adicionarComentario("3", "1", "Melhorou", 5);
+
+        verify(restauranteRepository, times(1)).registrarNota("3", 2, 5);
+    }
+
+    @Test
+    void shouldRejectNotaOutOfRangeWhenAdicionarComentarioIsCalled() {
+        assertThrows(IllegalArgumentException.class, () -> restauranteService.adicionarComentario("3", "1", "Texto", 6));
+        verify(reservaRepository, never()).definirComentario(any(), any(), any());
+    }
+
+    @Test
+    void shouldRegisterNotaWhenAtualizarReservaParcialChangesComentario() {
+        Comentario comentarioAnterior = new Comentario();
+        comentarioAnterior.setNota(3);
+        Reserva reservaSalva = new Reserva();
+        reservaSalva.setId(1L);
+        reservaSalva.setVersao(5L);
+        reservaSalva.setComentario(comentarioAnterior);
+        Comentario comentario = new Comentario();
+        comentario.setNota(1);
+        AtualizacaoReserva atualizacao = new AtualizacaoReserva();
+        atualizacao.setComentario(comentario);
+        Reserva atualizada = new Reserva();
+        when(reservaRepository.findByIdAndRestauranteId(1L, "4")).thenReturn(Optional.of(reservaSalva));
+        when(reservaRepository.definirCampos(1L, "4", 5L, Map.of("comentario", comentario))).thenReturn(atualizada);
+
+        Reserva result = restauranteService.atualizarReservaParcial("4", "1", atualizacao);
+
+        assertEquals(atualizada, result);
+        verify(restauranteRepository, times(1)).registrarNota("4", 3, 1);
+    }
 }
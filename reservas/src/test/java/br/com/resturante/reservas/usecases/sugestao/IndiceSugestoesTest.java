@@ -0,0 +1,117 @@
+package br.com.resturante.reservas.usecases.sugestao;
+
+import br.com.resturante.reservas.dto.SugestaoRestaurante;
+import br.com.resturante.reservas.entities.Restaurante;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceSugestoesTest {
+
+    IndiceSugestoes indiceSugestoes;
+
+    @BeforeEach
+    void setup() {
+        indiceSugestoes = new IndiceSugestoes(10, 3);
+        indiceSugestoes.reconstruir(Stream.of(
+                new SugestaoRestaurante("1", "Cantina São João", "Italiana"),
+                new SugestaoRestaurante("2", "Sushi Itá", "Japonesa"),
+                new SugestaoRestaurante("3", "Churrascaria Gaúcha", "Churrasco")));
+    }
+
+    @Test
+    void shouldIgnoreAccentsAndCaseOfPrefix() {
+        assertEquals(List.of("1"), ids(indiceSugestoes.sugerir("CANTINA SÃO", null)));
+        assertEquals(List.of("1"), ids(indiceSugestoes.sugerir("cantina sao", null)));
+        assertEquals(List.of("3"), ids(indiceSugestoes.sugerir("gaucha", null)));
+    }
+
+    @Test
+    void shouldMatchPrefixOfAnyWordInNomeAndTipoCozinha() {
+        assertEquals(List.of("2", "1"), ids(indiceSugestoes.sugerir("ita", null)));
+        assertEquals(List.of("3"), ids(indiceSugestoes.sugerir("churras", null)));
+        assertEquals(List.of("1"), ids(indiceSugestoes.sugerir("joao", null)));
+    }
+
+    @Test
+    void shouldReturnEachRestauranteOnceUpToLimite() {
+        indiceSugestoes.atualizar(List.of(
+                restaurante("4", "Pizzaria Pizza Nostra", "Pizza"),
+                restaurante("5", "Pizza Bella", "Pizza"),
+                restaurante("6", "Pizza Roma", "Pizza"),
+                restaurante("7", "Pizza Napoli", "Pizza")));
+
+        List<String> encontrados = ids(indiceSugestoes.sugerir("pizza", 2));
+        assertEquals(2, encontrados.size());
+        assertNotEquals(encontrados.get(0), encontrados.get(1));
+        assertEquals(3, indiceSugestoes.sugerir("pizza", 100).size());
+    }
+
+    @Test
+    void shouldReplaceKeysWhenRestauranteIsUpdated() {
+        indiceSugestoes.atualizar(restaurante("2", "Temakeria Central", "Japonesa"));
+
+        assertTrue(indiceSugestoes.sugerir("sushi", null).isEmpty());
+        assertEquals(List.of("2"), ids(indiceSugestoes.sugerir("temak", null)));
+        assertEquals("Temakeria Central", indiceSugestoes.sugerir("japo", null).get(0).getNome());
+    }
+
+    @Test
+    void shouldForgetRestauranteWhenRemoved() {
+        indiceSugestoes.remover("1");
+
+        assertTrue(indiceSugestoes.sugerir("cantina", null).isEmpty());
+        assertEquals(List.of("2"), ids(indiceSugestoes.sugerir("ita", null)));
+    }
+
+    @Test
+    void shouldKeepResultsAfterManyWritesAreMergedIntoTheIndex() {
+        for (int i = 0; i < 200; i++) {
+            indiceSugestoes.atualizar(restaurante(String.valueOf(100 + i), "Bistro " + i, "Francesa"));
+        }
+        indiceSugestoes.remover("150");
+        indiceSugestoes.atualizar(restaurante("1", "Osteria São João", "Italiana"));
+
+        assertEquals(List.of("100"), ids(indiceSugestoes.sugerir("bistro 0", null)));
+        assertTrue(indiceSugestoes.sugerir("bistro 50", null).isEmpty());
+        assertTrue(indiceSugestoes.sugerir("cantina", null).isEmpty());
+        assertEquals(List.of("1"), ids(indiceSugestoes.sugerir("osteria", null)));
+        assertEquals(List.of("3"), ids(indiceSugestoes.sugerir("gaucha", null)));
+    }
+
+    @Test
+    void shouldKeepWritesMadeWhileRebuilding() {
+        indiceSugestoes.reconstruir(Stream.of(new SugestaoRestaurante("1", "Cantina São João", "Italiana"))
+                .peek(sugestao -> {
+                    indiceSugestoes.atualizar(restaurante("9", "Taverna Nova", "Grega"));
+                    indiceSugestoes.remover("1");
+                }));
+
+        assertEquals(List.of("9"), ids(indiceSugestoes.sugerir("taverna", null)));
+        assertTrue(indiceSugestoes.sugerir("cantina", null).isEmpty());
+    }
+
+    @Test
+    void shouldReturnNothingForBlankPrefix() {
+        assertTrue(indiceSugestoes.sugerir("  ", null).isEmpty());
+        assertTrue(indiceSugestoes.sugerir(null, null).isEmpty());
+    }
+
+    @Test
+    void shouldRejectLimiteBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> indiceSugestoes.sugerir("ita", 0));
+    }
+
+    private static Restaurante restaurante(String id, String nome, String tipoCozinha) {
+        return new Restaurante(id, nome, "localizacao", tipoCozinha, "horarioFuncionamento", 10, 10, new ArrayList<>());
+    }
+
+    private static List<String> ids(List<SugestaoRestaurante> sugestoes) {
+        return sugestoes.stream().map(SugestaoRestaurante::getId).toList();
+    }
+}